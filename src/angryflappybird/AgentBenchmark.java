@@ -0,0 +1,49 @@
+package angryflappybird;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Measures the environment steps per second of {@link AgentEnvironment} for batches
+ * of 1, 64 and 1024 games, without the protocol around it. Every koya flies
+ * whenever it is lower than its own threshold, as read from its record. Run it as a
+ * Java application
+ * @author Robin Tran, Jennifer Pham
+ */
+public class AgentBenchmark {
+
+    private static final int[] SIZES = {1, 64, 1024};
+    private static final long ENV_STEPS_PER_SIZE = 20000000; // game steps timed for each size
+
+    public static void main(String[] args) {
+        Defines DEF = new Defines(false);
+        System.out.printf("%10s %16s %16s%n", "envs", "ns/env-step", "env-steps/s");
+        for (int size : SIZES) {
+            int steps = (int) Math.max(1, ENV_STEPS_PER_SIZE / size);
+            AgentEnvironment environment = new AgentEnvironment(DEF, size);
+            ByteBuffer actions = ByteBuffer.allocateDirect(size);
+            ByteBuffer records = environment.allocateRecords();
+            environment.reset(size, records);
+
+            // warm up, then time it
+            run(environment, actions, records, steps);
+            long time = run(environment, actions, records, steps);
+            double ns = time / ((double) steps * size);
+            System.out.printf("%10d %16.1f %16.0f%n", size, ns, 1e9 / ns);
+        }
+    }
+
+    private static long run(AgentEnvironment environment, ByteBuffer actions,
+            ByteBuffer records, int steps) {
+        int size = environment.size();
+        long start = System.nanoTime();
+        for (int s = 0; s < steps; s++) {
+            for (int i = 0; i < size; i++) {
+                float y = records.getFloat(i * AgentEnvironment.RECORD_BYTES + AgentEnvironment.KOYA_Y);
+                actions.put(i, y > 150 + i % 200 ? AgentEnvironment.FLAP : AgentEnvironment.NOOP);
+            }
+            records.clear();
+            environment.step(actions, records);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,213 @@
+package angryflappybird;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * The AgentEnvironment class runs a batch of independent games for agents that
+ * learn to play, with the real game rules of {@link GameWorld}. Every game has its
+ * own world and random generator; all the games move one tick at each step, with
+ * one action each. A game that is over starts again right away, and the step
+ * reports it as done. After each step the state of every game is written to a
+ * buffer as a fixed-size record of little-endian values, straight from the game
+ * objects, with no intermediate objects:
+ * <pre>
+ * offset  type     value
+ *  0      float    koya y
+ *  4      float    koya vertical velocity, pixels per second
+ *  8      float    x of the next pipe pair, from the koya
+ * 12      float    y of the bottom of the top pipe
+ * 16      float    y of the top of the bottom pipe
+ * 20      float    x of the green avocado, from the koya
+ * 24      float    y of the green avocado
+ * 28      float    x of the golden avocado, from the koya
+ * 32      float    y of the golden avocado
+ * 36      float    x of the carrot, from the koya
+ * 40      float    y of the carrot
+ * 44      float    seconds of snooze left, 0 when not snoozing
+ * 48      float    lives left
+ * 52      float    score
+ * 56      float    reward, the change of the score during the step
+ * 60      int      flags, {@link #DONE} and {@link #LIFE_LOST}
+ * </pre>
+ * @author Robin Tran, Jennifer Pham
+ */
+public class AgentEnvironment {
+
+    /** The size of the record of a game in bytes */
+    public static final int RECORD_BYTES = 64;
+    /** The action that does nothing */
+    public static final byte NOOP = 0;
+    /** The action that makes the koya fly */
+    public static final byte FLAP = 1;
+    /** Flag of a game that ended in the step, it has started again since */
+    public static final int DONE = 1;
+    /** Flag of a game that lost a life in the step */
+    public static final int LIFE_LOST = 2;
+
+    // offsets of the values of a record
+    static final int KOYA_Y = 0;
+    static final int KOYA_VY = 4;
+    static final int PIPE_DX = 8;
+    static final int GAP_TOP = 12;
+    static final int GAP_BOTTOM = 16;
+    static final int AVOCADO_DX = 20;
+    static final int AVOCADO_Y = 24;
+    static final int GOLDEN_DX = 28;
+    static final int GOLDEN_Y = 32;
+    static final int CARROT_DX = 36;
+    static final int CARROT_Y = 40;
+    static final int SNOOZE_LEFT = 44;
+    static final int LIVES = 48;
+    static final int SCORE = 52;
+    static final int REWARD = 56;
+    static final int FLAGS = 60;
+
+    private final Defines DEF;
+    private final GameWorld[] worlds;
+    private final int[] scores; // the score of each game after the last step
+    private long now;
+
+    /**
+     * Construct a batch of games, ready to be reset
+     * @param DEF the game constants
+     * @param count the number of games
+     */
+    public AgentEnvironment(Defines DEF, int count) {
+        this.DEF = DEF;
+        worlds = new GameWorld[count];
+        scores = new int[count];
+        for (int i = 0; i < count; i++) {
+            worlds[i] = new GameWorld(DEF, new Random(i));
+        }
+    }
+
+    /**
+     * Allocate a buffer for the records of every game, in the byte order they are
+     * written in
+     * @return the buffer
+     */
+    public ByteBuffer allocateRecords() {
+        return ByteBuffer.allocateDirect(worlds.length * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Start a new game everywhere. Game i draws its pipes from seed + i, so the
+     * same seed gives the same games for the same actions
+     * @param seed the seed of the first game
+     * @param records receives the record of every game, from its position
+     */
+    public void reset(long seed, ByteBuffer records) {
+        int base = records.position();
+        for (int i = 0; i < worlds.length; i++) {
+            GameWorld world = worlds[i];
+            world.getRandom().setSeed(seed + i);
+            world.newGame();
+            scores[i] = 0;
+            write(world, records, base + i * RECORD_BYTES, 0, 0);
+        }
+    }
+
+    /**
+     * Move every game one tick forward
+     * @param actions the action of every game, {@link #NOOP} or {@link #FLAP}, from
+     * its position
+     * @param records receives the record of every game, from its position
+     */
+    public void step(ByteBuffer actions, ByteBuffer records) {
+        now += DEF.AGENT_TICK;
+        int actionBase = actions.position();
+        int base = records.position();
+        for (int i = 0; i < worlds.length; i++) {
+            GameWorld world = worlds[i];
+
+            // the game starts on its own after a reset or a lost life
+            if (!world.isStarted() || actions.get(actionBase + i) == FLAP) {
+                world.click(now);
+            }
+            world.step(DEF.AGENT_TICK, now);
+
+            int flags = 0;
+            if (world.getState() == GameState.LIFE_LOST) {
+                world.reset();
+                flags |= LIFE_LOST;
+            }
+            int reward = world.getScore() - scores[i];
+            if (world.isGameOver()) {
+                flags |= DONE;
+                world.newGame();
+            }
+            scores[i] = world.getScore();
+            write(world, records, base + i * RECORD_BYTES, reward, flags);
+        }
+    }
+
+    /**
+     * Write the record of a game
+     * @param world the game
+     * @param records the buffer
+     * @param offset where the record starts
+     * @param reward the reward of the step
+     * @param flags the flags of the step
+     */
+    private void write(GameWorld world, ByteBuffer records, int offset, int reward, int flags) {
+        Sprite koya = world.getKoya();
+        double koyaX = koya.getPositionX();
+        records.putFloat(offset + KOYA_Y, (float) koya.getPositionY());
+        records.putFloat(offset + KOYA_VY, (float) koya.getVelocityY());
+
+        // the pipe pair the koya has not passed yet, the closest one
+        Sprite top = null;
+        Sprite bottom = null;
+        for (int i = 0; i + 1 < world.getPipes().size(); i += 2) {
+            Sprite pipe = world.getPipes().get(i);
+            if (pipe.getPositionX() + pipe.getWidth() >= koyaX
+                    && (top == null || pipe.getPositionX() < top.getPositionX())) {
+                top = pipe;
+                bottom = world.getPipes().get(i + 1);
+            }
+        }
+        if (top != null) {
+            records.putFloat(offset + PIPE_DX, (float) (top.getPositionX() - koyaX));
+            records.putFloat(offset + GAP_TOP, (float) (top.getPositionY() + top.getHeight()));
+            records.putFloat(offset + GAP_BOTTOM, (float) bottom.getPositionY());
+        } else {
+            records.putFloat(offset + PIPE_DX, DEF.SCENE_WIDTH);
+            records.putFloat(offset + GAP_TOP, 0);
+            records.putFloat(offset + GAP_BOTTOM, DEF.SCENE_HEIGHT);
+        }
+
+        Sprite avocado = world.getAvocados().get(0);
+        Sprite golden = world.getAvocados().get(1);
+        Sprite carrot = world.getCarrots().get(0);
+        records.putFloat(offset + AVOCADO_DX, (float) (avocado.getPositionX() - koyaX));
+        records.putFloat(offset + AVOCADO_Y, (float) avocado.getPositionY());
+        records.putFloat(offset + GOLDEN_DX, (float) (golden.getPositionX() - koyaX));
+        records.putFloat(offset + GOLDEN_Y, (float) golden.getPositionY());
+        records.putFloat(offset + CARROT_DX, (float) (carrot.getPositionX() - koyaX));
+        records.putFloat(offset + CARROT_Y, (float) carrot.getPositionY());
+        records.putFloat(offset + SNOOZE_LEFT, (float) world.getSnoozeLeft(now));
+        records.putFloat(offset + LIVES, world.getLives());
+        records.putFloat(offset + SCORE, world.getScore());
+        records.putFloat(offset + REWARD, reward);
+        records.putInt(offset + FLAGS, flags);
+    }
+
+    /**
+     * Get the number of games
+     * @return the number of games
+     */
+    public int size() {
+        return worlds.length;
+    }
+
+    /**
+     * Get a game of the batch
+     * @param i the index of the game
+     * @return the world of the game
+     */
+    public GameWorld getWorld(int i) {
+        return worlds[i];
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Pipe;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class AgentEnvironmentTest {
+
+    private static final int ENVS = 8;
+    private static final int REPLAYED_STEPS = 600; // steps compared after a second reset
+    private static final long STEP_ALLOCATION_BUDGET = 0;
+
+    private Defines DEF;
+    private AgentEnvironment environment;
+    private ByteBuffer actions;
+    private ByteBuffer records;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        DEF = new Defines(false);
+        environment = new AgentEnvironment(DEF, ENVS);
+        actions = ByteBuffer.allocateDirect(ENVS);
+        records = environment.allocateRecords();
+    }
+
+    /**
+     * Fly each koya when it is lower than its own threshold
+     * @param records the records of the last step
+     */
+    private void act(ByteBuffer records) {
+        for (int i = 0; i < ENVS; i++) {
+            float y = records.getFloat(i * AgentEnvironment.RECORD_BYTES + AgentEnvironment.KOYA_Y);
+            actions.put(i, y > 200 + 20 * i ? AgentEnvironment.FLAP : AgentEnvironment.NOOP);
+        }
+    }
+
+    /**
+     * Test that the records after a reset hold a new game, in little-endian order
+     */
+    @Test
+    void testResetRecords() {
+        environment.reset(7, records);
+        assertEquals(ByteOrder.LITTLE_ENDIAN, records.order());
+        assertEquals(ENVS * AgentEnvironment.RECORD_BYTES, records.capacity());
+        for (int i = 0; i < ENVS; i++) {
+            int offset = i * AgentEnvironment.RECORD_BYTES;
+            GameWorld world = environment.getWorld(i);
+            assertEquals((float) world.getKoya().getPositionY(),
+                    records.getFloat(offset + AgentEnvironment.KOYA_Y));
+            assertEquals(3f, records.getFloat(offset + AgentEnvironment.LIVES));
+            assertEquals(0f, records.getFloat(offset + AgentEnvironment.SCORE));
+            assertEquals(0, records.getInt(offset + AgentEnvironment.FLAGS));
+            assertTrue(records.getFloat(offset + AgentEnvironment.GAP_TOP)
+                    < records.getFloat(offset + AgentEnvironment.GAP_BOTTOM));
+        }
+
+        // the float at an offset is the same bytes read in little-endian order
+        int bits = (records.get(3) & 0xff) << 24 | (records.get(2) & 0xff) << 16
+                | (records.get(1) & 0xff) << 8 | (records.get(0) & 0xff);
+        assertEquals(records.getFloat(AgentEnvironment.KOYA_Y), Float.intBitsToFloat(bits));
+    }
+
+    /**
+     * Test that the same seed and actions give the same records, in another batch
+     * or in the same batch reset again, and that games end, are reported done and
+     * start again
+     */
+    @Test
+    void testSameSeedSameGames() {
+        AgentEnvironment other = new AgentEnvironment(DEF, ENVS);
+        ByteBuffer otherRecords = other.allocateRecords();
+        environment.reset(3, records);
+        other.reset(3, otherRecords);
+        ByteBuffer[] firstEpisode = new ByteBuffer[REPLAYED_STEPS + 1];
+        firstEpisode[0] = copy(records);
+
+        int done = 0;
+        int livesLost = 0;
+        for (int s = 0; s < 5000; s++) {
+            act(records);
+            environment.step(actions, records);
+            other.step(actions, otherRecords);
+            assertEquals(otherRecords, records);
+            if (s < REPLAYED_STEPS) {
+                firstEpisode[s + 1] = copy(records);
+            }
+            for (int i = 0; i < ENVS; i++) {
+                int offset = i * AgentEnvironment.RECORD_BYTES;
+                int flags = records.getInt(offset + AgentEnvironment.FLAGS);
+                if ((flags & AgentEnvironment.DONE) != 0) {
+                    done++;
+                    // the record is the first one of the next game
+                    assertEquals(3f, records.getFloat(offset + AgentEnvironment.LIVES));
+                    assertEquals(0f, records.getFloat(offset + AgentEnvironment.SCORE));
+                }
+                if ((flags & AgentEnvironment.LIFE_LOST) != 0) {
+                    livesLost++;
+                }
+            }
+        }
+        assertTrue(done > 0);
+        assertTrue(livesLost > 0);
+
+        // the same seed plays the same game again, whatever happened before
+        environment.reset(3, records);
+        assertEquals(firstEpisode[0], records, "reset");
+        for (int s = 0; s < REPLAYED_STEPS; s++) {
+            act(records);
+            environment.step(actions, records);
+            assertEquals(firstEpisode[s + 1], records, "step " + s);
+        }
+
+        // another seed gives other pipes
+        other.reset(4, otherRecords);
+        environment.reset(3, records);
+        assertFalse(otherRecords.equals(records));
+    }
+
+    /**
+     * Copy the records of a step
+     * @param records the records
+     * @return the copy
+     */
+    private static ByteBuffer copy(ByteBuffer records) {
+        ByteBuffer copy = ByteBuffer.allocate(records.capacity());
+        copy.put(records.duplicate().clear()).flip();
+        return copy;
+    }
+
+    /**
+     * Test that a step of the batch does not allocate once warmed up
+     */
+    @Test
+    void testStepDoesNotAllocate() {
+        AllocationTracker allocations = new AllocationTracker();
+        assertTrue(allocations.isSupported());
+
+        environment.reset(1, records);
+        for (int round = 0; round < 2; round++) {
+            // the first round warms up, the second round is measured
+            allocations.reset();
+            for (int s = 0; s < 20000; s++) {
+                allocations.begin();
+                act(records);
+                environment.step(actions, records);
+                allocations.end();
+            }
+        }
+        assertTrue(allocations.getAverageBytes() <= STEP_ALLOCATION_BUDGET,
+                allocations.getAverageBytes() + " bytes allocated per step on average, "
+                + allocations.getMaxBytes() + " bytes at most");
+    }
+
+    /**
+     * Test the protocol of the server through a pipe: the header, a reset, steps
+     * and the quit
+     * @throws IOException if the pipe fails
+     */
+    @Test
+    void testServerProtocol() throws IOException {
+        Pipe requests = Pipe.open();
+        Pipe replies = Pipe.open();
+        AgentServer server = new AgentServer(environment);
+        Thread thread = new Thread(() -> {
+            try {
+                server.serve(requests.source(), replies.sink());
+                replies.sink().close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+
+        ByteBuffer header = read(replies, 16);
+        assertEquals(AgentServer.MAGIC, header.getInt(0));
+        assertEquals(AgentServer.VERSION, header.getInt(4));
+        assertEquals(ENVS, header.getInt(8));
+        assertEquals(AgentEnvironment.RECORD_BYTES, header.getInt(12));
+
+        // the server answers with what the environment itself gives
+        AgentEnvironment local = new AgentEnvironment(DEF, ENVS);
+        ByteBuffer expected = local.allocateRecords();
+        ByteBuffer request = ByteBuffer.allocate(1 + ENVS).order(ByteOrder.LITTLE_ENDIAN);
+        request.put(AgentServer.RESET).putLong(9).flip();
+        write(requests, request);
+        local.reset(9, expected);
+        assertEquals(expected, read(replies, expected.capacity()));
+
+        for (int s = 0; s < 100; s++) {
+            act(expected);
+            request.clear();
+            request.put(AgentServer.STEP).put(actions.duplicate()).flip();
+            write(requests, request);
+            expected.clear();
+            local.step(actions, expected);
+            assertEquals(expected, read(replies, expected.capacity()));
+        }
+
+        request.clear();
+        request.put(AgentServer.QUIT).flip();
+        write(requests, request);
+        assertEquals(-1, replies.source().read(ByteBuffer.allocate(1)));
+        assertEquals(100, server.getSteps());
+    }
+
+    private static ByteBuffer read(Pipe pipe, int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            assertTrue(pipe.source().read(buffer) >= 0);
+        }
+        return buffer.flip();
+    }
+
+    private static void write(Pipe pipe, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            pipe.sink().write(buffer);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package angryflappybird;
+
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The AgentServer class lets an agent outside the JVM play a batch of games of
+ * {@link AgentEnvironment}, gym style, over standard input and output or a Unix
+ * domain socket. Everything is binary and little-endian. The server first sends a
+ * header of four ints: the magic number {@link #MAGIC}, the version of the protocol,
+ * the number of games and the size of a record. Then the agent sends requests and
+ * the server answers each with the records of every game:
+ * <pre>
+ * 'R' seed (long)         reset(seed), start a new game everywhere
+ * 'S' action (byte) * n   step(actions), one action per game, 0 or 1
+ * 'Q'                     quit, no answer
+ * </pre>
+ * The requests are read into and the records written from direct buffers, which the
+ * games write their records into, so no data is copied on the way. Options:
+ * --envs N (number of games), --socket path (serve one agent on a Unix domain socket
+ * instead of standard input and output, which needs Java 16 or later; the game
+ * itself still runs on Java 11, so the socket classes are looked up at run time)
+ * @author Robin Tran, Jennifer Pham
+ */
+public class AgentServer {
+
+    /** The first int of the header, "AFB1" */
+    public static final int MAGIC = 0x31424641;
+    /** The version of the protocol */
+    public static final int VERSION = 1;
+    /** The request to start a new game everywhere */
+    public static final byte RESET = 'R';
+    /** The request to move every game one tick forward */
+    public static final byte STEP = 'S';
+    /** The request to end the session */
+    public static final byte QUIT = 'Q';
+
+    private final AgentEnvironment environment;
+    private final ByteBuffer header = ByteBuffer.allocateDirect(16).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer request; // the opcode, then a seed or the actions
+    private final ByteBuffer records;
+    private long steps;
+
+    /**
+     * Construct a server for a batch of games
+     * @param environment the games
+     */
+    public AgentServer(AgentEnvironment environment) {
+        this.environment = environment;
+        request = ByteBuffer.allocateDirect(Math.max(1 + Long.BYTES, 1 + environment.size()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        records = environment.allocateRecords();
+    }
+
+    /**
+     * Answer the requests of an agent until it quits or closes its end
+     * @param in the requests of the agent
+     * @param out receives the header and the records
+     * @throws IOException if the agent cannot be read or written, or sends an
+     * unknown request
+     */
+    public void serve(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        header.clear();
+        header.putInt(MAGIC).putInt(VERSION).putInt(environment.size())
+                .putInt(AgentEnvironment.RECORD_BYTES).flip();
+        writeFully(out, header);
+
+        while (true) {
+            request.clear().limit(1);
+            if (!readFully(in, request)) {
+                return;
+            }
+            byte opcode = request.get(0);
+            if (opcode == QUIT) {
+                return;
+            }
+
+            records.clear();
+            if (opcode == RESET) {
+                request.limit(1 + Long.BYTES);
+                if (!readFully(in, request)) {
+                    throw new EOFException("the seed of a reset is missing");
+                }
+                environment.reset(request.getLong(1), records);
+            } else if (opcode == STEP) {
+                request.limit(1 + environment.size());
+                if (!readFully(in, request)) {
+                    throw new EOFException("the actions of a step are missing");
+                }
+                request.position(1);
+                environment.step(request, records);
+                steps++;
+            } else {
+                throw new IOException("unknown request " + opcode);
+            }
+            writeFully(out, records);
+        }
+    }
+
+    /**
+     * Get the number of steps served
+     * @return the number of steps of the whole batch
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Read until the buffer is full
+     * @param in the channel
+     * @param buffer the buffer, filled up to its limit
+     * @return if the buffer was filled, false if the channel ended first
+     * @throws IOException if the channel cannot be read
+     */
+    private static boolean readFully(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the whole buffer
+     * @param out the channel
+     * @param buffer the buffer, written from its position to its limit
+     * @throws IOException if the channel cannot be written
+     */
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Serve an agent on standard input and output, or on a Unix domain socket
+     * @param args --envs N, --socket path
+     * @throws IOException if the agent cannot be served
+     */
+    public static void main(String[] args) throws IOException {
+        Defines DEF = new Defines(false);
+        int envs = DEF.AGENT_ENVS;
+        String socket = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "--envs": envs = Integer.parseInt(args[i + 1]); break;
+            case "--socket": socket = args[i + 1]; break;
+            default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        AgentServer server = new AgentServer(new AgentEnvironment(DEF, envs));
+
+        if (socket == null) {
+            // standard output carries the records, messages go to standard error
+            server.serve(new FileInputStream(FileDescriptor.in).getChannel(),
+                    new FileOutputStream(FileDescriptor.out).getChannel());
+            return;
+        }
+        Path path = Path.of(socket);
+        Files.deleteIfExists(path);
+        try (ServerSocketChannel listener = openUnixSocket(path)) {
+            System.err.println("Waiting for an agent on " + path);
+            try (SocketChannel agent = listener.accept()) {
+                server.serve(agent, agent);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+        System.err.println("Served " + server.getSteps() + " steps of " + envs + " games");
+    }
+
+    /**
+     * Open a server socket bound to a Unix domain socket. The socket classes came
+     * with Java 16, so they are looked up at run time and the server still builds
+     * and serves standard input and output on Java 11
+     * @param path the path of the socket
+     * @return the listening socket
+     * @throws IOException if the socket cannot be opened, or this Java has no Unix
+     * domain sockets
+     */
+    private static ServerSocketChannel openUnixSocket(Path path) throws IOException {
+        ProtocolFamily unix;
+        SocketAddress address;
+        try {
+            unix = StandardProtocolFamily.valueOf("UNIX");
+            address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", Path.class).invoke(null, path);
+        } catch (IllegalArgumentException | ReflectiveOperationException e) {
+            throw new IOException("Unix domain sockets need Java 16 or later, "
+                    + "use standard input and output instead", e);
+        }
+        ServerSocketChannel listener;
+        try {
+            listener = (ServerSocketChannel) ServerSocketChannel.class
+                    .getMethod("open", ProtocolFamily.class).invoke(null, unix);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Unix domain sockets need Java 16 or later, "
+                    + "use standard input and output instead", e);
+        }
+        try {
+            listener.bind(address);
+        } catch (IOException | RuntimeException e) {
+            listener.close();
+            throw e;
+        }
+        return listener;
+    }
+}
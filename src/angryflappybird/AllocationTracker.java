@@ -0,0 +1,143 @@
+package angryflappybird;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * The AllocationTracker class measures how many bytes the current thread allocates
+ * between {@link #begin()} and {@link #end()}, using the allocation counter of the
+ * HotSpot thread MXBean. It keeps the last, average and largest measurement, which
+ * shows how much garbage each game tick produces
+ * @author Robin Tran, Jennifer Pham
+ */
+public class AllocationTracker {
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final long overhead; // bytes reported by an empty measurement
+
+    private long threadId;
+    private long startBytes;
+    private long lastBytes;
+    private long maxBytes;
+    private long totalBytes;
+    private long count;
+
+    /**
+     * Construct a tracker. Tracking is disabled when the JVM cannot count allocations
+     */
+    public AllocationTracker() {
+        com.sun.management.ThreadMXBean bean = null;
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                bean = null;
+            }
+        }
+        threads = bean;
+        overhead = calibrate();
+        reset();
+    }
+
+    /**
+     * Check if the JVM can count allocated bytes
+     * @return if tracking is supported
+     */
+    public boolean isSupported() {
+        return threads != null;
+    }
+
+    /**
+     * Start a measurement on the current thread
+     */
+    public void begin() {
+        if (threads == null) {
+            return;
+        }
+        threadId = Thread.currentThread().getId();
+        startBytes = threads.getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * End the measurement started by {@link #begin()} on the same thread
+     * @return the bytes allocated since begin
+     */
+    public long end() {
+        if (threads == null) {
+            return 0;
+        }
+        long bytes = threads.getThreadAllocatedBytes(threadId) - startBytes - overhead;
+        lastBytes = Math.max(0, bytes);
+        maxBytes = Math.max(maxBytes, lastBytes);
+        totalBytes += lastBytes;
+        count++;
+        return lastBytes;
+    }
+
+    /**
+     * Forget all measurements
+     */
+    public void reset() {
+        lastBytes = 0;
+        maxBytes = 0;
+        totalBytes = 0;
+        count = 0;
+    }
+
+    /**
+     * Get the bytes allocated during the last measurement
+     * @return the bytes allocated
+     */
+    public long getLastBytes() {
+        return lastBytes;
+    }
+
+    /**
+     * Get the largest number of bytes allocated during one measurement
+     * @return the bytes allocated
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get the total number of bytes allocated during all measurements
+     * @return the bytes allocated
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Get the average number of bytes allocated per measurement
+     * @return the bytes allocated, 0 before the first measurement
+     */
+    public long getAverageBytes() {
+        return count == 0 ? 0 : totalBytes / count;
+    }
+
+    /**
+     * Get the number of measurements
+     * @return the number of measurements
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Measure what the counter reports when nothing is allocated in between
+     * @return the smallest empty measurement
+     */
+    private long calibrate() {
+        if (threads == null) {
+            return 0;
+        }
+        long id = Thread.currentThread().getId();
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long start = threads.getThreadAllocatedBytes(id);
+            min = Math.min(min, threads.getThreadAllocatedBytes(id) - start);
+        }
+        return min;
+    }
+}
@@ -1,25 +1,30 @@
 package angryflappybird;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Paths;
+
+import javax.sound.sampled.LineUnavailableException;
+
 import javafx.animation.AnimationTimer;
-import javafx.animation.FadeTransition;
-import javafx.animation.ParallelTransition;
 import javafx.application.Application;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Scene;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.image.ImageView;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.scene.text.Text;
+import javafx.scene.transform.Scale;
 import javafx.stage.Stage;
-import javafx.util.Duration;
-import java.util.ArrayList;
-import java.util.Random;
 
 /**
  * Implementation of Angry Flappy Bird game 
@@ -32,33 +37,37 @@ public class AngryFlappyBird extends Application {
     private Defines DEF = new Defines();
 
     // time related attributes
-    private long clickTime, startTime, elapsedTime, backgroundShiftTime,
-    hitTime;
-    private AnimationTimer timer;
-
-    // counters
-    private int SCORE_COUNTER;
-    private int LIVES_COUNTER;
+    private final GameClock clock = new GameClock(); // sampled once per tick
+    private MyTimer timer; // idle while nothing moves
+    private final FramePacer pacer = FramePacer.ofMaxFps(DEF.MAX_FPS, DEF.FRAME_CAP_TOLERANCE); // the frame-rate cap
 
     // game components
-    private Sprite koya;
-    private ArrayList<Sprite> floors;
-    private ArrayList<Sprite> pipes;
-    private ArrayList<Sprite> avocados;
-    private ArrayList<Sprite> carrots;
+    private GameWorld world;
+    private final ParticleSystem particles = new ParticleSystem(DEF.PARTICLE_CAPACITY); // hit and pickup effects
+
+    // player input
+    private final InputQueue input = new InputQueue(DEF.INPUT_QUEUE_SIZE);
+    private final long[] appliedInputs = new long[DEF.INPUT_QUEUE_SIZE]; // times of the inputs applied this tick
+    private int appliedCount;
 
-    // game flags
-    private boolean CLICKED, GAME_START, GAME_OVER;
-    private boolean HIT_PIPE, HIT_CARROT, GET_AVOCADO, GET_GOLDEN,
-    CARROT_GET_AVOCADO, CARROT_GET_GOLDEN;
+    // two-player mode
+    private RollbackSession session; // null when playing alone
+    private long sessionTime; // game time not run yet in ticks of the session
+    private boolean sessionFlap; // a flap waiting for the next tick of the session
+
+    // diagnostics
+    private final GameLoopMetrics metrics = new GameLoopMetrics(pacer.getInterval()); // live metrics readable over JMX
+    private FrameCapture capture; // gameplay export, null unless capture is on
+    private AudioMixer mixer; // low latency sound, null unless the mixer is on
+    private AllocationTracker allocations; // bytes allocated per tick, null unless diagnostics are on
 
     // scene graphs
+    private HBox root; // the game scene and the control, in the coordinates of the fixed-size window
+    private final Scale windowScale = new Scale(1, 1, 0, 0); // from the fixed-size window to a resizable one
     private Group gameScene; // the left half of the scene
     private VBox gameControl; // the right half of the GUI (control)
     ChoiceBox<String> difficultyMenu = new ChoiceBox<>(); // the difficulty menu implemented as a choice box
-    private GraphicsContext gc;
-
-    private ImageView background; // game background
+    private Renderer renderer; // background, floor, sprite and effect layers
 
     // the mandatory main method
     public static void main(String[] args) {
@@ -71,49 +80,173 @@ public class AngryFlappyBird extends Application {
     @Override
     public void start(Stage primaryStage) throws Exception {
 
+        clock.setScale(DEF.TIME_SCALE);
+
+        // expose the game loop metrics to JMX clients
+        metrics.register();
+
+        // play the sounds through the PCM mixer when asked to
+        if (DEF.AUDIO_MIXER) {
+            openMixer();
+        }
+
+        // export the gameplay frames when asked to
+        if (!DEF.CAPTURE_FORMAT.isEmpty()) {
+            capture = new FrameCapture(DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT,
+                    DEF.CAPTURE_FORMAT, Paths.get(DEF.CAPTURE_DIR), DEF.CAPTURE_POOL_SIZE);
+        }
+
+        // play against another machine when asked to
+        if (DEF.NETPLAY_PLAYER >= 0) {
+            openSession();
+        }
+
         // initialize scene graphs and UIs
         resetGameControl(); // resets the gameControl
         resetGameScene(true); // resets the gameScene
 
-        HBox root = new HBox();
+        root = new HBox();
         HBox.setMargin(gameScene, new Insets(0, 0, 0, 15));
         root.getChildren().add(gameScene);
         root.getChildren().add(gameControl);
 
-        // add scene graphs to scene
-        Scene scene = new Scene(root, DEF.APP_WIDTH, DEF.APP_HEIGHT);
+        // add scene graphs to scene, a resizable window shows the fixed-size one
+        // through one scale transform, centered
+        Scene scene;
+        if (DEF.RESIZABLE || DEF.FULLSCREEN) {
+            root.getTransforms().add(windowScale);
+            scene = new Scene(new Group(root), DEF.APP_WIDTH, DEF.APP_HEIGHT, Color.BLACK);
+            scene.widthProperty().addListener(o -> resize());
+            scene.heightProperty().addListener(o -> resize());
+        } else {
+            scene = new Scene(root, DEF.APP_WIDTH, DEF.APP_HEIGHT);
+        }
+        scene.setOnKeyPressed(this::keyPressHandler);
 
         // finalize and show the stage
         primaryStage.setScene(scene);
         primaryStage.setTitle(DEF.STAGE_TITLE);
-        primaryStage.setResizable(false);
+        primaryStage.setResizable(DEF.RESIZABLE || DEF.FULLSCREEN);
+        primaryStage.setFullScreen(DEF.FULLSCREEN);
         primaryStage.show();
     }
 
+    /**
+     * Fit the fixed-size window in the scene at the largest multiple of the scale
+     * step, and have the renderer decode its images again when the scale changes.
+     * The game scene is drawn again right away, the game loop may be idle
+     */
+    private void resize() {
+        Scene scene = root.getScene();
+        double fit = Math.min(scene.getWidth() / DEF.APP_WIDTH, scene.getHeight() / DEF.APP_HEIGHT);
+        double scale = Math.max(1, Math.floor(fit / DEF.SCALE_STEP)) * DEF.SCALE_STEP;
+        root.setTranslateX(Math.floor((scene.getWidth() - DEF.APP_WIDTH * scale) / 2));
+        root.setTranslateY(Math.floor((scene.getHeight() - DEF.APP_HEIGHT * scale) / 2));
+        if (scale == windowScale.getX()) {
+            return;
+        }
+        windowScale.setX(scale);
+        windowScale.setY(scale);
+        renderer.setScale(scale);
+        renderer.renderFloor(world.getFloorOffset());
+        if (world.isStarted()) {
+            renderer.beginSprites();
+            world.render(renderer);
+            renderer.endSprites();
+        }
+    }
+
+    /**
+     * The stop method finishes the frame capture and stops the mixer
+     */
+    @Override
+    public void stop() throws Exception {
+        if (capture != null) {
+            capture.close();
+        }
+        if (mixer != null) {
+            mixer.close();
+        }
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    /**
+     * Open the two-player session on the UDP port and with the other player of the
+     * netplay properties, through the latency shim when a latency, jitter or loss is set
+     * @throws IOException if the port cannot be bound
+     */
+    private void openSession() throws IOException {
+        UdpTransport udp = new UdpTransport(DEF.NETPLAY_PORT, RollbackSession.PACKET_SIZE);
+        int colon = DEF.NETPLAY_PEER.lastIndexOf(':');
+        udp.setPeer(new InetSocketAddress(DEF.NETPLAY_PEER.substring(0, colon),
+                Integer.parseInt(DEF.NETPLAY_PEER.substring(colon + 1))));
+        NetTransport transport = udp;
+        if (DEF.NETPLAY_LATENCY > 0 || DEF.NETPLAY_JITTER > 0 || DEF.NETPLAY_LOSS > 0) {
+            transport = new LatencyShim(udp, (long) (DEF.NETPLAY_LATENCY * 1e6),
+                    (long) (DEF.NETPLAY_JITTER * 1e6), DEF.NETPLAY_LOSS,
+                    DEF.NETPLAY_SEED + DEF.NETPLAY_PLAYER);
+        }
+        session = new RollbackSession(DEF, DEF.NETPLAY_SEED, DEF.NETPLAY_PLAYER, transport);
+    }
+
+    /**
+     * Open the PCM mixer on the default sound device and decode the sounds. A sound
+     * the mixer cannot decode is played with its AudioClip, and without a sound
+     * device or when the mixer can decode none of them every sound is
+     */
+    private void openMixer() {
+        try {
+            mixer = AudioMixer.open(DEF.AUDIO_BUFFER_MS, DEF.AUDIO_VOICES);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("No sound device for the mixer: " + e.getMessage());
+            return;
+        }
+        int loaded = 0;
+        for (String name : DEF.AUDIO_FILES) {
+            try {
+                if (mixer.load(name, new URL(DEF.pathAudio(name)))) {
+                    loaded++;
+                } else {
+                    System.err.println("The mixer cannot decode " + name + ", it is played as an AudioClip");
+                }
+            } catch (MalformedURLException e) {
+                System.err.println("Cannot load " + name + ": " + e.getMessage());
+            }
+        }
+
+        // without a sound to mix, the mixer thread would only keep the device busy
+        if (loaded == 0) {
+            System.err.println("The mixer cannot decode any sound, it is not started");
+            try {
+                mixer.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mixer = null;
+            return;
+        }
+        mixer.start();
+    }
+
     /**
      * The getContent method sets the Scene layer
      */
     private void resetGameControl() {
 
         // set a mouse click handler for the start button
-        DEF.startButton.setOnMouseClicked(this::mouseClickHandler);
+        DEF.startButton.setOnMousePressed(this::mousePressHandler);
 
         // create a drop-down menu for difficulty and add options
         difficultyMenu.getItems().addAll("Easy", "Medium", "Difficult");
         difficultyMenu.setValue("Easy");
 
-        // load the images for the different items in the game description
-        ImageView avocadoImage = DEF.IMVIEW.get("avocado");
-        ImageView goldenImage = DEF.IMVIEW.get("yellowavocado");
-        ImageView carrotImage = DEF.IMVIEW.get("carrot");
-
-        // set size for all images in the game description
-        avocadoImage.setFitWidth(70);
-        avocadoImage.setFitHeight(70);
-        goldenImage.setFitWidth(70);
-        goldenImage.setFitHeight(70);
-        carrotImage.setFitWidth(70);
-        carrotImage.setFitHeight(70);
+        // load the images for the different items in the game description,
+        // at the size they are shown at
+        ImageView avocadoImage = new ImageView(DEF.IMAGES.acquire("avocado", 70, 70).getImage());
+        ImageView goldenImage = new ImageView(DEF.IMAGES.acquire("yellowavocado", 70, 70).getImage());
+        ImageView carrotImage = new ImageView(DEF.IMAGES.acquire("carrot", 70, 70).getImage());
 
         // create a horizontal box and a text description for each game item
         HBox avocadoDes = new HBox(); // green avocado description
@@ -152,22 +285,61 @@ public class AngryFlappyBird extends Application {
     }
 
     /**
-     * Method to handle mouse click events
+     * Method to handle mouse press events
      * @param e
      */
      
-    private void mouseClickHandler(MouseEvent e) {
+    private void mousePressHandler(MouseEvent e) {
+        queueInput(System.nanoTime());
+    }
 
-        // check if the game is over and reset the game scene if it is
-        if (GAME_OVER) {
+    /**
+     * Method to handle key press events, the space bar and the up arrow make the koya fly,
+     * P pauses the game, [ slows it down and ] speeds it up
+     * @param e
+     */
+    private void keyPressHandler(KeyEvent e) {
+        if (e.getCode() == KeyCode.SPACE || e.getCode() == KeyCode.UP) {
+            queueInput(System.nanoTime());
+        } else if (e.getCode() == KeyCode.P) {
+            clock.setPaused(!clock.isPaused());
+            wake();
+        } else if (e.getCode() == KeyCode.OPEN_BRACKET) {
+            clock.setScale(clock.getScale() / 2);
+        } else if (e.getCode() == KeyCode.CLOSE_BRACKET) {
+            clock.setScale(clock.getScale() * 2);
+        }
+    }
+
+    /**
+     * Queue a press event, it is applied on the first tick after it happened
+     * @param time the time of the event in nanoseconds
+     */
+    private void queueInput(long time) {
+
+        // presses while paused are ignored
+        if (clock.isPaused()) {
+            return;
+        }
+
+        // check if the game is over and reset the game scene if it is, in the
+        // two-player mode the session starts the new game on both machines
+        if (world.isGameOver() && session == null) {
             resetGameScene(false);
+        }
+        input.offer(time);
+        wake();
+    }
 
-            // if the game has started, record the time of the click
-        } else if (GAME_START) {
-            clickTime = System.nanoTime();
+    /**
+     * Start the game loop again if it is idle, to apply an input or to show the
+     * game after a pause. The time it was idle does not count
+     */
+    private void wake() {
+        if (!timer.isRunning()) {
+            clock.resync();
+            timer.start();
         }
-        GAME_START = true;
-        CLICKED = true;
     }
 
     /**
@@ -186,44 +358,26 @@ public class AngryFlappyBird extends Application {
         DEF.LIVES_LABEL.setText(Integer.toString(lives) + " lives left");
     }
     
-//    private void updateTimerLabel(int time) {
-//        DEF.TIMER_LABEL.setText(Integer.toString(time) + " secs to go");
-//    }
-
     /**
-     * Method to update the score after different events, such as when the Koya passes 
-     * pipes, the Koya collects green avocados, or the carrot gets the avocados
+     * Update the snooze timer label on the game scene
+     * @param time the seconds left, 0 to hide the label
      */
-    private void updateScore() {
-        if (!HIT_PIPE) {
-            // update the score if the Koya passes 1 pipe
-            for (int i = 0; i < 4; i++) {
-                if (pipes.get(i).getPositionX() + 10 == koya.getPositionX()) { 
-                    DEF.AUDIO.get("point").play();
-                    SCORE_COUNTER += 1;
-                    break;
-                }
-            }
-            // update the score if the Koya gets a green avocado
-            if (GET_AVOCADO) {
-                SCORE_COUNTER += 5;
-                DEF.AUDIO.get("point").play();
-                avocados.get(0).setPositionXY(pipes.get(2).getPositionX(),
-                        1000);
-                GET_AVOCADO = false;
+    private void updateTimerLabel(int time) {
+        DEF.TIMER_LABEL.setText(time == 0 ? "" : Integer.toString(time) + " secs to go");
+    }
 
-            }
-            // update the score if the carrot steals an avocado
-            if (CARROT_GET_AVOCADO || CARROT_GET_GOLDEN) {
-                SCORE_COUNTER -= 5;
-                avocados.get(0).setPositionXY(pipes.get(2).getPositionX(),
-                        1000);
-                CARROT_GET_AVOCADO = false;
-                CARROT_GET_GOLDEN = false;
-            }
-        }
-        // update the score on the game scene
-        updateScoreLabel(SCORE_COUNTER);
+    /**
+     * Update the diagnostics label with the bytes allocated per tick
+     */
+    private void updateDebugLabel() {
+        DEF.DEBUG_LABEL.setText("alloc/tick: " + allocations.getLastBytes()
+                + " B (avg " + allocations.getAverageBytes()
+                + " B, max " + allocations.getMaxBytes() + " B)"
+                + String.format("%ninput: p50 %.0f ms, p95 %.0f ms",
+                        metrics.getInputLatencyP50(), metrics.getInputLatencyP95())
+                + (session == null ? "" : String.format("%nrollbacks: %d, max %.2f ms, stalls %d",
+                        session.getRollbacks(), session.getMaxRollbackNanos() / 1e6,
+                        session.getStalls())));
     }
 
     /**
@@ -233,533 +387,321 @@ public class AngryFlappyBird extends Application {
      */
     private void resetGameScene(boolean firstEntry) {
 
-        // reset variables after the game is over
-        if (GAME_OVER) {
-            DEF.GameOver.setText("");
-            DEF.GetReady.setText("GET READY");
-            SCORE_COUNTER = 0;
-            LIVES_COUNTER = 3;
-            updateScoreLabel(0);
-            updateLivesLabel(3);
-        }
+        metrics.recordReset(System.nanoTime());
+        GameEvents.Reset event = new GameEvents.Reset();
+        event.begin();
 
-        // reset variables
-        CLICKED = false;
-        GAME_OVER = false;
-        GAME_START = false;
-        HIT_PIPE = false;
-        HIT_CARROT = false;
-        GET_AVOCADO = false;
-        GET_GOLDEN = false;
-        CARROT_GET_AVOCADO = false;
-        CARROT_GET_GOLDEN = false;
-        floors = new ArrayList<>();
-        pipes = new ArrayList<>();
-        avocados = new ArrayList<>();
-        carrots = new ArrayList<>();
+        // reset the signs
+        DEF.GameOver.setText("");
         DEF.GetReady.setText("GET READY");
 
         if (firstEntry) {
 
-            // reset the score and lives counter to their initial values
-            SCORE_COUNTER = 0;
-            LIVES_COUNTER = 3;
-
             // update the score and lives label with the initial values
             updateScoreLabel(0);
             updateLivesLabel(3);
             
-            // create two canvases
-            Canvas canvas = new Canvas(DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
-            gc = canvas.getGraphicsContext2D();
-
-            // create a background
-            background = DEF.IMVIEW.get("background");
+            // create the background, floor, sprite and effect layers
+            renderer = createRenderer(DEF.RENDERER);
 
             // create the game scene
             gameScene = new Group();
-            gameScene.getChildren().addAll(background, canvas, DEF.SCORE_LABEL,
+            gameScene.getChildren().addAll(renderer.getLayers());
+            gameScene.getChildren().addAll(DEF.SCORE_LABEL,
                     DEF.LIVES_LABEL, DEF.TIMER_LABEL, DEF.GetReady,
                     DEF.GameOver);
 
-            gameScene.setOnMouseClicked(this::mouseClickHandler);
-        }
-
-        // initialize floor
-        for (int i = 0; i < DEF.FLOOR_COUNT; i++) {
-
-            int posX = i * DEF.FLOOR_WIDTH;
-            int posY = DEF.SCENE_HEIGHT - DEF.FLOOR_HEIGHT;
-
-            Sprite floor = new Sprite(posX, posY, DEF.IMAGE.get("floor"));
-            floor.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
-            floor.render(gc);
-
-            floors.add(floor);
-        }
-
-        // initialize koya
-        koya = new Sprite(DEF.KOYA_POS_X, DEF.KOYA_POS_Y,
-                DEF.IMAGE.get("koya0"));
-        koya.render(gc);
-
-        // initialize timer
-        startTime = System.nanoTime();
-        backgroundShiftTime = DEF.BACKGROUND_SHIFT_TIME;
-        timer = new MyTimer();
-        timer.start();
-        hitTime = 0;
-
-        // initialize pipes
-        int posX = 0;
-        int posY = 0;
-        for (int i = 0; i < DEF.PIPE_COUNT; i++) {
-
-            posX = DEF.SCENE_WIDTH + i * DEF.PIPE_GAP;
-            posY = new Random()
-                    .nextInt(DEF.PIPE_MAX_HEIGHT - DEF.PIPE_MIN_HEIGHT + 1)
-                    + DEF.PIPE_MIN_HEIGHT;
-
-            Sprite topPipe = new Sprite(posX, posY, DEF.IMAGE.get("pipe1"));
-            topPipe.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
-            topPipe.render(gc);
-            pipes.add(topPipe);
-
-            Sprite bottomPipe = new Sprite(posX, posY + 300 + DEF.PIPE_HEIGHT,
-                    DEF.IMAGE.get("pipe0"));
-            bottomPipe.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
-            bottomPipe.render(gc);
-            pipes.add(bottomPipe);
-
-        }
-        
-        // initialize avocados
-        Sprite avocado = new Sprite(posX - 300,
-                pipes.get(1).getPositionY() - DEF.AVOCADO_HEIGHT,
-                DEF.IMAGE.get("avocado"));
-        avocado.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
-        avocado.render(gc);
-        avocados.add(avocado);
-
-        Sprite golden = new Sprite(posX,
-                pipes.get(3).getPositionY() - DEF.AVOCADO_HEIGHT,
-                DEF.IMAGE.get("yellowavocado"));
-        golden.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
-        golden.render(gc);
-        avocados.add(golden);
-
-        // initialize carrot
-        Sprite carrot = new Sprite(posX, posY - 100, DEF.IMAGE.get("carrot"));
-        carrot.setVelocity(DEF.SCENE_SHIFT_INCR, 0.2);
-        carrot.render(gc);
-        carrots.add(carrot);
-        carrots.add(carrot);
-    }
+            gameScene.setOnMousePressed(this::mousePressHandler);
 
-    /**
-     * This class is used to handle the timing of game events and updates. 
-     * It keeps track of the elapsed time since the start of the game and clears the current scene at 
-     * each frame
-     * @author Robin Tran, Jennifer Pham
-     */
-    class MyTimer extends AnimationTimer {
-
-        // initialize counter
-        int counter = 0;
-
-        @Override
-        /**
-         * Handles the game animation by updating the elapsed time, clearing the current scene, 
-         * and executing the game logic while the game is in progress
-         * @param now the current time
-         */
-        public void handle(long now) {
-            // time keeping
-            elapsedTime = now - startTime;
-            startTime = now;
+            // show the bytes allocated per tick in diagnostics mode
+            if (DEF.DIAGNOSTICS) {
+                allocations = new AllocationTracker();
+                gameScene.getChildren().add(DEF.DEBUG_LABEL);
+            }
 
-            // clear current scene
-            gc.clearRect(0, 0, DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+            // create the game objects and the timer once, they are reused
+            // for every life and every new game
+            if (session != null) {
+                world = session.getWorld();
+                session.setListener(new WorldListener());
+            } else {
+                world = new GameWorld(DEF);
+                world.setListener(new WorldListener());
+            }
+            timer = new MyTimer();
+        } else {
+            // put the existing game objects back to their initial positions
+            world.reset();
+        }
+        renderer.clearSprites();
+        particles.clear();
 
-            if (GAME_START) {
+        // nothing moves until the first click, which starts the timer, but the
+        // two-player session keeps talking to the other player
+        if (session != null) {
+            wake();
+        }
 
-                if (pipes.get(0).getPositionX() == DEF.SCENE_WIDTH - 50) {
-                    DEF.GetReady.setText("");
-                }
+        event.firstEntry = firstEntry;
+        event.score = world.getScore();
+        event.lives = world.getLives();
+        event.commit();
+    }
 
-                // step1: update floor and pipes
-                moveFloor();
-                movePipe();
+    /**
+     * Create the renderer chosen at startup
+     * @param name "canvas" for {@link LayeredRenderer}, "retained" for {@link RetainedRenderer}
+     * @return the renderer
+     */
+    private Renderer createRenderer(String name) {
+        switch (name) {
+        case "canvas":
+            return new LayeredRenderer(DEF);
+        case "retained":
+            return new RetainedRenderer(DEF);
+        default:
+            throw new IllegalArgumentException("unknown renderer " + name);
+        }
+    }
 
-                // step2 update avocados and carrots
-                moveAvocado();
-                moveCarrot();
+    /**
+     * This class shows the events of the game world to the player
+     * @author Robin Tran, Jennifer Pham
+     */
+    class WorldListener implements GameListener {
 
-                // step3: update koya
-                moveKoya();
-                
-                // step4: check collision
-                if (!GET_GOLDEN) {
-                    checkCollision();
-                }
-                
-                // step5: update score and change background
-                updateScore();
-                changeBackground();
+        @Override
+        public void playSound(String name) {
+            if (mixer == null || !mixer.play(name)) {
+                DEF.AUDIO.get(name).play();
             }
+            metrics.recordSound();
         }
 
-        /**
-         * Update the floor throughout the game
-         */
-        private void moveFloor() {
-
-            for (int i = 0; i < DEF.FLOOR_COUNT; i++) {
-                if (floors.get(i).getPositionX() <= -DEF.FLOOR_WIDTH) {
-                    double nextX = floors.get((i + 1) % DEF.FLOOR_COUNT)
-                            .getPositionX() + DEF.FLOOR_WIDTH;
-                    double nextY = DEF.SCENE_HEIGHT - DEF.FLOOR_HEIGHT;
-                    floors.get(i).setPositionXY(nextX, nextY);
-                }
-                floors.get(i).render(gc);
-                floors.get(i).update(DEF.SCENE_SHIFT_TIME);
-            }
+        @Override
+        public void scoreChanged(int score) {
+            updateScoreLabel(score);
         }
 
-        /**
-         * Update the pipes throughout the game
-         */
-        private void movePipe() {
-            for (int i = 0; i < DEF.PIPE_COUNT; i++) {
-
-                Sprite topPipe = pipes.get(i * 2);
-                Sprite bottomPipe = pipes.get(i * 2 + 1);
-
-                // Position the pipes
-                if (topPipe.getPositionX() <= -DEF.PIPE_WIDTH) {
-                    double nextX = pipes.get((i + 1) % DEF.PIPE_COUNT * 2)
-                            .getPositionX() + 300;
-                    double nextY = new Random().nextInt(
-                            DEF.PIPE_MAX_HEIGHT - DEF.PIPE_MIN_HEIGHT + 1)
-                            + DEF.PIPE_MIN_HEIGHT;
-                    topPipe.setPositionXY(nextX, nextY);
-                    bottomPipe.setPositionXY(nextX, nextY + 500);
-                }
-
-                topPipe.update(DEF.SCENE_SHIFT_TIME);
-                bottomPipe.update(DEF.SCENE_SHIFT_TIME);
-                topPipe.render(gc);
-                bottomPipe.render(gc);
-                updateScoreLabel(SCORE_COUNTER);
-            }
+        @Override
+        public void livesChanged(int lives) {
+            updateLivesLabel(lives);
         }
 
-        /**
-         * Update the koya throughout the game, based on different events
-         */
-        private void moveKoya() {
-
-            long diffTime = System.nanoTime() - clickTime;
+        @Override
+        public void snoozeChanged(int secondsLeft) {
+            updateTimerLabel(secondsLeft);
+        }
 
-            long now = System.nanoTime();
-            float seconds = (now - hitTime) / 1000000000;
+        @Override
+        public void stateChanged(GameState from, GameState to) {
+            metrics.recordTransition(from, to);
+        }
 
-            boolean played = false;
+        @Override
+        public void effect(ParticleSystem.Effect effect, double x, double y) {
+            particles.emit(effect, x, y);
+        }
 
-            // koya gets into autopilot
-            if (GET_GOLDEN && seconds <= 6 && !HIT_CARROT && !HIT_PIPE) {
+        @Override
+        public void shiftBackground(long now) {
+            renderer.toggleBackground(now); // crossfade between day and night
+        }
 
-                if (seconds == 0 && !played) {
-                    played = true;
-                    DEF.AUDIO.get("snooze").play();
-                }
+        @Override
+        public void getReadyDone() {
+            DEF.GetReady.setText("");
+        }
 
-                int secondsLeft = 6 - (int) seconds;
-                DEF.TIMER_LABEL.setText(Integer.toString(secondsLeft) + " secs to go");
-                koya.setImage(DEF.IMAGE.get("koya")); // change the picture of koya
-                koya.setVelocity(0, -10);
+        @Override
+        public void lifeLost() {
+            resetGameScene(false);
+        }
 
-                if (seconds == 6) { // snooze mode ends
-                    GET_GOLDEN = false;
-                    DEF.TIMER_LABEL.setText("");
-                }
-            }
+        @Override
+        public void gameOver() {
+            DEF.GameOver.setText("GAME OVER");
+            // the timer keeps running until the flash and the particles are over
+            particles.flash(DEF.TRANSITION_TIME * DEF.TRANSITION_CYCLE);
+        }
+    }
 
-            // koya flies upward with animation
-            else if (CLICKED && diffTime <= DEF.KOYA_DROP_TIME && !HIT_CARROT
-                    && !HIT_PIPE) {
-                int imageIndex = Math.floorDiv(counter++, DEF.KOYA_IMG_PERIOD);
-                imageIndex = Math.floorMod(imageIndex, DEF.KOYA_IMG_LEN);
-                koya.setImage(
-                        DEF.IMAGE.get("koya" + String.valueOf(imageIndex)));
-                koya.setVelocity(0, DEF.KOYA_FLY_VEL);
-            }
+    /**
+     * This class is used to handle the timing of game events and updates. 
+     * It keeps track of the elapsed time since the start of the game and clears the current scene at 
+     * each frame
+     * @author Robin Tran, Jennifer Pham
+     */
+    class MyTimer extends AnimationTimer {
 
-            // koya bounces back when collides with pipes or carrots
-            else if (HIT_PIPE || HIT_CARROT) {
-                DEF.AUDIO.get("hit").play();
-                koya.setVelocity(-500, 500);
-            }
-            
-            // koya drops after a period of time without button click
-            else {
-                koya.setVelocity(0, DEF.KOYA_DROP_VEL);
-                CLICKED = false;
-            }
+        private boolean running;
 
-            // render koya on GUI
-            koya.update(elapsedTime * DEF.NANOSEC_TO_SEC);
-            koya.render(gc);
+        @Override
+        public void start() {
+            running = true;
+            pacer.restart();
+            super.start();
         }
-        
-        /**
-         * Update the avocados throughout the game
-         */
-        private void moveAvocado() {
-            Sprite avocado = avocados.get(0);
-            Sprite golden = avocados.get(1);
-
-            if (avocado.getPositionX() <= -DEF.AVOCADO_WIDTH
-                    && golden.getPositionX() <= -DEF.AVOCADO_WIDTH) {
-
-                // randomly assign avocados on bottom pipes
-                int pipeIndex = (int) (Math.random() * 2) + 2;
-                double nextX = pipes.get(pipeIndex).getPositionX();
-                double nextY = pipes.get(pipeIndex).getPositionY()
-                        - DEF.AVOCADO_HEIGHT;
-
-                // randomly choose green or golden avocados to put on pipes
-                int avocadoIndex = (int) Math.round(Math.random());
-                if (avocadoIndex == 0)
-                    avocado.setPositionXY(nextX, nextY);
-                else if (avocadoIndex == 1)
-                    golden.setPositionXY(nextX, nextY);
-            }
-            
-            avocado.update(DEF.SCENE_SHIFT_TIME);
-            avocado.render(gc);
-            golden.update(DEF.SCENE_SHIFT_TIME);
-            golden.render(gc);
-
-            // update the variables if koya gets the avocados
-            GET_AVOCADO = GET_AVOCADO || (HIT_PIPE == false
-                    && HIT_CARROT == false && koya.intersectsSprite(avocado));
-
-            if (koya.intersectsSprite(golden) && HIT_PIPE == false
-                    && HIT_CARROT == false) {
-                GET_GOLDEN = true;
-                avocados.get(1).setPositionXY(pipes.get(2).getPositionX(),
-                        1000);
-                hitTime = System.nanoTime();
-            }
+
+        @Override
+        public void stop() {
+            running = false;
+            super.stop();
         }
 
         /**
-         * Update the carrots throughout the game
+         * Check if the timer receives the animation pulses
+         * @return if the timer is started
          */
-        private void moveCarrot() {
-
-            Sprite carrot = carrots.get(0);
-
-            // get the difficulty level
-            String difficulty = difficultyMenu.getValue();
-
-            // randomly assigns carrots to drop down from upper pipes
-            if (carrot.getPositionX() <= -DEF.CARROT_WIDTH) {
-                double random = (Math.random());
-                double nextX = 0;
-                double nextY = 0;
-
-                // determine the probability of the carrots based on 
-                // the difficulty level
-                if (difficulty.equals("Easy")) {
-                    if (random > 0.7) {
-                        nextX = pipes.get(2).getPositionX();
-                        nextY = pipes.get(2).getPositionY() - 100;
-                        carrot.setPositionXY(nextX, nextY);
-                    } else if (random <= 0.7) {
-                        nextX = pipes.get(2).getPositionX();
-                        nextY = 1000;
-                        carrot.setPositionXY(nextX, nextY);
-                    }
-                } else if (difficulty.equals("Medium")) {
-                    if (random > 0.3) {
-                        nextX = pipes.get(2).getPositionX();
-                        nextY = pipes.get(2).getPositionY();
-                        carrot.setPositionXY(nextX, nextY);
-                    } else if (random <= 0.3) {
-                        nextX = pipes.get(2).getPositionX();
-                        nextY = 1000;
-                        carrot.setPositionXY(nextX, nextY);
-                    }
-                } else if (difficulty.equals("Difficult")) {
-                    if (random > 0.1) {
-                        nextX = pipes.get(2).getPositionX();
-                        nextY = 0;
-                        carrot.setPositionXY(nextX, nextY);
-                    } else if (random <= 0.1) {
-                        nextX = pipes.get(2).getPositionX();
-                        nextY = 1000;
-                        carrot.setPositionXY(nextX, nextY);
-                    }
-                }
-            }
-            
-            carrot.update(DEF.SCENE_SHIFT_TIME);
-            carrot.render(gc);
+        boolean isRunning() {
+            return running;
         }
 
+        @Override
         /**
-         * Checks if the Koya collides with any pipes in the game,
-         * and update lives and scores accordingly
+         * Handles the game animation by updating the elapsed time, clearing the current scene, 
+         * and executing the game logic while the game is in progress
+         * @param now the current time
          */
-        private void checkCollisionWithPipe() {
-            // check pipe collision
-            if (koya.intersectsSprite(pipes.get(0))
-                    || koya.intersectsSprite(pipes.get(1))
-                    || koya.intersectsSprite(pipes.get(2))
-                    || koya.intersectsSprite(pipes.get(3))) {
+        public void handle(long now) {
 
-                HIT_PIPE = true;
+            // under the frame-rate cap the pulses that come too early are skipped,
+            // the next tick covers their time
+            if (!pacer.isDue(now)) {
+                return;
+            }
 
-                for (Sprite pipe : pipes) {
-                    pipe.setVelocity(0, 0);
-                }
+            long tickStart = System.nanoTime();
+            if (allocations != null) {
+                allocations.begin();
+            }
 
-                for (Sprite floor : floors) {
-                    floor.setVelocity(0, 0);
-                }
+            // the phases are only timed while a flight recording takes the tick events
+            GameEvents.Tick tickEvent = null;
+            if (GameEvents.TICK.isEnabled()) {
+                tickEvent = new GameEvents.Tick();
+                tickEvent.begin();
+            }
 
-                for (Sprite carrot : carrots) {
-                    carrot.setVelocity(0, 0);
-                }
+            // time keeping, the clock is sampled once and the whole tick uses game time
+            long gameTime = clock.tick(now);
 
-                for (Sprite avocado : avocados) {
-                    avocado.setVelocity(0, 0);
+            // apply the input events that happened before this tick, one by one
+            while (input.hasEventBefore(now)) {
+                if (session != null) {
+                    sessionFlap = true;
+                } else {
+                    world.click(clock.toGameTime(input.peekTime()));
                 }
+                appliedInputs[appliedCount++] = input.peekTime();
+                input.remove();
             }
-            
-            // update lives
-            if (HIT_PIPE && koya.getPositionX() < -DEF.KOYA_WIDTH) {
-                LIVES_COUNTER--;
-                updateLivesLabel(LIVES_COUNTER);
-                GAME_OVER = GAME_OVER || LIVES_COUNTER == 0; // game over if there is no live left
-                if (!GAME_OVER) {
-                    timer.stop();
-                    resetGameScene(false);
+            long inputEnd = tickEvent == null ? 0 : System.nanoTime();
+            long stepEnd = inputEnd;
+            long renderEnd = inputEnd;
+
+            if ((world.isStarted() || session != null) && !clock.isPaused()) {
+
+                // start a new frame of sprites, the background and floor
+                // layers only change when they move
+                renderer.beginSprites();
+
+                // step1-5: move the game objects, check collisions and update the score
+                if (session != null) {
+                    advanceSession();
+                } else {
+                    world.setDifficulty(difficultyMenu.getValue());
+                    world.setTimeScale(clock.getScale());
+                    world.step(clock.getElapsed(), gameTime);
                 }
-            }
-        }
-
-        /**
-         * Checks if the Koya collides with any carrots in the game,
-         * and update GAME OVER accordingly
-         */
-        private void checkCollisionWithCarrot() {
-            // check carrot collision
-            if (koya.intersectsSprite(carrots.get(0))) {
-
-                HIT_CARROT = true;
-
-                for (Sprite pipe : pipes) {
-                    pipe.setVelocity(0, 0);
-                }
-
-                for (Sprite floor : floors) {
-                    floor.setVelocity(0, 0);
+                if (tickEvent != null) {
+                    stepEnd = System.nanoTime();
                 }
 
-                for (Sprite carrot : carrots) {
-                    carrot.setVelocity(0, 0);
+                // step6: draw the game objects and the background, which the
+                // world shifts between day and night
+                renderer.renderFloor(world.getFloorOffset());
+                world.render(renderer);
+                renderer.renderBackground(gameTime);
+                if (tickEvent != null) {
+                    renderEnd = System.nanoTime();
                 }
 
-                for (Sprite avocado : avocados) {
-                    avocado.setVelocity(0, 0);
+                // step7: draw the effects over the game objects
+                particles.update(clock.getElapsed() * DEF.NANOSEC_TO_SEC);
+                if (particles.isActive()) {
+                    particles.render(renderer.getEffectsContext(), DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
                 }
+                renderer.endSprites();
             }
 
-            // if koya hits carrot, game is over
-            if (HIT_CARROT && koya.getPositionX() < -DEF.KOYA_WIDTH) {
-                GAME_OVER = true;
-                updateLivesLabel(0);
+            // the frame showing the effect of the inputs is ready to be displayed
+            long rendered = System.nanoTime();
+            for (int i = 0; i < appliedCount; i++) {
+                metrics.recordInputLatency(rendered - appliedInputs[i]);
             }
-        }
 
-        /**
-         * Checks if the Koya collides with any objects in the game,
-         * and update lives and scores accordingly
-         */
-        public void checkCollision() {
-
-            // check floor collision
-            if (!HIT_PIPE && !HIT_CARROT) {
-                for (Sprite floor : floors) {
-                    GAME_OVER = GAME_OVER || koya.intersectsSprite(floor);
-                }
+            metrics.recordEntities(world, DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+            metrics.recordTick(clock.getSourceElapsed(), System.nanoTime() - tickStart);
+
+            if (tickEvent != null) {
+                tickEvent.inputs = appliedCount;
+                tickEvent.input = inputEnd - tickStart;
+                tickEvent.step = stepEnd - inputEnd;
+                tickEvent.render = renderEnd - stepEnd;
+                tickEvent.effects = rendered - renderEnd;
+                tickEvent.interval = clock.getSourceElapsed();
+                tickEvent.state = world.getState().name();
+                tickEvent.score = world.getScore();
+                tickEvent.commit();
             }
+            appliedCount = 0;
 
-            checkCollisionWithCarrot();
-
-            checkCollisionWithPipe();
-
-            // end the game when koya hit floors or hit pipes more than 3 times
-            if (GAME_OVER) {
-
-                // update the audio, sign, and lives label
-                DEF.AUDIO.get("die").play();
-
-                DEF.GameOver.setText("GAME OVER");
-
-                if (LIVES_COUNTER == 0) {
-                    updateLivesLabel(LIVES_COUNTER);
+            if (allocations != null) {
+                allocations.end();
+                if (allocations.getCount() % DEF.DEBUG_REFRESH_TICKS == 0) {
+                    updateDebugLabel();
                 }
+            }
 
-                showHitEffect();
+            // hand the frame to the capture encoder, after the measurements so that
+            // the snapshot is not counted as game loop time
+            if (capture != null && world.isStarted() && !clock.isPaused()) {
+                capture.capture(gameScene);
+            }
 
-                // stop the game
-                for (Sprite floor : floors) {
-                    floor.setVelocity(0, 0);
-                }
-                for (Sprite pipe : pipes) {
-                    pipe.setVelocity(0, 0);
-                }
-                timer.stop();
+            // the timer idles until the next input when nothing moves: before the
+            // first click, while paused, and once the game is over and the effects
+            // are done, unless the other player can start a new game
+            if (session == null && (!world.isStarted() || clock.isPaused()
+                    || world.isGameOver() && !particles.isActive())) {
+                stop();
             }
         }
 
         /**
-         * Changes the background image of the game based on the elapsed time and predefined background shift time.
-         * If the elapsed time exceeds the background shift time, the background image is switched between day and night
+         * Run the ticks of the two-player session the game time of this frame
+         * covers. The session waits when the other player is too far behind, and
+         * the time it waits is not made up for by more than a few ticks at once
          */
-        private void changeBackground() {
-            long now = System.nanoTime();
-            float time = (now - backgroundShiftTime) / 1000000000;
-            if (time > DEF.BACKGROUND_SHIFT_TIME) {
-                if (background.getImage() == DEF.IMAGE.get("background")) {
-                    background.setImage(DEF.IMAGE.get("background-night"));
-                } else if (background.getImage() == DEF.IMAGE
-                        .get("background-night")) {
-                    background.setImage(DEF.IMAGE.get("background"));
+        private void advanceSession() {
+            sessionTime = Math.min(sessionTime + clock.getElapsed(),
+                    DEF.NETPLAY_MAX_ROLLBACK * DEF.NETPLAY_TICK);
+            try {
+                if (sessionTime < DEF.NETPLAY_TICK) {
+                    session.poll();
+                }
+                while (sessionTime >= DEF.NETPLAY_TICK && session.advance(sessionFlap)) {
+                    sessionTime -= DEF.NETPLAY_TICK;
+                    sessionFlap = false;
                 }
-                backgroundShiftTime = System.nanoTime();
+            } catch (IOException e) {
+                System.err.println("The two-player session stopped: " + e.getMessage());
+                stop();
             }
+            // a rollback can take back a game over
+            DEF.GameOver.setText(world.isGameOver() ? "GAME OVER" : "");
         }
-
-        /**
-         * Implement hit effect used when collision happens
-         */
-        private void showHitEffect() {
-            ParallelTransition parallelTransition = new ParallelTransition();
-            FadeTransition fadeTransition = new FadeTransition(
-                    Duration.seconds(DEF.TRANSITION_TIME), gameScene);
-            fadeTransition.setToValue(0);
-            fadeTransition.setCycleCount(DEF.TRANSITION_CYCLE);
-            fadeTransition.setAutoReverse(true);
-            parallelTransition.getChildren().add(fadeTransition);
-            parallelTransition.play();
-
-        }
-
     } // End of MyTimer class
 
 } // End of AngryFlappyBird Class
@@ -0,0 +1,330 @@
+package angryflappybird;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * The AudioMixer class plays the game sounds with a low, predictable latency. Each
+ * sound is decoded once to 16-bit PCM, and a dedicated thread mixes the voices that
+ * are playing into a small output buffer. The game thread only puts the sound to
+ * play in a lock-free queue, so triggering a sound never blocks or allocates. The
+ * output is a {@link SourceDataLine}, or any {@link Output}, such as
+ * {@link #nullOutput()} on machines without a sound device.
+ * Sounds are triggered from a single thread, the JavaFX application thread
+ * @author Robin Tran, Jennifer Pham
+ */
+public class AudioMixer {
+
+    /** The format of the mixed sound: 44.1 kHz, 16-bit signed, stereo, little-endian */
+    public static final AudioFormat FORMAT = new AudioFormat(44100, 16, 2, true, false);
+
+    private static final int CHANNELS = 2;
+    private static final int TRIGGER_QUEUE_SIZE = 64;
+
+    /**
+     * Where the mixed sound goes
+     */
+    public interface Output {
+        /**
+         * Write mixed sound, blocking until there is room for it
+         * @param data the samples in {@link #FORMAT}
+         * @param length the number of bytes to write
+         */
+        void write(byte[] data, int length);
+
+        /**
+         * Release the output
+         */
+        void close();
+    }
+
+    // decoded sounds, interleaved stereo samples
+    private final ArrayList<short[]> sounds = new ArrayList<>();
+    private final HashMap<String, Integer> soundIds = new HashMap<>();
+
+    // sounds to start, written by the game thread and read by the mixer thread
+    private final int[] triggers = new int[TRIGGER_QUEUE_SIZE];
+    private final AtomicLong triggerHead = new AtomicLong(); // next trigger to read
+    private final AtomicLong triggerTail = new AtomicLong(); // next trigger to write
+    private long droppedTriggers;
+
+    // voices playing, only used by the mixer thread
+    private final int[] voiceSound;
+    private final int[] voicePosition;
+    private int voices;
+    private volatile int voicesMixed; // voices playing after the last mixed buffer, for other threads
+    private final AtomicLong voicesStarted = new AtomicLong();
+
+    private final Output output;
+    private final int bufferFrames;
+    private final int[] accumulator;
+    private final byte[] buffer;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Construct a mixer
+     * @param output where the mixed sound goes
+     * @param bufferFrames the number of frames mixed at a time
+     * @param maxVoices the number of sounds that can play at the same time, the
+     * oldest one stops when another starts
+     */
+    public AudioMixer(Output output, int bufferFrames, int maxVoices) {
+        this.output = output;
+        this.bufferFrames = bufferFrames;
+        voiceSound = new int[maxVoices];
+        voicePosition = new int[maxVoices];
+        accumulator = new int[bufferFrames * CHANNELS];
+        buffer = new byte[bufferFrames * CHANNELS * 2];
+    }
+
+    /**
+     * Open a mixer on the default sound device. The line buffer holds the given
+     * time of sound and the mixer writes half of it at a time
+     * @param bufferMillis the size of the line buffer in milliseconds
+     * @param maxVoices the number of sounds that can play at the same time
+     * @return the mixer, not started yet
+     * @throws LineUnavailableException if there is no sound device or it is busy
+     */
+    public static AudioMixer open(int bufferMillis, int maxVoices)
+            throws LineUnavailableException {
+        int frames = Math.max(64, (int) (FORMAT.getFrameRate() * bufferMillis / 1000));
+        SourceDataLine line = AudioSystem.getSourceDataLine(FORMAT);
+        line.open(FORMAT, frames * FORMAT.getFrameSize());
+        line.start();
+        return new AudioMixer(new Output() {
+            @Override
+            public void write(byte[] data, int length) {
+                line.write(data, 0, length);
+            }
+
+            @Override
+            public void close() {
+                line.drain();
+                line.close();
+            }
+        }, frames / 2, maxVoices);
+    }
+
+    /**
+     * Get an output that throws the sound away at the pace it would be played
+     * @return the output
+     */
+    public static Output nullOutput() {
+        return new Output() {
+            @Override
+            public void write(byte[] data, int length) {
+                long frames = length / FORMAT.getFrameSize();
+                LockSupport.parkNanos((long) (frames * 1e9 / FORMAT.getFrameRate()));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Decode a sound file and add it to the sounds the mixer can play. The file
+     * can be in any format the installed audio file readers support; WAV and AIFF
+     * always are, MP3 needs an MP3 reader on the class path. Sounds are loaded
+     * before the mixer is started
+     * @param name the name the sound is played by
+     * @param url the sound file
+     * @return if the sound was decoded
+     */
+    public boolean load(String name, URL url) {
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(url)) {
+            AudioInputStream pcm = in;
+            AudioFormat source = in.getFormat();
+            if (source.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
+                    && source.getEncoding() != AudioFormat.Encoding.PCM_UNSIGNED) {
+                // compressed files are decoded to PCM at their own rate first
+                pcm = AudioSystem.getAudioInputStream(new AudioFormat(
+                        AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+                        source.getChannels(), source.getChannels() * 2,
+                        source.getSampleRate(), false), in);
+            }
+            byte[] bytes = AudioSystem.getAudioInputStream(FORMAT, pcm).readAllBytes();
+            short[] samples = new short[bytes.length / 2];
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+            add(name, samples);
+            return true;
+        } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Add a decoded sound to the sounds the mixer can play. Sounds are added
+     * before the mixer is started
+     * @param name the name the sound is played by
+     * @param samples interleaved stereo samples in {@link #FORMAT}
+     */
+    public void add(String name, short[] samples) {
+        soundIds.put(name, sounds.size());
+        sounds.add(samples);
+    }
+
+    /**
+     * Start playing a sound. The sound starts with the next mixed buffer
+     * @param name the name of the sound
+     * @return if the sound was queued, false if it is not loaded or too many
+     * sounds are waiting to start
+     */
+    public boolean play(String name) {
+        Integer id = soundIds.get(name);
+        if (id == null) {
+            return false;
+        }
+        long tail = triggerTail.get();
+        if (tail - triggerHead.get() == triggers.length) {
+            droppedTriggers++;
+            return false;
+        }
+        triggers[(int) (tail % triggers.length)] = id;
+        triggerTail.lazySet(tail + 1); // publishes the trigger to the mixer thread
+        return true;
+    }
+
+    /**
+     * Start the mixer thread
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(() -> {
+            while (running) {
+                mix(buffer, bufferFrames);
+                output.write(buffer, bufferFrames * FORMAT.getFrameSize());
+            }
+        }, "audio-mixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stop the mixer thread and release the output
+     * @throws InterruptedException if interrupted while waiting for the thread
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join();
+        }
+        output.close();
+    }
+
+    /**
+     * Start the queued sounds and mix the voices playing into a buffer. This is
+     * what the mixer thread does before every write
+     * @param out receives the samples in {@link #FORMAT}
+     * @param frames the number of frames to mix
+     */
+    void mix(byte[] out, int frames) {
+        startQueuedVoices();
+
+        int samples = frames * CHANNELS;
+        for (int i = 0; i < samples; i++) {
+            accumulator[i] = 0;
+        }
+        for (int v = 0; v < voices; v++) {
+            short[] sound = sounds.get(voiceSound[v]);
+            int position = voicePosition[v];
+            int count = Math.min(samples, sound.length - position);
+            for (int i = 0; i < count; i++) {
+                accumulator[i] += sound[position + i];
+            }
+            voicePosition[v] = position + count;
+        }
+
+        // remove the voices that ended
+        for (int v = voices - 1; v >= 0; v--) {
+            if (voicePosition[v] >= sounds.get(voiceSound[v]).length) {
+                voices--;
+                voiceSound[v] = voiceSound[voices];
+                voicePosition[v] = voicePosition[voices];
+            }
+        }
+
+        for (int i = 0; i < samples; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, accumulator[i]));
+            out[i * 2] = (byte) sample;
+            out[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        voicesMixed = voices;
+    }
+
+    /**
+     * Turn the queued triggers into voices, replacing the oldest voice when all
+     * voices are playing
+     */
+    private void startQueuedVoices() {
+        long head = triggerHead.get();
+        long tail = triggerTail.get();
+        for (; head < tail; head++) {
+            int id = triggers[(int) (head % triggers.length)];
+            if (voices == voiceSound.length) {
+                int oldest = 0;
+                for (int v = 1; v < voices; v++) {
+                    if (voicePosition[v] > voicePosition[oldest]) {
+                        oldest = v;
+                    }
+                }
+                voices--;
+                voiceSound[oldest] = voiceSound[voices];
+                voicePosition[oldest] = voicePosition[voices];
+            }
+            voiceSound[voices] = id;
+            voicePosition[voices] = 0;
+            voices++;
+            voicesStarted.incrementAndGet();
+        }
+        triggerHead.lazySet(head); // gives the slots back to the game thread
+    }
+
+    /**
+     * Get the number of voices playing, as of the last mixed buffer
+     * @return the number of voices
+     */
+    public int getVoices() {
+        return voicesMixed;
+    }
+
+    /**
+     * Get the number of sounds started
+     * @return the number of voices started
+     */
+    public long getVoicesStarted() {
+        return voicesStarted.get();
+    }
+
+    /**
+     * Get the number of sounds not played because the queue was full
+     * @return the number of dropped triggers
+     */
+    public long getDroppedTriggers() {
+        return droppedTriggers;
+    }
+
+    /**
+     * Get the latency added by the mixer buffer
+     * @return the duration of one mixed buffer in milliseconds
+     */
+    public double getBufferMillis() {
+        return bufferFrames * 1000.0 / FORMAT.getFrameRate();
+    }
+}
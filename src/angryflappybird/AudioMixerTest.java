@@ -0,0 +1,95 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class AudioMixerTest {
+
+    private static final int FRAMES = 4;
+
+    private AudioMixer mixer;
+    private byte[] out;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        // the mixer is not started, the buffers are mixed by the test
+        mixer = new AudioMixer(AudioMixer.nullOutput(), FRAMES, 2);
+        mixer.add("a", new short[] {100, 100, 200, 200});
+        mixer.add("b", new short[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        mixer.add("loud", new short[] {30000, -30000});
+        out = new byte[FRAMES * 4];
+    }
+
+    /**
+     * Get a sample of the mixed buffer
+     */
+    private int sample(int index) {
+        return (short) ((out[index * 2] & 0xFF) | (out[index * 2 + 1] << 8));
+    }
+
+    /**
+     * Test that the voices are added together and removed when they end
+     */
+    @Test
+    void testMix() {
+        assertTrue(mixer.play("a"));
+        assertTrue(mixer.play("b"));
+        mixer.mix(out, FRAMES);
+        assertEquals(101, sample(0));
+        assertEquals(203, sample(2));
+        assertEquals(5, sample(4)); // a has ended
+        assertEquals(8, sample(7));
+        assertEquals(1, mixer.getVoices());
+
+        mixer.mix(out, FRAMES);
+        assertEquals(9, sample(0));
+        assertEquals(0, sample(2));
+        assertEquals(0, mixer.getVoices());
+        assertEquals(2, mixer.getVoicesStarted());
+    }
+
+    /**
+     * Test that the mix is clamped to the 16-bit range
+     */
+    @Test
+    void testClamp() {
+        mixer.play("loud");
+        mixer.play("loud");
+        mixer.mix(out, FRAMES);
+        assertEquals(Short.MAX_VALUE, sample(0));
+        assertEquals(Short.MIN_VALUE, sample(1));
+    }
+
+    /**
+     * Test that unknown sounds are refused and that the oldest voice stops when
+     * too many sounds play
+     */
+    @Test
+    void testTriggers() {
+        assertFalse(mixer.play("missing"));
+        mixer.play("b");
+        mixer.mix(out, 1);
+        mixer.play("a");
+        mixer.play("a");
+        mixer.mix(out, 1);
+        assertEquals(2, mixer.getVoices());
+        assertEquals(200, sample(0)); // b was replaced
+        for (int i = 0; i < 64; i++) {
+            assertTrue(mixer.play("a"));
+        }
+        assertFalse(mixer.play("a"));
+        assertEquals(1, mixer.getDroppedTriggers());
+    }
+}
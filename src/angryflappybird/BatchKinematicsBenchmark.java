@@ -0,0 +1,68 @@
+package angryflappybird;
+
+import java.util.Random;
+
+/**
+ * Compares the batch integrator with updating one Sprite at a time, for 10, 1k and
+ * 100k entities. Run it as a Java application, the results are printed in
+ * nanoseconds per entity and step
+ * @author Robin Tran, Jennifer Pham
+ */
+public class BatchKinematicsBenchmark {
+
+    private static final int[] SIZES = {10, 1000, 100000};
+    private static final long STEPS_PER_SIZE = 20000000; // entity steps timed for each size
+    private static final double TIME = 5;
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %14s %14s%n", "entities", "sprite ns/op", "batch ns/op");
+        for (int size : SIZES) {
+            Random random = new Random(size);
+            Sprite[] sprites = new Sprite[size];
+            BatchKinematics batch = new BatchKinematics(size);
+            for (int i = 0; i < size; i++) {
+                double x = random.nextDouble() * 400;
+                double y = random.nextDouble() * 570;
+                double vx = -0.4;
+                double vy = random.nextDouble() - 0.5;
+                sprites[i] = new Sprite(x, y, 1, 1);
+                sprites[i].setVelocity(vx, vy);
+                batch.add(x, y, vx, vy);
+            }
+            int steps = (int) Math.max(1, STEPS_PER_SIZE / size);
+
+            // warm up both, then time them
+            runSprites(sprites, steps);
+            runBatch(batch, steps);
+            double spriteNs = runSprites(sprites, steps) / ((double) steps * size);
+            double batchNs = runBatch(batch, steps) / ((double) steps * size);
+            System.out.printf("%10d %14.3f %14.3f%n", size, spriteNs, batchNs);
+
+            // both must have computed the same positions
+            for (int i = 0; i < size; i++) {
+                if (sprites[i].getPositionX() != batch.getPositionX(i)
+                        || sprites[i].getPositionY() != batch.getPositionY(i)) {
+                    throw new IllegalStateException("results differ at entity " + i);
+                }
+            }
+        }
+    }
+
+    private static long runSprites(Sprite[] sprites, int steps) {
+        long start = System.nanoTime();
+        for (int s = 0; s < steps; s++) {
+            for (Sprite sprite : sprites) {
+                sprite.update(TIME);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runBatch(BatchKinematics batch, int steps) {
+        long start = System.nanoTime();
+        for (int s = 0; s < steps; s++) {
+            batch.update(TIME);
+        }
+        return System.nanoTime() - start;
+    }
+}
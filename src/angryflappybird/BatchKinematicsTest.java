@@ -0,0 +1,78 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class BatchKinematicsTest {
+
+    private BatchKinematics batch;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        batch = new BatchKinematics(3);
+    }
+
+    /**
+     * Test method update against Sprite.update, bit for bit
+     */
+    @Test
+    void testUpdateMatchesSprite() {
+        Random random = new Random(7);
+        int size = 1000;
+        BatchKinematics large = new BatchKinematics(size);
+        Sprite[] sprites = new Sprite[size];
+        for (int i = 0; i < size; i++) {
+            double x = random.nextDouble() * 400;
+            double y = random.nextDouble() * 570;
+            double vx = random.nextGaussian();
+            double vy = random.nextGaussian();
+            sprites[i] = new Sprite(x, y, 1, 1);
+            sprites[i].setVelocity(vx, vy);
+            large.add(x, y, vx, vy);
+        }
+        for (int step = 0; step < 100; step++) {
+            double time = step % 2 == 0 ? 5 : random.nextDouble() / 30;
+            large.update(time);
+            for (Sprite sprite : sprites) {
+                sprite.update(time);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            assertEquals(Double.doubleToRawLongBits(sprites[i].getPositionX()),
+                    Double.doubleToRawLongBits(large.getPositionX(i)));
+            assertEquals(Double.doubleToRawLongBits(sprites[i].getPositionY()),
+                    Double.doubleToRawLongBits(large.getPositionY(i)));
+        }
+    }
+
+    /**
+     * Test methods add and remove
+     */
+    @Test
+    void testAddRemove() {
+        assertEquals(0, batch.add(1, 1, 0, 0));
+        assertEquals(1, batch.add(2, 2, 0, 0));
+        assertEquals(2, batch.add(3, 3, 0, 0));
+        assertEquals(-1, batch.add(4, 4, 0, 0));
+
+        batch.remove(0);
+        assertEquals(2, batch.size());
+        assertEquals(3, batch.getPositionX(0), 0);
+        assertEquals(2, batch.getPositionX(1), 0);
+    }
+
+}
@@ -0,0 +1,163 @@
+package angryflappybird;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+
+/**
+ * The CollisionMask class holds the opaque pixels of an image as a packed bitset,
+ * one row of 64-bit words per image row. Two masks overlap when the AND of their
+ * overlapping rows is not zero, which makes pixel-perfect collision cheap enough
+ * to run on every frame
+ * @author Robin Tran, Jennifer Pham
+ */
+public class CollisionMask {
+
+    private final int width;
+    private final int height;
+    private final int words; // number of 64-bit words per row
+    private final long[] bits;
+
+    /**
+     * Construct a mask of the given size with no opaque pixel
+     * @param width the width of the mask in pixels
+     * @param height the height of the mask in pixels
+     */
+    public CollisionMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.words = (width + 63) >>> 6;
+        this.bits = new long[words * height];
+    }
+
+    /**
+     * Build the mask of an image from its alpha channel
+     * @param image the image
+     * @param alphaThreshold the alpha value from which a pixel counts as opaque
+     * @return the mask of the image, or null if its pixels cannot be read
+     */
+    public static CollisionMask fromImage(Image image, int alphaThreshold) {
+        PixelReader reader = image.getPixelReader();
+        if (reader == null) {
+            return null;
+        }
+        int w = (int) image.getWidth();
+        int h = (int) image.getHeight();
+        CollisionMask mask = new CollisionMask(w, h);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                if ((reader.getArgb(x, y) >>> 24) >= alphaThreshold) {
+                    mask.set(x, y);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Build a mask from ARGB pixels stored row by row
+     * @param argb the pixels
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param alphaThreshold the alpha value from which a pixel counts as opaque
+     * @return the mask of the pixels
+     */
+    public static CollisionMask fromArgb(int[] argb, int width, int height,
+            int alphaThreshold) {
+        CollisionMask mask = new CollisionMask(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((argb[y * width + x] >>> 24) >= alphaThreshold) {
+                    mask.set(x, y);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Mark a pixel as opaque
+     * @param x x coordinate of the pixel
+     * @param y y coordinate of the pixel
+     */
+    public void set(int x, int y) {
+        bits[y * words + (x >>> 6)] |= 1L << (x & 63);
+    }
+
+    /**
+     * Check if a pixel is opaque
+     * @param x x coordinate of the pixel
+     * @param y y coordinate of the pixel
+     * @return if the pixel is opaque
+     */
+    public boolean get(int x, int y) {
+        return (bits[y * words + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    /**
+     * Get the width of the mask
+     * @return the width of the mask in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the mask
+     * @return the height of the mask in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Check if this mask overlaps another mask placed at the given offset
+     * @param other the other mask
+     * @param dx x offset of the other mask relative to this mask
+     * @param dy y offset of the other mask relative to this mask
+     * @return if an opaque pixel of both masks falls on the same place
+     */
+    public boolean overlaps(CollisionMask other, int dx, int dy) {
+        int x0 = Math.max(0, dx);
+        int x1 = Math.min(width, dx + other.width);
+        int y0 = Math.max(0, dy);
+        int y1 = Math.min(height, dy + other.height);
+        if (x0 >= x1 || y0 >= y1) {
+            return false;
+        }
+
+        int firstWord = x0 >>> 6;
+        int lastWord = (x1 - 1) >>> 6;
+        for (int y = y0; y < y1; y++) {
+            int row = y * words;
+            int otherRow = (y - dy) * other.words;
+            for (int w = firstWord; w <= lastWord; w++) {
+                long mine = bits[row + w];
+                if (mine != 0
+                        && (mine & other.bitsAt(otherRow, (w << 6) - dx)) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read 64 bits of a row starting at any bit position. Bits outside the row read as zero
+     * @param row index of the first word of the row
+     * @param start the first bit, may be negative or past the end of the row
+     * @return the 64 bits starting at the given position
+     */
+    private long bitsAt(int row, int start) {
+        if (start <= -64 || start >= words << 6) {
+            return 0;
+        }
+        int index = start >> 6;
+        int offset = start & 63;
+        long low = index >= 0 ? bits[row + index] >>> offset : 0;
+        if (offset == 0) {
+            return low;
+        }
+        long high = index + 1 < words ? bits[row + index + 1] << (64 - offset) : 0;
+        return low | high;
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class CollisionMaskTest {
+
+    private static final int OPAQUE = 0xFF000000;
+
+    private CollisionMask dot;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        // a 100x100 image that is transparent except for a 10x10 square in the middle
+        int[] argb = new int[100 * 100];
+        for (int y = 45; y < 55; y++) {
+            for (int x = 45; x < 55; x++) {
+                argb[y * 100 + x] = OPAQUE;
+            }
+        }
+        dot = CollisionMask.fromArgb(argb, 100, 100, 128);
+    }
+
+    /**
+     * Test method fromArgb
+     */
+    @Test
+    void testFromArgb() {
+        assertEquals(100, dot.getWidth());
+        assertEquals(100, dot.getHeight());
+        assertTrue(dot.get(45, 45));
+        assertTrue(dot.get(54, 54));
+        assertFalse(dot.get(44, 45));
+        assertFalse(dot.get(0, 0));
+    }
+
+    /**
+     * Test method overlaps
+     */
+    @Test
+    void testOverlaps() {
+        assertTrue(dot.overlaps(dot, 0, 0));
+        assertTrue(dot.overlaps(dot, 9, -9));
+        assertTrue(dot.overlaps(dot, -9, 9));
+
+        // the boundaries intersect but the opaque squares do not
+        assertFalse(dot.overlaps(dot, 10, 0));
+        assertFalse(dot.overlaps(dot, -10, 0));
+        assertFalse(dot.overlaps(dot, 0, 10));
+        assertFalse(dot.overlaps(dot, 60, 60));
+
+        // the boundaries do not intersect
+        assertFalse(dot.overlaps(dot, 100, 0));
+    }
+
+    /**
+     * Test method overlaps across word boundaries
+     */
+    @Test
+    void testOverlapsAcrossWords() {
+        CollisionMask wide = new CollisionMask(200, 1);
+        wide.set(130, 0);
+        CollisionMask single = new CollisionMask(1, 1);
+        single.set(0, 0);
+
+        assertTrue(wide.overlaps(single, 130, 0));
+        assertFalse(wide.overlaps(single, 129, 0));
+        assertTrue(single.overlaps(wide, -130, 0));
+        assertFalse(single.overlaps(wide, -131, 0));
+    }
+
+    /**
+     * Test method intersectsSprite with and without masks
+     */
+    @Test
+    void testIntersectsSprite() {
+        Sprite a = new Sprite(0, 0, 100, 100);
+        Sprite b = new Sprite(80, 0, 100, 100);
+        assertTrue(a.intersectsSprite(b));
+
+        a.setMask(dot);
+        b.setMask(dot);
+        assertFalse(a.intersectsSprite(b));
+
+        b.setPositionXY(5, 5);
+        assertTrue(a.intersectsSprite(b));
+
+        b.setPositionXY(200, 0);
+        assertFalse(a.intersectsSprite(b));
+    }
+
+}
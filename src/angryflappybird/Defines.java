@@ -4,7 +4,6 @@ import java.util.HashMap;
 
 import javafx.scene.control.Button;
 import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.media.AudioClip;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
@@ -25,6 +24,9 @@ public class Defines {
     final int APP_WIDTH = 600;
     final int SCENE_HEIGHT = 570;
     final int SCENE_WIDTH = 400;
+    final boolean RESIZABLE = Boolean.getBoolean("angryflappybird.resizable"); // scale the window to any size
+    final boolean FULLSCREEN = Boolean.getBoolean("angryflappybird.fullscreen"); // scale the window to the whole screen
+    final double SCALE_STEP = 0.25;	// the window scale is a multiple of it, the images are decoded once per scale
 
     // coefficients related to the koya
     final int KOYA_WIDTH = 80;
@@ -36,6 +38,7 @@ public class Defines {
     final int KOYA_FLY_VEL = -40;
     final int KOYA_IMG_LEN = 4;
     final int KOYA_IMG_PERIOD = 5;
+    final int POPULATION_DRAWN = 16;	// the best koyas drawn in population mode
     
     // coefficients related to the floors
     final int FLOOR_WIDTH = 400;
@@ -71,6 +74,17 @@ public class Defines {
     final int TIMER_POS_X = 10;
     final int TIMER_POS_Y = 100;
 
+    // coefficients related to diagnostics display
+    final boolean DIAGNOSTICS = Boolean.getBoolean("angryflappybird.diagnostics");
+    final int DEBUG_POS_X = 10;
+    final int DEBUG_POS_Y = 545;
+    final int DEBUG_REFRESH_TICKS = 30;	// number of ticks between two updates of the display
+
+    // coefficients related to frame capture
+    final String CAPTURE_FORMAT = System.getProperty("angryflappybird.capture", ""); // "png", "raw" or "" for no capture
+    final String CAPTURE_DIR = System.getProperty("angryflappybird.capture.dir", "capture");
+    final int CAPTURE_POOL_SIZE = 8;	// number of frames that can wait for the encoder
+
     // coefficients related to GetReady and GameOver sign
     final int SIGN_POS_X = 105;
     final int SIGN_POS_Y = 280;
@@ -79,25 +93,67 @@ public class Defines {
     final int SCENE_SHIFT_TIME = 5;
     final double SCENE_SHIFT_INCR = -0.4;
     final double NANOSEC_TO_SEC = 1.0 / 1000000000.0;
+    final long SEC_TO_NANOSEC = 1000000000L;
+    final double TIME_SCALE = Double.parseDouble(System.getProperty("angryflappybird.timeScale", "1")); // game speed, 1 for real time
+    final boolean FIXED_POINT = Boolean.getBoolean("angryflappybird.fixedPoint"); // move and collide with integer arithmetic
     final double TRANSITION_TIME = 0.1;
     final int TRANSITION_CYCLE = 2;
     final int BACKGROUND_SHIFT_TIME = 10;
+    final int SNOOZE_TIME = 6;	// seconds of autopilot after a golden avocado
+    final int TIMER_SLOTS = 256;	// slots of the timing wheels, a power of two
+    final int TIMER_CAPACITY = 16;	// the largest number of events scheduled on a timing wheel
+    final long TIMER_RESOLUTION = 16666667;	// game nanoseconds covered by a slot, one frame at 60 fps
+    final double SCROLL_RESOLUTION = 2;	// pixels covered by a slot, one frame at normal speed
+    final double BACKGROUND_FADE_TIME = 1.0;	// duration of the day and night crossfade in seconds
+    final int BACKGROUND_FADE_FRAMES = 8;	// number of pre-blended crossfade frames
+    final int MAX_FPS = Integer.getInteger("angryflappybird.maxFps", 0); // ticks per second at most, 0 for one tick per animation pulse
+    final long FRAME_CAP_TOLERANCE = 2000000;	// nanoseconds a pulse may come early and still run a tick under the cap
+
+    // coefficients related to input
+    final int INPUT_QUEUE_SIZE = 64;	// the largest number of press events waiting for a tick
+
+    // coefficients related to the two-player mode
+    final int NETPLAY_PLAYER = Integer.getInteger("angryflappybird.netplay.player", -1); // 0 or 1 to play against another machine, -1 to play alone
+    final int NETPLAY_PORT = Integer.getInteger("angryflappybird.netplay.port", 7000); // local UDP port
+    final String NETPLAY_PEER = System.getProperty("angryflappybird.netplay.peer", "127.0.0.1:7001"); // host:port of the other player
+    final long NETPLAY_SEED = Long.getLong("angryflappybird.netplay.seed", 1); // seed of the world, the same on both machines
+    final double NETPLAY_LATENCY = Double.parseDouble(System.getProperty("angryflappybird.netplay.latency", "0")); // milliseconds added to every packet
+    final double NETPLAY_JITTER = Double.parseDouble(System.getProperty("angryflappybird.netplay.jitter", "0")); // largest random milliseconds added on top
+    final double NETPLAY_LOSS = Double.parseDouble(System.getProperty("angryflappybird.netplay.loss", "0")); // probability that a packet is lost
+    final long NETPLAY_TICK = 16666667;	// game nanoseconds of a tick, the same on both machines
+    final int NETPLAY_MAX_ROLLBACK = 8;	// the most ticks run ahead of the inputs of the other player
+
+    // coefficients related to the agent mode
+    final long AGENT_TICK = 16666667;	// game nanoseconds of a step, one frame at 60 fps
+    final int AGENT_ENVS = 64;	// games of a batch unless another number is asked for
+
+    // coefficients related to effects
+    final int PARTICLE_CAPACITY = 512;	// the largest number of particles on the screen
+
+    // coefficients related to collision
+    final int COLLISION_ALPHA = 128;	// the alpha value from which a pixel can collide
 
     // coefficients related to media display
     final String STAGE_TITLE = "Angry Flappy Bird";
 	private final String IMAGE_DIR = "../resources/images/";
     final String[] IMAGE_FILES = {"background","koya0", "koya1", "koya2", "koya3", 
             "pipe0", "pipe1", "floor", "avocado", "yellowavocado", "carrot", "background-night", "koya"};
+    final long IMAGE_CACHE_BUDGET = Long.getLong("angryflappybird.imageCache.pixels", 1000000); // pixels of images kept when unused
+    final String RENDERER = System.getProperty("angryflappybird.renderer", "canvas"); // "canvas" to paint layers, "retained" to move scene graph nodes
+    final int RETAINED_VIEWS = 32;	// sprite views the retained renderer creates up front
 
     // coefficients related to sounds
     private final String AUDIO_DIR = "../resources/sound/";
     final String[] AUDIO_FILES = {"die", "hit", "point", "snooze"};
+    final boolean AUDIO_MIXER = Boolean.getBoolean("angryflappybird.audio.mixer"); // play the sounds through AudioMixer
+    final int AUDIO_BUFFER_MS = Integer.getInteger("angryflappybird.audio.bufferMs", 20); // size of the sound device buffer
+    final int AUDIO_VOICES = 8;	// number of sounds the mixer plays at the same time
 
-    final HashMap<String, ImageView> IMVIEW = new HashMap<String, ImageView>();
-    final HashMap<String, Image> IMAGE = new HashMap<String, Image>();
+    final ImageCache IMAGES;	// decoded images by name and size, null without media
     final HashMap<String,AudioClip> AUDIO = new HashMap<String,AudioClip>();
     final Text SCORE_LABEL = new Text("0");
     final Text TIMER_LABEL = new Text("");
+    final Text DEBUG_LABEL = new Text("");
     final Text LIVES_LABEL = new Text("3 lives left");
     final Text GetReady = new Text("GET READY");
     final Text GameOver = new Text("");
@@ -112,46 +168,45 @@ public class Defines {
      * Constructor
      */
     Defines() {
+        this(true);
+    }
+
+    /**
+     * Constructor
+     * @param loadMedia whether to load the images, sounds and scene nodes. Without
+     * media only the constants are available, which lets the game run without a display
+     */
+    Defines(boolean loadMedia) {
+        this(loadMedia, loadMedia);
+    }
+
+    /**
+     * Constructor
+     * @param loadMedia whether to load the images and scene nodes
+     * @param loadAudio whether to load the sounds, which is not possible on
+     * machines without a sound device
+     */
+    Defines(boolean loadMedia, boolean loadAudio) {
 
         //initialize audio 
-        for(int i=0; i<AUDIO_FILES.length; i++) {
+        for(int i=0; loadAudio && i<AUDIO_FILES.length; i++) {
+            GameEvents.AssetLoad event = new GameEvents.AssetLoad();
+            event.begin();
             AudioClip Sound;
             Sound = new AudioClip(pathAudio(AUDIO_FILES[i]));
             AUDIO.put(AUDIO_FILES[i],Sound);
+            event.name = AUDIO_FILES[i];
+            event.kind = "audio";
+            event.commit();
         }
 
-        // initialize images
-        for(int i=0; i<IMAGE_FILES.length; i++) {
-            Image img;
-            if (i == 12) {
-                img = new Image(pathImage(IMAGE_FILES[i]), KOYA_WIDTH+50, KOYA_HEIGHT+5, false, false);
-            }
-            else if (i == 10) {
-                img = new Image(pathImage(IMAGE_FILES[i]), CARROT_WIDTH, CARROT_HEIGHT, false, false);
-            }
-            else if (i == 8 || i == 9) {
-                img = new Image(pathImage(IMAGE_FILES[i]), AVOCADO_WIDTH, AVOCADO_HEIGHT, false, false);
-            }
-            else if (i == 7) {
-                img = new Image(pathImage(IMAGE_FILES[i]), FLOOR_WIDTH, FLOOR_HEIGHT, false, false);
-            }
-            else if (i == 5 || i == 6) {
-                img = new Image(pathImage(IMAGE_FILES[i]), PIPE_WIDTH, PIPE_HEIGHT, false, false);
-            }
-            else if (i == 1 || i == 2 || i == 3 || i == 4){
-                img = new Image(pathImage(IMAGE_FILES[i]), KOYA_WIDTH, KOYA_HEIGHT, false, false);
-            }
-            else {
-                img = new Image(pathImage(IMAGE_FILES[i]), SCENE_WIDTH, SCENE_HEIGHT, false, false);
-            }
-            IMAGE.put(IMAGE_FILES[i],img);
+        if (!loadMedia) {
+            IMAGES = null;
+            return;
         }
 
-        // initialize image views
-        for(int i=0; i<IMAGE_FILES.length; i++) {
-            ImageView imgView = new ImageView(IMAGE.get(IMAGE_FILES[i]));
-            IMVIEW.put(IMAGE_FILES[i],imgView);
-        }
+        // images are loaded when first used, at the size they are shown at
+        IMAGES = new ImageCache(this::loadImage, IMAGE_CACHE_BUDGET, COLLISION_ALPHA);
 
         // initialize scene nodes
         startButton = new Button("Go"); // start button
@@ -180,6 +235,12 @@ public class Defines {
         TIMER_LABEL.setLayoutX(TIMER_POS_X);
         TIMER_LABEL.setLayoutY(TIMER_POS_Y);
 
+        // diagnostics display
+        DEBUG_LABEL.setFont(Font.font ("Verdana", 12));
+        DEBUG_LABEL.setFill(Color.WHITE);
+        DEBUG_LABEL.setLayoutX(DEBUG_POS_X);
+        DEBUG_LABEL.setLayoutY(DEBUG_POS_Y);
+
         // GetReady and GameOver signs display
         GetReady.setFont(Font.font ("Verdana", FontWeight.BOLD, 30)); 
         GetReady.setFill(Color.WHITE);
@@ -197,6 +258,27 @@ public class Defines {
     }
 
 
+    /**
+     * Decode an image resource at the size it is shown at, this is how the image
+     * cache loads the images that are not cached
+     * @param name the image name
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the image
+     */
+    private Image loadImage(String name, int width, int height) {
+        GameEvents.AssetLoad event = new GameEvents.AssetLoad();
+        event.begin();
+        Image image = new Image(pathImage(name), width, height, false, false);
+        event.name = name;
+        event.kind = "image";
+        event.width = width;
+        event.height = height;
+        event.bytes = 4L * width * height;
+        event.commit();
+        return image;
+    }
+
     /**
      * Path to image resources
      * @param filepath
@@ -207,18 +289,6 @@ public class Defines {
         return fullpath;
     }
 
-    /**
-     * Method to resize images
-     * @param filepath
-     * @param width
-     * @param height
-     * @return new image
-     */
-    public Image resizeImage(String filepath, int width, int height) {
-        IMAGE.put(filepath, new Image(pathImage(filepath), width, height, false, false));
-        return IMAGE.get(filepath);
-    }
-
     /**
      * Path to sound resources
      * @param filepath
@@ -0,0 +1,82 @@
+package angryflappybird;
+
+/**
+ * The FixedPoint class holds the arithmetic of the fixed-point physics mode. A value
+ * is a long counting 1/65536 of a pixel, or of a second, so the motion of the game
+ * is made of integer additions, multiplications and shifts, which give the same
+ * bits on every JVM and CPU. Every fixed-point value is also exactly a double, as
+ * long as it is under 2^37 pixels, so the sprites keep their double coordinates and
+ * only the arithmetic changes: a coordinate on the grid of the fixed-point values
+ * converts back and forth without rounding, and the sums and comparisons of the
+ * collision tests are exact on it
+ * @author Robin Tran, Jennifer Pham
+ */
+public final class FixedPoint {
+
+    /** The number of fraction bits */
+    public static final int SHIFT = 16;
+    /** The fixed-point value of 1 */
+    public static final long ONE = 1L << SHIFT;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Convert a double to the nearest fixed-point value
+     * @param value the double
+     * @return the fixed-point value
+     */
+    public static long of(double value) {
+        return Math.round(value * ONE);
+    }
+
+    /**
+     * Convert a fixed-point value to a double, which is exact
+     * @param value the fixed-point value
+     * @return the double
+     */
+    public static double toDouble(long value) {
+        return value / (double) ONE;
+    }
+
+    /**
+     * Round a double to the grid of the fixed-point values
+     * @param value the double
+     * @return the nearest double that is a fixed-point value
+     */
+    public static double snap(double value) {
+        return toDouble(of(value));
+    }
+
+    /**
+     * Multiply two fixed-point values, rounding toward negative infinity
+     * @param a the first value
+     * @param b the second value
+     * @return the product
+     */
+    public static long mul(long a, long b) {
+        return (a * b) >> SHIFT;
+    }
+
+    /**
+     * Divide two fixed-point values, rounding toward negative infinity
+     * @param a the dividend
+     * @param b the divisor, not 0
+     * @return the quotient
+     */
+    public static long div(long a, long b) {
+        return Math.floorDiv(a << SHIFT, b);
+    }
+
+    /**
+     * Convert a duration in nanoseconds to fixed-point seconds with integer
+     * arithmetic only
+     * @param nanos the duration in nanoseconds, under 2^47
+     * @return the duration in seconds
+     */
+    public static long ofNanos(long nanos) {
+        return Math.floorDiv(nanos << SHIFT, NANOS_PER_SECOND);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class FixedPointTest {
+
+    private static final long FRAME_TIME = 16666667; // nanoseconds per frame at 60 fps
+    private static final long CHECKSUM = -2192023540773983078L; // of testWorldIsReproducible on any JVM
+
+    private Defines DEF;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        DEF = new Defines(false);
+    }
+
+    /**
+     * Test the conversions and the arithmetic
+     */
+    @Test
+    void testArithmetic() {
+        assertEquals(FixedPoint.ONE, FixedPoint.of(1));
+        assertEquals(-26214, FixedPoint.of(-0.4));
+        assertEquals(1.5, FixedPoint.toDouble(FixedPoint.of(1.5)));
+        assertEquals(FixedPoint.of(-2), FixedPoint.mul(FixedPoint.of(-0.5), FixedPoint.of(4)));
+        assertEquals(FixedPoint.of(0.25), FixedPoint.div(FixedPoint.of(1), FixedPoint.of(4)));
+        assertEquals(FixedPoint.ONE, FixedPoint.ofNanos(1000000000L));
+        assertEquals(1092, FixedPoint.ofNanos(FRAME_TIME));
+
+        // rounding toward negative infinity, whatever the sign
+        assertEquals(-1, FixedPoint.mul(-1, 1));
+        assertEquals(0, FixedPoint.mul(1, 1));
+    }
+
+    /**
+     * Test that scrolling by -0.4 in slow motion moves a sprite by the same number of
+     * fixed-point units on every step, where doubles drift
+     */
+    @Test
+    void testScrollDoesNotDrift() {
+        double time = DEF.SCENE_SHIFT_TIME * 0.3; // the shift time at a time scale of 0.3
+        Sprite fixed = new Sprite(400, 0, 10, 10);
+        fixed.setFixedPoint(true);
+        fixed.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
+        long step = FixedPoint.mul(FixedPoint.of(DEF.SCENE_SHIFT_INCR), FixedPoint.of(time));
+
+        Sprite drifting = new Sprite(400, 0, 10, 10);
+        drifting.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
+
+        for (int i = 1; i <= 1000; i++) {
+            fixed.update(time);
+            drifting.update(time);
+            assertEquals(FixedPoint.of(400) + i * step, FixedPoint.of(fixed.getPositionX()));
+            assertEquals(fixed.getPositionX(), FixedPoint.snap(fixed.getPositionX()));
+        }
+        // 1000 steps of -0.6 pixels do not add up to -600 in doubles
+        assertTrue(drifting.getPositionX() != -200, drifting.getPositionX() + "");
+    }
+
+    /**
+     * Test that two fixed-point worlds given the same seed and clicks end up with
+     * the same bits, that every object stays on the fixed-point grid, and that the
+     * result does not change from one JVM to another
+     */
+    @Test
+    void testWorldIsReproducible() {
+        GameWorld first = new GameWorld(DEF, new RestorableRandom(5));
+        GameWorld second = new GameWorld(DEF, new RestorableRandom(5));
+        first.setFixedPoint(true);
+        second.setFixedPoint(true);
+        first.reset();
+        second.reset();
+
+        long now = 0;
+        int lives = 0;
+        for (int i = 0; i < 20000; i++) {
+            now += FRAME_TIME + (i % 7) * 100000; // an uneven frame rate
+            if (!first.isStarted() || i % 19 == 0) {
+                first.click(now);
+                second.click(now);
+            }
+            first.step(FRAME_TIME + (i % 7) * 100000, now);
+            second.step(FRAME_TIME + (i % 7) * 100000, now);
+            if (first.getState() == GameState.LIFE_LOST) {
+                lives++;
+                first.reset();
+                second.reset();
+            } else if (first.isGameOver()) {
+                first.newGame();
+                second.newGame();
+            }
+            assertEquals(first.checksum(), second.checksum());
+
+            Sprite koya = first.getKoya();
+            assertEquals(koya.getPositionX(), FixedPoint.snap(koya.getPositionX()));
+            assertEquals(koya.getPositionY(), FixedPoint.snap(koya.getPositionY()));
+            for (Sprite pipe : first.getPipes()) {
+                assertEquals(pipe.getPositionX(), FixedPoint.snap(pipe.getPositionX()));
+            }
+            assertEquals(first.getScrolled(), FixedPoint.snap(first.getScrolled()));
+        }
+        assertTrue(lives > 0);
+        assertEquals(CHECKSUM, first.checksum(), "the fixed-point physics changed");
+    }
+}
@@ -0,0 +1,259 @@
+package angryflappybird;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import javax.imageio.ImageIO;
+
+import javafx.scene.Node;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * The FrameCapture class exports gameplay as a PNG sequence or a raw video file
+ * without encoding on the JavaFX application thread. Each frame is read into a
+ * recycled pixel buffer and handed to an encoder thread through a bounded queue.
+ * When every buffer is still waiting to be encoded, the frame is dropped instead
+ * of stalling the game loop, and the runs of dropped frames are listed in capture.txt.
+ * When the encoder fails, the capture stops and close() reports the error
+ * @author Robin Tran, Jennifer Pham
+ */
+public class FrameCapture {
+
+    /** Write one PNG file per frame */
+    public static final String PNG = "png";
+    /** Write every frame to one file of raw 32-bit BGRA pixels */
+    public static final String RAW = "raw";
+
+    /**
+     * A recycled pixel buffer and the index of the frame it holds
+     */
+    private static class Frame {
+        final IntBuffer pixels;
+        long index;
+
+        Frame(int size) {
+            pixels = IntBuffer.allocate(size);
+        }
+    }
+
+    private static final Frame END = new Frame(0); // tells the encoder to stop
+    private static final int MAX_DROP_RUNS = 1024; // runs of dropped frames listed in the summary
+
+    private final int width;
+    private final int height;
+    private final String format;
+    private final Path directory;
+    private WritableImage image; // the snapshot target, reused for every frame
+
+    private final ArrayBlockingQueue<Frame> free; // buffers ready to be filled
+    private final ArrayBlockingQueue<Frame> full; // buffers waiting to be encoded
+    private final Thread encoder;
+
+    // written on the JavaFX application thread only
+    private long frameIndex;
+    private int droppedFrames;
+    private final long[] dropRuns = new long[2 * MAX_DROP_RUNS]; // first and last frame of each run
+    private int dropRunCount;
+
+    // written on the encoder thread only
+    private long written;
+    private volatile IOException error;
+
+    /**
+     * Construct a capture and start its encoder thread
+     * @param width the width of the frames
+     * @param height the height of the frames
+     * @param format {@link #PNG} or {@link #RAW}
+     * @param directory the directory the files are written to
+     * @param poolSize the number of pixel buffers, that is how many frames can wait
+     * for the encoder before frames are dropped
+     * @throws IOException if the directory cannot be created
+     */
+    public FrameCapture(int width, int height, String format, Path directory,
+            int poolSize) throws IOException {
+        if (!PNG.equals(format) && !RAW.equals(format)) {
+            throw new IllegalArgumentException("unknown capture format " + format);
+        }
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.directory = Files.createDirectories(directory);
+
+        free = new ArrayBlockingQueue<>(poolSize);
+        full = new ArrayBlockingQueue<>(poolSize + 1);
+        for (int i = 0; i < poolSize; i++) {
+            free.add(new Frame(width * height));
+        }
+
+        encoder = new Thread(this::encode, "frame-capture-encoder");
+        encoder.setDaemon(true);
+        encoder.start();
+    }
+
+    /**
+     * Capture the current look of a node. Must be called on the JavaFX application
+     * thread, after the frame was drawn
+     * @param node the node to capture
+     * @return if the frame was captured, false if it was dropped or the encoder failed
+     */
+    public boolean capture(Node node) {
+        if (error != null) {
+            return false; // nothing more can be written
+        }
+        long index = frameIndex++;
+        Frame frame = free.poll();
+        if (frame == null) {
+            drop(index); // the encoder is behind, drop rather than wait
+            return false;
+        }
+        frame.pixels.clear();
+        snapshot(node, frame.pixels);
+        frame.index = index;
+        full.add(frame);
+        return true;
+    }
+
+    /**
+     * Read the current look of a node into a pixel buffer
+     * @param node the node to capture
+     * @param pixels receives the ARGB pixels of the frame, row by row
+     */
+    void snapshot(Node node, IntBuffer pixels) {
+        if (image == null) {
+            image = new WritableImage(width, height);
+        }
+        node.snapshot(null, image);
+        image.getPixelReader().getPixels(0, 0, width, height,
+                PixelFormat.getIntArgbInstance(), pixels, width);
+    }
+
+    /**
+     * Count a dropped frame, extending the last run of dropped frames when it
+     * follows it
+     * @param index the index of the frame
+     */
+    private void drop(long index) {
+        droppedFrames++;
+        if (dropRunCount > 0 && dropRuns[2 * dropRunCount - 1] == index - 1) {
+            dropRuns[2 * dropRunCount - 1] = index;
+        } else if (dropRunCount < MAX_DROP_RUNS) {
+            dropRuns[2 * dropRunCount] = index;
+            dropRuns[2 * dropRunCount + 1] = index;
+            dropRunCount++;
+        }
+    }
+
+    /**
+     * Get the number of frames dropped so far
+     * @return the number of dropped frames
+     */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Check if the encoder failed, which stops the capture
+     * @return if a frame could not be written
+     */
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    /**
+     * Get the number of frames offered for capture so far
+     * @return the number of frames
+     */
+    public long getFrames() {
+        return frameIndex;
+    }
+
+    /**
+     * Encode the frames still waiting, stop the encoder thread and write the summary
+     * @throws IOException if a frame or the summary cannot be written
+     * @throws InterruptedException if interrupted while waiting for the encoder
+     */
+    public void close() throws IOException, InterruptedException {
+        full.put(END);
+        encoder.join();
+
+        try (PrintWriter summary = new PrintWriter(
+                Files.newBufferedWriter(directory.resolve("capture.txt")))) {
+            summary.println("format " + format);
+            summary.println("size " + width + "x" + height);
+            summary.println("frames " + frameIndex);
+            summary.println("written " + written);
+            summary.println("dropped " + droppedFrames);
+            for (int i = 0; i < dropRunCount; i++) {
+                long first = dropRuns[2 * i];
+                long last = dropRuns[2 * i + 1];
+                summary.println(first == last ? "dropped frame " + first
+                        : "dropped frames " + first + "-" + last);
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Called on the encoder thread after a frame was written and its buffer given back
+     * @param index the index of the frame
+     */
+    void encoded(long index) {
+    }
+
+    /**
+     * The encoder thread: write the captured frames and give their buffers back
+     */
+    private void encode() {
+        BufferedImage png = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pngPixels = ((DataBufferInt) png.getRaster().getDataBuffer()).getData();
+        ByteBuffer raw = ByteBuffer.allocateDirect(width * height * 4)
+                .order(ByteOrder.LITTLE_ENDIAN); // an ARGB int is stored as B, G, R, A
+
+        try (FileChannel video = RAW.equals(format)
+                ? FileChannel.open(directory.resolve("capture.bgra"),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)
+                : null) {
+            while (true) {
+                Frame frame = full.take();
+                if (frame == END) {
+                    break;
+                }
+                frame.pixels.rewind();
+                if (video != null) {
+                    raw.clear();
+                    raw.asIntBuffer().put(frame.pixels);
+                    while (raw.hasRemaining()) {
+                        video.write(raw);
+                    }
+                } else {
+                    frame.pixels.get(pngPixels);
+                    File file = directory.resolve(
+                            String.format("frame_%06d.png", frame.index)).toFile();
+                    ImageIO.write(png, "png", file);
+                }
+                written++;
+                free.add(frame);
+                encoded(frame.index);
+            }
+        } catch (IOException e) {
+            error = e; // capture() stops, close() reports the error
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
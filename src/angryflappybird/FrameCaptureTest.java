@@ -0,0 +1,139 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javafx.scene.Node;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class FrameCaptureTest {
+
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 3;
+
+    private Path directory;
+    private final Semaphore encoding = new Semaphore(0); // released when a frame is encoded
+    private final Semaphore resume = new Semaphore(0); // lets the encoder go on
+
+    /**
+     * A capture that fills every frame with its index instead of taking a snapshot,
+     * and whose encoder waits for the test after each frame
+     */
+    private class TestCapture extends FrameCapture {
+
+        private long snapshots;
+
+        TestCapture(String format, Path directory, int poolSize) throws IOException {
+            super(WIDTH, HEIGHT, format, directory, poolSize);
+        }
+
+        @Override
+        void snapshot(Node node, IntBuffer pixels) {
+            int[] frame = new int[WIDTH * HEIGHT];
+            Arrays.fill(frame, (int) getFrames() - 1);
+            pixels.put(frame);
+            snapshots++;
+        }
+
+        @Override
+        void encoded(long index) {
+            encoding.release();
+            resume.acquireUninterruptibly();
+        }
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Files.createTempDirectory("angryflappybird-capture");
+    }
+
+    /**
+     * Test that frames are dropped while every buffer waits for the encoder, that
+     * the buffers are recycled once encoded, and that the runs of dropped frames
+     * are listed
+     * @throws Exception if the capture fails
+     */
+    @Test
+    void testRecycleAndDrop() throws Exception {
+        TestCapture capture = new TestCapture(FrameCapture.RAW, directory, 2);
+
+        assertTrue(capture.capture(null)); // frame 0 is encoded, its buffer is back
+        encoding.acquire();
+        assertTrue(capture.capture(null));
+        assertTrue(capture.capture(null));
+        assertFalse(capture.capture(null)); // both buffers wait for the encoder
+        assertFalse(capture.capture(null));
+        assertEquals(2, capture.getDroppedFrames());
+
+        resume.release(); // frame 1 is encoded and its buffer recycled
+        encoding.acquire();
+        assertTrue(capture.capture(null));
+        assertFalse(capture.capture(null));
+        assertEquals(3, capture.getDroppedFrames());
+        assertEquals(4, capture.snapshots);
+
+        resume.release(100);
+        capture.close();
+        assertEquals(7, capture.getFrames());
+
+        ByteBuffer video = ByteBuffer.wrap(Files.readAllBytes(directory.resolve("capture.bgra")))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int[] expected = {0, 1, 2, 5};
+        assertEquals(expected.length * WIDTH * HEIGHT * 4, video.remaining());
+        for (int index : expected) {
+            for (int i = 0; i < WIDTH * HEIGHT; i++) {
+                assertEquals(index, video.getInt());
+            }
+        }
+
+        List<String> summary = Files.readAllLines(directory.resolve("capture.txt"));
+        assertTrue(summary.contains("frames 7"));
+        assertTrue(summary.contains("written 4"));
+        assertTrue(summary.contains("dropped 3"));
+        assertTrue(summary.contains("dropped frames 3-4"));
+        assertTrue(summary.contains("dropped frame 6"));
+    }
+
+    /**
+     * Test that the capture stops once the encoder cannot write, and that close
+     * reports the error
+     * @throws Exception if the test cannot set up the capture
+     */
+    @Test
+    void testStopsOnError() throws Exception {
+        Files.createDirectory(directory.resolve("capture.bgra")); // the video cannot be opened
+        TestCapture capture = new TestCapture(FrameCapture.RAW, directory, 2);
+        for (int i = 0; i < 500 && !capture.isFailed(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(capture.isFailed());
+
+        assertFalse(capture.capture(null));
+        assertFalse(capture.capture(null));
+        assertEquals(0, capture.snapshots);
+        assertEquals(0, capture.getFrames());
+        assertEquals(0, capture.getDroppedFrames());
+        assertThrows(IOException.class, capture::close);
+    }
+}
@@ -0,0 +1,75 @@
+package angryflappybird;
+
+/**
+ * The FramePacer class decides which animation pulses run a tick under a frame-rate
+ * cap. A tick is due once per frame interval on a fixed cadence, so that a cap which
+ * does not divide the refresh rate of the display still averages the right rate. A
+ * pulse that comes a little early, within the tolerance, still runs the tick, as the
+ * pulses jitter around the refresh of the display. After a stall the cadence starts
+ * again from the late pulse instead of running the missed ticks in a burst
+ * @author Robin Tran, Jennifer Pham
+ */
+public class FramePacer {
+
+    private final long interval; // nanoseconds between ticks, 0 for no cap
+    private final long tolerance; // nanoseconds a pulse may come early
+    private long next; // the time the next tick is due
+    private boolean started; // if a tick ran since the last restart
+
+    /**
+     * Construct a pacer
+     * @param interval the nanoseconds between ticks, 0 to run a tick on every pulse
+     * @param tolerance the nanoseconds a pulse may come before the next tick is due
+     * and still run it
+     */
+    public FramePacer(long interval, long tolerance) {
+        this.interval = interval;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Construct a pacer for a number of ticks per second
+     * @param maxFps the ticks per second at most, 0 to run a tick on every pulse
+     * @param tolerance the nanoseconds a pulse may come before the next tick is due
+     * and still run it
+     * @return the pacer
+     */
+    public static FramePacer ofMaxFps(int maxFps, long tolerance) {
+        return new FramePacer(maxFps > 0 ? 1000000000L / maxFps : 0, tolerance);
+    }
+
+    /**
+     * Get the time between ticks
+     * @return the nanoseconds between ticks, 0 when there is no cap
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Start a new cadence, the next pulse runs a tick
+     */
+    public void restart() {
+        started = false;
+    }
+
+    /**
+     * Check if a pulse runs a tick, and move the cadence on if it does
+     * @param now the time of the pulse in nanoseconds
+     * @return if the pulse runs a tick, false if it is skipped
+     */
+    public boolean isDue(long now) {
+        if (interval == 0) {
+            return true;
+        }
+        if (started && now < next - tolerance) {
+            return false;
+        }
+        next = started ? next + interval : now + interval;
+        started = true;
+        if (next <= now) {
+            next = now + interval; // stalled for more than a frame
+        }
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class FramePacerTest {
+
+    private static final long PULSE = 1000000000L / 60; // animation pulses of a 60 Hz display
+    private static final long TOLERANCE = 2000000;
+
+    private FramePacer pacer;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        pacer = FramePacer.ofMaxFps(30, TOLERANCE);
+        pacer.restart();
+    }
+
+    /**
+     * Test that without a cap every pulse runs a tick
+     */
+    @Test
+    void testUncapped() {
+        FramePacer uncapped = FramePacer.ofMaxFps(0, TOLERANCE);
+        assertEquals(0, uncapped.getInterval());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(uncapped.isDue(i * PULSE));
+        }
+        assertTrue(uncapped.isDue(0));
+    }
+
+    /**
+     * Test that at half the refresh rate every other pulse is skipped, also when
+     * the pulses jitter a little
+     */
+    @Test
+    void testSkippedPulses() {
+        assertEquals(1000000000L / 30, pacer.getInterval());
+        int ticks = 0;
+        for (int i = 0; i < 600; i++) {
+            long jitter = (i % 3 - 1) * 500000;
+            boolean due = pacer.isDue(i * PULSE + jitter);
+            assertEquals(i % 2 == 0, due, "pulse " + i);
+            ticks += due ? 1 : 0;
+        }
+        assertEquals(300, ticks);
+    }
+
+    /**
+     * Test that a cap which does not divide the refresh rate still averages its
+     * rate
+     */
+    @Test
+    void testUnevenCap() {
+        FramePacer pacer = FramePacer.ofMaxFps(45, TOLERANCE);
+        int ticks = 0;
+        for (int i = 0; i < 600; i++) {
+            ticks += pacer.isDue(i * PULSE) ? 1 : 0;
+        }
+        assertEquals(450, ticks, 1);
+    }
+
+    /**
+     * Test that a pulse within the tolerance before the tick is due runs it, and
+     * one further before is skipped
+     */
+    @Test
+    void testTolerance() {
+        long interval = pacer.getInterval();
+        assertTrue(pacer.isDue(0));
+        assertFalse(pacer.isDue(interval - TOLERANCE - 1));
+        assertTrue(pacer.isDue(interval - TOLERANCE));
+        // the cadence keeps its phase, the early tick does not shift it
+        assertFalse(pacer.isDue(2 * interval - TOLERANCE - 1));
+        assertTrue(pacer.isDue(2 * interval));
+    }
+
+    /**
+     * Test that after a stall the cadence starts again from the late pulse instead
+     * of running the missed ticks back to back
+     */
+    @Test
+    void testStall() {
+        long interval = pacer.getInterval();
+        assertTrue(pacer.isDue(0));
+        assertTrue(pacer.isDue(interval));
+        long late = 10 * interval + interval / 3;
+        assertTrue(pacer.isDue(late));
+        assertFalse(pacer.isDue(late + PULSE));
+        assertTrue(pacer.isDue(late + interval));
+        assertFalse(pacer.isDue(late + interval + PULSE));
+    }
+
+    /**
+     * Test that after a restart the first pulse runs a tick whatever the time of
+     * the last one
+     */
+    @Test
+    void testRestart() {
+        long interval = pacer.getInterval();
+        long idle = 5000000000L;
+        assertTrue(pacer.isDue(idle));
+        pacer.restart();
+        assertTrue(pacer.isDue(0));
+        assertFalse(pacer.isDue(PULSE));
+        assertTrue(pacer.isDue(interval));
+    }
+}
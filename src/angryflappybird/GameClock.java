@@ -0,0 +1,181 @@
+package angryflappybird;
+
+/**
+ * The GameClock class is the one source of time for the game. It is sampled once
+ * per tick, and everything that happens during the tick uses the time of that
+ * sample. Game time can be paused and scaled to slow the game down or speed it up.
+ * A real clock follows the time of the animation pulses; a virtual clock moves by
+ * a fixed step on every tick without looking at the wall clock, so headless tests
+ * and simulations run as fast as the CPU allows
+ * @author Robin Tran, Jennifer Pham
+ */
+public class GameClock {
+
+    /** The slowest time scale */
+    public static final double MIN_SCALE = 0.125;
+    /** The fastest time scale */
+    public static final double MAX_SCALE = 8;
+
+    private final long step; // source nanoseconds per tick of a virtual clock, 0 for a real clock
+    private double scale = 1;
+    private boolean paused;
+    private boolean started;
+
+    private long source; // the source time of the last tick
+    private long now; // the game time of the last tick
+    private long elapsed; // the game time between the last two ticks
+    private long sourceElapsed; // the source time between the last two ticks
+    private long ticks;
+
+    /**
+     * Construct a real clock
+     */
+    public GameClock() {
+        this(0);
+    }
+
+    private GameClock(long step) {
+        this.step = step;
+    }
+
+    /**
+     * Construct a virtual clock
+     * @param step the nanoseconds of source time that pass on every tick
+     * @return the clock
+     */
+    public static GameClock virtual(long step) {
+        return new GameClock(step);
+    }
+
+    /**
+     * Check if the clock is virtual
+     * @return if the clock ignores the wall clock
+     */
+    public boolean isVirtual() {
+        return step != 0;
+    }
+
+    /**
+     * Sample the clock for a new tick: the wall clock for a real clock, one step
+     * for a virtual clock
+     * @return the game time of the tick in nanoseconds
+     */
+    public long tick() {
+        return tick(isVirtual() ? source + step : System.nanoTime());
+    }
+
+    /**
+     * Sample the clock for a new tick at a given source time, such as the time of
+     * the animation pulse
+     * @param sourceTime the source time in nanoseconds
+     * @return the game time of the tick in nanoseconds
+     */
+    public long tick(long sourceTime) {
+        if (!started) {
+            // the first tick only sets the origin
+            started = true;
+            sourceElapsed = 0;
+        } else {
+            sourceElapsed = sourceTime - source;
+        }
+        elapsed = paused ? 0 : Math.round(sourceElapsed * scale);
+        source = sourceTime;
+        now += elapsed;
+        ticks++;
+        return now;
+    }
+
+    /**
+     * Restart from the next tick without counting the source time since the last
+     * tick, for example after the game loop was stopped
+     */
+    public void resync() {
+        started = false;
+    }
+
+    /**
+     * Convert a source time, such as the time of an input event, to game time.
+     * The time is taken relative to the last tick
+     * @param sourceTime the source time in nanoseconds
+     * @return the game time in nanoseconds
+     */
+    public long toGameTime(long sourceTime) {
+        if (paused) {
+            return now;
+        }
+        return now + Math.round((sourceTime - source) * scale);
+    }
+
+    /**
+     * Get the game time of the last tick
+     * @return the time in nanoseconds
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * Get the game time that passed between the last two ticks
+     * @return the time in nanoseconds, 0 while paused
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Get the source time that passed between the last two ticks, whether the
+     * clock is paused or scaled
+     * @return the time in nanoseconds
+     */
+    public long getSourceElapsed() {
+        return sourceElapsed;
+    }
+
+    /**
+     * Get the source time of the last tick
+     * @return the time in nanoseconds
+     */
+    public long getSourceTime() {
+        return source;
+    }
+
+    /**
+     * Get the number of ticks
+     * @return the number of ticks
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Pause or resume the game time
+     * @param paused whether the game time stops
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * Check if the game time is paused
+     * @return if the game time is paused
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Set how fast game time passes compared to the source time
+     * @param scale the factor, from {@link #MIN_SCALE} to {@link #MAX_SCALE}
+     */
+    public void setScale(double scale) {
+        this.scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+    }
+
+    /**
+     * Get how fast game time passes compared to the source time
+     * @return the factor, 1 for normal speed
+     */
+    public double getScale() {
+        return scale;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class GameClockTest {
+
+    private static final long STEP = 1000;
+
+    private GameClock clock;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        clock = GameClock.virtual(STEP);
+    }
+
+    /**
+     * Test that a virtual clock moves by one step on every tick, starting from
+     * the first tick
+     */
+    @Test
+    void testVirtual() {
+        assertTrue(clock.isVirtual());
+        assertEquals(0, clock.tick());
+        assertEquals(0, clock.getElapsed());
+        assertEquals(STEP, clock.tick());
+        assertEquals(2 * STEP, clock.tick());
+        assertEquals(STEP, clock.getElapsed());
+        assertEquals(3, clock.getTicks());
+    }
+
+    /**
+     * Test that game time stops while paused and ignores the paused time
+     * when resumed
+     */
+    @Test
+    void testPause() {
+        clock.tick();
+        clock.tick();
+        clock.setPaused(true);
+        assertEquals(STEP, clock.tick());
+        assertEquals(0, clock.getElapsed());
+        assertEquals(STEP, clock.getSourceElapsed());
+        assertEquals(STEP, clock.toGameTime(clock.getSourceTime() + 500));
+
+        clock.setPaused(false);
+        assertEquals(2 * STEP, clock.tick());
+    }
+
+    /**
+     * Test that game time follows the scale, which is kept within its limits
+     */
+    @Test
+    void testScale() {
+        clock.tick();
+        clock.setScale(0.5);
+        assertEquals(STEP / 2, clock.tick());
+        clock.setScale(2);
+        assertEquals(STEP / 2 + 2 * STEP, clock.tick());
+        assertEquals(STEP / 2 + 2 * STEP + 1000, clock.toGameTime(clock.getSourceTime() + 500));
+
+        clock.setScale(100);
+        assertEquals(GameClock.MAX_SCALE, clock.getScale());
+        clock.setScale(0);
+        assertEquals(GameClock.MIN_SCALE, clock.getScale());
+    }
+
+    /**
+     * Test that the time before a resync is not counted
+     */
+    @Test
+    void testResync() {
+        clock.tick(0);
+        clock.tick(STEP);
+        clock.resync();
+        assertEquals(STEP, clock.tick(1000 * STEP));
+        assertEquals(0, clock.getElapsed());
+        assertEquals(2 * STEP, clock.tick(1001 * STEP));
+    }
+}
@@ -0,0 +1,179 @@
+package angryflappybird;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The GameEvents class holds the JDK Flight Recorder events of the game: one per
+ * tick with the time of each phase, one per collision, reset, life lost and asset
+ * load. The game loop and the world first check the enabled flag of the type of
+ * their events, so when no recording is running, or the event is turned off,
+ * nothing is allocated and the cost is one read of a flag. Resets and asset loads
+ * are rare enough to always create their event, which only records when enabled.
+ * Record them with the bundled profile, which also turns on the GC, JIT and
+ * safepoint events, to line up a stutter of the game with what the JVM was doing:
+ * -XX:StartFlightRecording:settings=src/resources/jfr/angryflappybird.jfc,filename=game.jfr
+ * @author Robin Tran, Jennifer Pham
+ */
+final class GameEvents {
+
+    private static final String CATEGORY = "Angry Flappy Bird";
+
+    /** The type of {@link Tick} */
+    static final EventType TICK = EventType.getEventType(Tick.class);
+    /** The type of {@link Collision} */
+    static final EventType COLLISION = EventType.getEventType(Collision.class);
+    /** The type of {@link LifeLost} */
+    static final EventType LIFE_LOST = EventType.getEventType(LifeLost.class);
+
+    private GameEvents() {
+    }
+
+    /**
+     * One tick of the game loop, from the sampling of the clock to the end of the
+     * measurements
+     */
+    @Name("angryflappybird.Tick")
+    @Label("Game Tick")
+    @Category(CATEGORY)
+    @Description("One tick of the game loop with the time of each phase")
+    @StackTrace(false)
+    static class Tick extends Event {
+        @Label("Inputs")
+        @Description("Press events applied in the tick")
+        int inputs;
+
+        @Label("Input Time")
+        @Timespan
+        long input;
+
+        @Label("Step Time")
+        @Description("Moving the game objects, collisions and score")
+        @Timespan
+        long step;
+
+        @Label("Render Time")
+        @Description("Drawing the sprites, the floor and the background")
+        @Timespan
+        long render;
+
+        @Label("Effects Time")
+        @Description("Drawing the effects and finishing the frame")
+        @Timespan
+        long effects;
+
+        @Label("Frame Interval")
+        @Description("Time since the last tick, as given by the animation timer")
+        @Timespan
+        long interval;
+
+        @Label("State")
+        String state;
+
+        @Label("Score")
+        int score;
+    }
+
+    /**
+     * The koya hit the floor, a pipe or a carrot
+     */
+    @Name("angryflappybird.Collision")
+    @Label("Collision")
+    @Category(CATEGORY)
+    @Description("The koya hit an obstacle")
+    @StackTrace(false)
+    static class Collision extends Event {
+        @Label("Floor")
+        boolean floor;
+
+        @Label("Pipe")
+        boolean pipe;
+
+        @Label("Carrot")
+        boolean carrot;
+
+        @Label("Time of Impact")
+        @Description("Fraction of the frame at which the koya first touched an obstacle")
+        double impactTime;
+
+        @Label("Koya X")
+        double x;
+
+        @Label("Koya Y")
+        double y;
+
+        @Label("Outcome")
+        @Description("The state the koya entered")
+        String outcome;
+    }
+
+    /**
+     * The game scene was reset, for a new life, a new game or the first entry
+     */
+    @Name("angryflappybird.Reset")
+    @Label("Game Scene Reset")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class Reset extends Event {
+        @Label("First Entry")
+        boolean firstEntry;
+
+        @Label("Score")
+        int score;
+
+        @Label("Lives")
+        int lives;
+    }
+
+    /**
+     * The koya lost a life after a knockback
+     */
+    @Name("angryflappybird.LifeLost")
+    @Label("Life Lost")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class LifeLost extends Event {
+        @Label("Lives Left")
+        int lives;
+
+        @Label("Score")
+        int score;
+
+        @Label("Carrot")
+        @Description("If the life was lost to a carrot rather than a pipe")
+        boolean carrot;
+    }
+
+    /**
+     * An image or a sound was loaded from the resources
+     */
+    @Name("angryflappybird.AssetLoad")
+    @Label("Asset Load")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class AssetLoad extends Event {
+        @Label("Name")
+        String name;
+
+        @Label("Kind")
+        @Description("image or audio")
+        String kind;
+
+        @Label("Width")
+        int width;
+
+        @Label("Height")
+        int height;
+
+        @Label("Decoded Size")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class GameEventsTest {
+
+    private static final long FRAME_TIME = 16666667; // nanoseconds per frame at 60 fps
+
+    private Defines DEF;
+    private GameWorld world;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        DEF = new Defines(false);
+        world = new GameWorld(DEF, new Random(42));
+    }
+
+    /**
+     * Test that a recording gets the collisions and the lives lost of the world,
+     * and that the events are off once it stops
+     * @throws Exception if the recording cannot be written or read
+     */
+    @Test
+    void testCollisionAndLifeLostRecorded() throws Exception {
+        Path file = Files.createTempFile("angryflappybird", ".jfr");
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(GameEvents.Collision.class);
+            recording.enable(GameEvents.LifeLost.class);
+            recording.start();
+            assertTrue(GameEvents.COLLISION.isEnabled());
+
+            // never click: the koya drops into the floor or hits a pipe
+            long now = FRAME_TIME;
+            world.click(now);
+            for (int i = 0; i < 600 && world.getState() != GameState.GAME_OVER; i++) {
+                now += FRAME_TIME;
+                world.step(FRAME_TIME, now);
+                if (world.getState() == GameState.LIFE_LOST) {
+                    world.reset();
+                    world.click(now);
+                }
+            }
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        assertFalse(GameEvents.COLLISION.isEnabled());
+
+        long collisions = events.stream()
+                .filter(e -> e.getEventType().getName().equals("angryflappybird.Collision"))
+                .count();
+        assertTrue(collisions > 0);
+        RecordedEvent last = events.stream()
+                .filter(e -> e.getEventType().getName().equals("angryflappybird.Collision"))
+                .reduce((a, b) -> b).get();
+        assertTrue(last.getBoolean("floor"));
+        assertEquals("GAME_OVER", last.getString("outcome"));
+        long livesLost = events.stream()
+                .filter(e -> e.getEventType().getName().equals("angryflappybird.LifeLost"))
+                .count();
+        assertEquals(3 - world.getLives(), livesLost);
+    }
+}
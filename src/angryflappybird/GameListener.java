@@ -0,0 +1,81 @@
+package angryflappybird;
+
+/**
+ * The GameListener interface receives the events of a {@link GameWorld} that the
+ * application shows to the player, such as sounds and label updates. Every method
+ * does nothing by default, so a world can run without a display
+ * @author Robin Tran, Jennifer Pham
+ */
+public interface GameListener {
+
+    /**
+     * Play a sound
+     * @param name the name of the sound in Defines.AUDIO_FILES
+     */
+    default void playSound(String name) {
+    }
+
+    /**
+     * Show a visual effect
+     * @param effect the effect
+     * @param x x coordinate of the center of the effect
+     * @param y y coordinate of the center of the effect
+     */
+    default void effect(ParticleSystem.Effect effect, double x, double y) {
+    }
+
+    /**
+     * Called when the score changes
+     * @param score the new score
+     */
+    default void scoreChanged(int score) {
+    }
+
+    /**
+     * Called when the number of lives changes
+     * @param lives the new number of lives
+     */
+    default void livesChanged(int lives) {
+    }
+
+    /**
+     * Called every second of the snooze mode
+     * @param secondsLeft the seconds left, 0 when the snooze mode ends
+     */
+    default void snoozeChanged(int secondsLeft) {
+    }
+
+    /**
+     * Called when the world moves from one state to another, before the actions
+     * of the new state run
+     * @param from the state left
+     * @param to the state entered
+     */
+    default void stateChanged(GameState from, GameState to) {
+    }
+
+    /**
+     * Called when the background shifts between day and night
+     * @param now the current time in nanoseconds
+     */
+    default void shiftBackground(long now) {
+    }
+
+    /**
+     * Called when the koya has flown far enough to hide the GET READY sign
+     */
+    default void getReadyDone() {
+    }
+
+    /**
+     * Called when the koya loses a life and the round has to be reset
+     */
+    default void lifeLost() {
+    }
+
+    /**
+     * Called when the game is over
+     */
+    default void gameOver() {
+    }
+}
@@ -0,0 +1,332 @@
+package angryflappybird;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The GameLoopMetrics class collects live metrics of the game loop and exposes them
+ * as a JMX MBean, so that a long-running game can be watched without a profiler.
+ * The game thread updates lock-free counters once per tick, the percentiles and
+ * rates are computed only when a JMX client reads them
+ * @author Robin Tran, Jennifer Pham
+ */
+public class GameLoopMetrics implements GameLoopMetricsMBean {
+
+    /** The name the MBean is registered under */
+    public static final String OBJECT_NAME = "angryflappybird:type=GameLoopMetrics";
+
+    private static final long MINUTE_NANOS = 60000000000L;
+    private static final int RESET_HISTORY = 256;
+    private static final GameState[] STATES = GameState.values();
+
+    // tick times, in buckets of 0.1 ms up to 100 ms
+    private final Histogram tickTimes = new Histogram(100000, 1000);
+    private final long frameInterval; // the time between ticks under a cap, 0 to measure the display
+    private long displayFrameNanos; // measured time between frames of the display, game thread only
+    private final AtomicLong frameNanos = new AtomicLong(); // smoothed time between frames
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    // live entities
+    private final AtomicInteger floors = new AtomicInteger();
+    private final AtomicInteger pipes = new AtomicInteger();
+    private final AtomicInteger avocados = new AtomicInteger();
+    private final AtomicInteger carrots = new AtomicInteger();
+
+    // events
+    private final AtomicLong soundPlays = new AtomicLong();
+    private final Histogram inputLatency = new Histogram(1000000, 500); // 1 ms buckets
+    private final AtomicLongArray resetTimes = new AtomicLongArray(RESET_HISTORY);
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLongArray transitions = new AtomicLongArray(STATES.length * STATES.length);
+
+    /**
+     * Construct the metrics of a game loop that runs a tick on every frame of the
+     * display, whatever its refresh rate
+     */
+    public GameLoopMetrics() {
+        this(0);
+    }
+
+    /**
+     * Construct the metrics of a game loop
+     * @param frameInterval the nanoseconds between ticks under the frame-rate cap,
+     * 0 for one tick on every frame of the display, whose frame time is measured
+     */
+    public GameLoopMetrics(long frameInterval) {
+        this.frameInterval = frameInterval;
+    }
+
+    /**
+     * Register the metrics with the platform MBean server
+     * @return if the metrics were registered
+     */
+    public boolean register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            return true;
+        } catch (JMException e) {
+            System.err.println("Cannot register " + OBJECT_NAME + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Record one tick of the game loop
+     * @param frameTime the time since the previous frame in nanoseconds
+     * @param tickTime the time spent in the tick in nanoseconds
+     */
+    public void recordTick(long frameTime, long tickTime) {
+        tickTimes.record(tickTime);
+
+        if (frameTime > 0) {
+            // smooth the frame time over about 16 frames
+            long smoothed = frameNanos.get();
+            frameNanos.set(smoothed == 0 ? frameTime : smoothed + (frameTime - smoothed) / 16);
+            long expected = frameInterval > 0 ? frameInterval : measureDisplay(frameTime);
+            if (frameTime > expected * 3 / 2) {
+                droppedFrames.addAndGet((frameTime + expected / 2) / expected - 1);
+            }
+        }
+    }
+
+    /**
+     * Follow the frame time of the display from the frames that were not dropped.
+     * The first frame gives the first estimate, and a frame much shorter than the
+     * estimate shows a faster display, such as a 120 or 144 Hz one
+     * @param frameTime the time since the previous frame in nanoseconds
+     * @return the frame time of the display in nanoseconds
+     */
+    private long measureDisplay(long frameTime) {
+        if (displayFrameNanos == 0 || frameTime < displayFrameNanos * 2 / 3) {
+            displayFrameNanos = frameTime;
+        } else if (frameTime <= displayFrameNanos * 3 / 2) {
+            displayFrameNanos += (frameTime - displayFrameNanos) / 16;
+        }
+        return displayFrameNanos;
+    }
+
+    /**
+     * Record the game objects that are on the screen
+     * @param world the game world
+     * @param width the width of the screen
+     * @param height the height of the screen
+     */
+    public void recordEntities(GameWorld world, double width, double height) {
+        floors.set(countVisible(world.getFloors(), width, height));
+        pipes.set(countVisible(world.getPipes(), width, height));
+        avocados.set(countVisible(world.getAvocados(), width, height));
+        // the world lists its one carrot twice
+        carrots.set(isVisible(world.getCarrots().get(0), width, height) ? 1 : 0);
+    }
+
+    /**
+     * Record that a sound was played
+     */
+    public void recordSound() {
+        soundPlays.incrementAndGet();
+    }
+
+    /**
+     * Record the time from an input event to the end of the first frame showing its effect
+     * @param latency the latency in nanoseconds
+     */
+    public void recordInputLatency(long latency) {
+        inputLatency.record(latency);
+    }
+
+    /**
+     * Get the input-to-display latencies
+     * @return the latency histogram
+     */
+    public Histogram getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Record that the game scene was reset
+     * @param now the time of the reset in nanoseconds
+     */
+    public void recordReset(long now) {
+        resetTimes.set((int) (resets.getAndIncrement() % RESET_HISTORY), now);
+    }
+
+    /**
+     * Record that the game world moved from one state to another
+     * @param from the state left
+     * @param to the state entered
+     */
+    public void recordTransition(GameState from, GameState to) {
+        transitions.incrementAndGet(from.ordinal() * STATES.length + to.ordinal());
+    }
+
+    @Override
+    public double getFps() {
+        long smoothed = frameNanos.get();
+        return smoothed == 0 ? 0 : 1e9 / smoothed;
+    }
+
+    @Override
+    public double getTickTimeP50() {
+        return tickTimes.percentile(0.50);
+    }
+
+    @Override
+    public double getTickTimeP95() {
+        return tickTimes.percentile(0.95);
+    }
+
+    @Override
+    public double getTickTimeP99() {
+        return tickTimes.percentile(0.99);
+    }
+
+    @Override
+    public long getTicks() {
+        return tickTimes.getCount();
+    }
+
+    @Override
+    public double getInputLatencyP50() {
+        return inputLatency.percentile(0.50);
+    }
+
+    @Override
+    public double getInputLatencyP95() {
+        return inputLatency.percentile(0.95);
+    }
+
+    @Override
+    public double getInputLatencyP99() {
+        return inputLatency.percentile(0.99);
+    }
+
+    @Override
+    public long getInputEvents() {
+        return inputLatency.getCount();
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    @Override
+    public int getFloors() {
+        return floors.get();
+    }
+
+    @Override
+    public int getPipes() {
+        return pipes.get();
+    }
+
+    @Override
+    public int getAvocados() {
+        return avocados.get();
+    }
+
+    @Override
+    public int getCarrots() {
+        return carrots.get();
+    }
+
+    @Override
+    public long getSoundPlays() {
+        return soundPlays.get();
+    }
+
+    @Override
+    public int getResetsPerMinute() {
+        long now = System.nanoTime();
+        int count = 0;
+        int recorded = (int) Math.min(RESET_HISTORY, resets.get());
+        for (int i = 0; i < recorded; i++) {
+            if (now - resetTimes.get(i) <= MINUTE_NANOS) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String[] getStateTransitions() {
+        ArrayList<String> lines = new ArrayList<>();
+        for (GameState from : STATES) {
+            for (GameState to : STATES) {
+                long count = transitions.get(from.ordinal() * STATES.length + to.ordinal());
+                if (count > 0) {
+                    lines.add(from + " -> " + to + ": " + count);
+                }
+            }
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public long getHeapUsedAfterLastGc() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used;
+    }
+
+    @Override
+    public void reset() {
+        tickTimes.reset();
+        inputLatency.reset();
+        droppedFrames.set(0);
+        soundPlays.set(0);
+        resets.set(0);
+        for (int i = 0; i < transitions.length(); i++) {
+            transitions.set(i, 0);
+        }
+    }
+
+    /**
+     * Count the sprites that are at least partly on the screen
+     * @param sprites the sprites
+     * @param width the width of the screen
+     * @param height the height of the screen
+     * @return the number of visible sprites
+     */
+    private static int countVisible(ArrayList<Sprite> sprites, double width, double height) {
+        int count = 0;
+        for (int i = 0; i < sprites.size(); i++) {
+            if (isVisible(sprites.get(i), width, height)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check if a sprite is at least partly on the screen
+     * @param s the sprite
+     * @param width the width of the screen
+     * @param height the height of the screen
+     * @return if the sprite is visible
+     */
+    private static boolean isVisible(Sprite s, double width, double height) {
+        return s.getPositionX() + s.getWidth() > 0 && s.getPositionX() < width
+                && s.getPositionY() + s.getHeight() > 0 && s.getPositionY() < height;
+    }
+}
@@ -0,0 +1,107 @@
+package angryflappybird;
+
+/**
+ * The management interface of {@link GameLoopMetrics}, readable with jconsole or any
+ * JMX client under the name angryflappybird:type=GameLoopMetrics
+ * @author Robin Tran, Jennifer Pham
+ */
+public interface GameLoopMetricsMBean {
+
+    /**
+     * @return the frames per second, averaged over the last frames
+     */
+    double getFps();
+
+    /**
+     * @return the median time spent in one tick, in milliseconds
+     */
+    double getTickTimeP50();
+
+    /**
+     * @return the 95th percentile of the time spent in one tick, in milliseconds
+     */
+    double getTickTimeP95();
+
+    /**
+     * @return the 99th percentile of the time spent in one tick, in milliseconds
+     */
+    double getTickTimeP99();
+
+    /**
+     * @return the number of ticks measured
+     */
+    long getTicks();
+
+    /**
+     * @return the median time from an input event to the end of the first frame
+     * showing its effect, in milliseconds
+     */
+    double getInputLatencyP50();
+
+    /**
+     * @return the 95th percentile of the input-to-display latency, in milliseconds
+     */
+    double getInputLatencyP95();
+
+    /**
+     * @return the 99th percentile of the input-to-display latency, in milliseconds
+     */
+    double getInputLatencyP99();
+
+    /**
+     * @return the number of input events applied
+     */
+    long getInputEvents();
+
+    /**
+     * @return the number of frames missed because a frame took too long
+     */
+    long getDroppedFrames();
+
+    /**
+     * @return the number of floors on the screen
+     */
+    int getFloors();
+
+    /**
+     * @return the number of pipes on the screen
+     */
+    int getPipes();
+
+    /**
+     * @return the number of avocados on the screen
+     */
+    int getAvocados();
+
+    /**
+     * @return the number of carrots on the screen
+     */
+    int getCarrots();
+
+    /**
+     * @return the number of sounds played
+     */
+    long getSoundPlays();
+
+    /**
+     * @return the number of game scene resets during the last minute
+     */
+    int getResetsPerMinute();
+
+    /**
+     * @return the number of times the game moved between each pair of states,
+     * one "FROM -> TO: count" line per pair that occurred
+     */
+    String[] getStateTransitions();
+
+    /**
+     * @return the heap used right after the last garbage collection, in bytes
+     */
+    long getHeapUsedAfterLastGc();
+
+    /**
+     * Forget the tick times, input latencies, dropped frames, sound plays, resets
+     * and state transitions
+     */
+    void reset();
+}
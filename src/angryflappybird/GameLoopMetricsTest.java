@@ -0,0 +1,195 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class GameLoopMetricsTest {
+
+    private static final long FRAME = 1000000000L / 60;
+    private static final long SECOND = 1000000000L;
+
+    private GameLoopMetrics metrics;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        metrics = new GameLoopMetrics();
+    }
+
+    /**
+     * Test that the percentiles are the upper ends of the buckets holding them,
+     * with the durations out of range in the first and the last bucket
+     */
+    @Test
+    void testPercentiles() {
+        Histogram histogram = new Histogram(1000000, 10);
+        assertEquals(0, histogram.percentile(0.5), 0);
+        assertEquals(0, histogram.getMean(), 0);
+
+        for (int i = 0; i < 100; i++) {
+            histogram.record(i * 50000); // 0 to 4.95 ms
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(1, histogram.percentile(0), 1e-9);
+        assertEquals(3, histogram.percentile(0.5), 1e-9);
+        assertEquals(5, histogram.percentile(0.95), 1e-9);
+        assertEquals(2.475, histogram.getMean(), 1e-9);
+
+        histogram.record(-5);
+        histogram.record(1000000000L);
+        assertEquals(1, histogram.percentile(0), 1e-9);
+        assertEquals(10, histogram.percentile(1), 1e-9);
+
+        for (int i = 1; i <= 100; i++) {
+            metrics.recordTick(FRAME, i * 100000L - 50000); // 0.05 to 9.95 ms
+        }
+        assertEquals(100, metrics.getTicks());
+        assertEquals(5, metrics.getTickTimeP50(), 1e-9);
+        assertEquals(9.5, metrics.getTickTimeP95(), 1e-9);
+        assertEquals(9.9, metrics.getTickTimeP99(), 1e-9);
+        assertEquals(60, metrics.getFps(), 0.01);
+    }
+
+    /**
+     * Test that the game objects are counted when they are at least partly on the
+     * screen, and the carrot that is listed twice is counted once
+     */
+    @Test
+    void testCountVisible() {
+        Defines DEF = new Defines(false);
+        GameWorld world = new GameWorld(DEF, new Random(42));
+        Sprite carrot = world.getCarrots().get(0);
+        assertEquals(2, world.getCarrots().size());
+        assertSame(carrot, world.getCarrots().get(1));
+
+        carrot.setPositionXY(-DEF.CARROT_WIDTH / 2.0, 100);
+        metrics.recordEntities(world, DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+        assertEquals(1, metrics.getCarrots());
+
+        carrot.setPositionXY(DEF.SCENE_WIDTH, 100);
+        metrics.recordEntities(world, DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+        assertEquals(0, metrics.getCarrots());
+
+        for (Sprite pipe : world.getPipes()) {
+            pipe.setPositionXY(-1000, 0);
+        }
+        world.getPipes().get(0).setPositionXY(10, 10);
+        metrics.recordEntities(world, DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+        assertEquals(1, metrics.getPipes());
+    }
+
+    /**
+     * Test that only the resets of the last minute are counted, at most as many
+     * as the history holds
+     */
+    @Test
+    void testResetsPerMinute() {
+        long now = System.nanoTime();
+        assertEquals(0, metrics.getResetsPerMinute());
+        metrics.recordReset(now - 120 * SECOND);
+        metrics.recordReset(now - 90 * SECOND);
+        metrics.recordReset(now - 30 * SECOND);
+        metrics.recordReset(now - 10 * SECOND);
+        metrics.recordReset(now);
+        assertEquals(3, metrics.getResetsPerMinute());
+
+        for (int i = 0; i < 1000; i++) {
+            metrics.recordReset(now);
+        }
+        assertEquals(256, metrics.getResetsPerMinute());
+    }
+
+    /**
+     * Test that reset forgets the counters and histograms
+     */
+    @Test
+    void testReset() {
+        metrics.recordTick(FRAME, 1000000);
+        metrics.recordTick(3 * FRAME, 1000000);
+        metrics.recordInputLatency(5000000);
+        metrics.recordSound();
+        metrics.recordReset(System.nanoTime());
+        metrics.recordTransition(GameState.FLYING, GameState.KNOCKBACK);
+        assertEquals(2, metrics.getTicks());
+        assertEquals(2, metrics.getDroppedFrames());
+        assertArrayEquals(new String[] {"FLYING -> KNOCKBACK: 1"}, metrics.getStateTransitions());
+
+        metrics.reset();
+        assertEquals(0, metrics.getTicks());
+        assertEquals(0, metrics.getTickTimeP99(), 0);
+        assertEquals(0, metrics.getInputEvents());
+        assertEquals(0, metrics.getInputLatencyP50(), 0);
+        assertEquals(0, metrics.getDroppedFrames());
+        assertEquals(0, metrics.getSoundPlays());
+        assertEquals(0, metrics.getResetsPerMinute());
+        assertEquals(0, metrics.getStateTransitions().length);
+
+        metrics.recordReset(System.nanoTime());
+        assertEquals(1, metrics.getResetsPerMinute());
+    }
+
+    /**
+     * Test that frames are counted as dropped against the measured frame time of
+     * the display, and against the frame interval under a cap
+     */
+    @Test
+    void testDroppedFrames() {
+        metrics.recordTick(FRAME, 1000);
+        metrics.recordTick(FRAME + FRAME / 3, 1000);
+        assertEquals(0, metrics.getDroppedFrames());
+        metrics.recordTick(2 * FRAME, 1000);
+        assertEquals(1, metrics.getDroppedFrames());
+        metrics.recordTick(4 * FRAME, 1000);
+        assertEquals(4, metrics.getDroppedFrames());
+
+        GameLoopMetrics capped = new GameLoopMetrics(2 * FRAME);
+        for (int i = 0; i < 30; i++) {
+            capped.recordTick(2 * FRAME, 1000);
+        }
+        assertEquals(0, capped.getDroppedFrames());
+        assertEquals(30, capped.getFps(), 0.01);
+        capped.recordTick(4 * FRAME, 1000);
+        assertEquals(1, capped.getDroppedFrames());
+    }
+
+    /**
+     * Test that the frame time of a 144 Hz display is measured, also when the
+     * game moves to it from a 60 Hz one
+     */
+    @Test
+    void testFastDisplay() {
+        long fast = 1000000000L / 144;
+        for (int i = 0; i < 100; i++) {
+            metrics.recordTick(fast + (i % 2 == 0 ? 200000 : -200000), 1000);
+        }
+        assertEquals(0, metrics.getDroppedFrames());
+        metrics.recordTick(2 * fast, 1000);
+        assertEquals(1, metrics.getDroppedFrames());
+        metrics.recordTick(FRAME, 1000);
+        assertEquals(2, metrics.getDroppedFrames());
+
+        GameLoopMetrics moved = new GameLoopMetrics();
+        for (int i = 0; i < 60; i++) {
+            moved.recordTick(FRAME, 1000);
+        }
+        for (int i = 0; i < 144; i++) {
+            moved.recordTick(fast, 1000);
+        }
+        assertEquals(0, moved.getDroppedFrames());
+        moved.recordTick(3 * fast, 1000);
+        assertEquals(2, moved.getDroppedFrames());
+    }
+}
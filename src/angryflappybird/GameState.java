@@ -0,0 +1,25 @@
+package angryflappybird;
+
+/**
+ * The GameState enum lists the phases of a round. A {@link GameWorld} is in exactly
+ * one of them and moves between them through explicit transitions:
+ * READY to FLYING on the first click, FLYING to SNOOZING on a golden avocado and
+ * back when the snooze ends, FLYING to KNOCKBACK on a pipe or carrot, KNOCKBACK to
+ * LIFE_LOST or GAME_OVER once the koya has left the scene, FLYING to GAME_OVER on
+ * the floor, and any state back to READY on a reset
+ * @author Robin Tran, Jennifer Pham
+ */
+public enum GameState {
+    /** Waiting for the first click, nothing moves */
+    READY,
+    /** The koya flies when clicked and drops otherwise */
+    FLYING,
+    /** The koya is on autopilot after a golden avocado and cannot collide */
+    SNOOZING,
+    /** The koya hit a pipe or a carrot and is thrown out of the scene */
+    KNOCKBACK,
+    /** The koya lost a life, the round waits to be reset */
+    LIFE_LOST,
+    /** The game is over, it waits to be reset */
+    GAME_OVER
+}
@@ -0,0 +1,1307 @@
+package angryflappybird;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import javafx.scene.image.Image;
+
+/**
+ * The GameWorld class owns every game object of a round: the koya, the floors,
+ * the pipes, the avocados and the carrots, and runs the game rules on them one
+ * tick at a time. The objects are created once and re-initialised in place by
+ * {@link #reset()}, so that losing a life does not allocate a new world. Events
+ * that happen at a known time are scheduled on timing wheels instead of being
+ * checked every frame: the snooze and the background shift in game time, and the
+ * pipe crossings and the respawns in distance scrolled, since the scene scrolls
+ * by a fixed distance on each step. The world does not depend on a display, what
+ * the player sees and hears is reported to a {@link GameListener}.
+ * In population mode the single koya is replaced by a {@link Population} of koyas
+ * that each play their own game through the same scene. The scene then keeps
+ * scrolling until every koya's game is over
+ * @author Robin Tran, Jennifer Pham
+ */
+public class GameWorld {
+
+    private static final int STATES = GameState.values().length;
+    private static final double SCROLL_UNITS = 1000; // ticks of the scroll wheel per pixel
+
+    // types of the scheduled events
+    private static final int GET_READY_DONE = 0;
+    private static final int PIPE_PASSED = 1;
+    private static final int PIPE_RESPAWN = 2;
+    private static final int FLOOR_RESPAWN = 3;
+    private static final int AVOCADO_RESPAWN = 4;
+    private static final int CARROT_RESPAWN = 5;
+    private static final int SNOOZE_SECOND = 6;
+    private static final int BACKGROUND_SHIFT = 7;
+
+    private final Defines DEF;
+    private final Random random;
+    private GameListener listener = new GameListener() {};
+
+    // time related attributes
+    private long clickTime, snoozeTime;
+
+    // counters
+    private int SCORE_COUNTER;
+    private int LIVES_COUNTER;
+    private int counter; // koya animation frame counter
+    private int reportedScore; // the score last sent to the listener
+
+    // game state
+    private GameState state = GameState.READY;
+    private final long[] transitions = new long[STATES * STATES]; // counts by from and to state
+    private boolean HIT_CARROT; // in knockback, whether a carrot was hit, which ends the game
+    private boolean GET_AVOCADO; // the koya got a green avocado during this tick
+
+    // koya motion during the current frame, for swept collision
+    private double koyaFromX, koyaFromY;
+    private double impactTime, impactX, impactY; // the first impact of the frame
+
+    // scheduled events
+    private final TimingWheel timers; // in game time
+    private final TimingWheel scrollTimers; // in distance scrolled
+    private final TimingWheel.Handler eventHandler = this::fire;
+    private double scrolled; // pixels the scene scrolled since the reset
+    private int snoozeTimer = TimingWheel.NONE;
+    private int avocadoTimer = TimingWheel.NONE;
+
+    private String difficulty = "Easy";
+    private boolean fixedPoint; // move and collide with integer arithmetic
+    private double shiftTime; // how far the scene scrolls on a tick, in velocity units
+    private double floorOffset; // x coordinate of the leftmost floor
+    private final ImageCache.Entry[] koyaFrames; // the koya animation images
+    private final ImageCache.Entry koyaSnooze; // the koya image in snooze mode
+    private final ArrayList<ImageCache.Entry> images = new ArrayList<>(); // images acquired from the cache
+
+    // game components
+    private final Sprite koya;
+    private final ArrayList<Sprite> floors;
+    private final ArrayList<Sprite> pipes;
+    private final ArrayList<Sprite> avocados;
+    private final ArrayList<Sprite> carrots;
+    private final Population population; // the koyas of the population mode, null otherwise
+    private final Image[] koyaImages; // the koya animation drawn for the population
+
+    /**
+     * Construct the game objects and place them at their initial positions
+     * @param DEF the game constants and media
+     */
+    public GameWorld(Defines DEF) {
+        this(DEF, new Random());
+    }
+
+    /**
+     * Construct the game objects using the given random generator
+     * @param DEF the game constants and media
+     * @param random the random generator used to place pipes, avocados and carrots
+     */
+    public GameWorld(Defines DEF, Random random) {
+        this(DEF, random, 0);
+    }
+
+    /**
+     * Construct the game objects for a population of koyas flying through the same
+     * scene, or for the single koya of the game
+     * @param DEF the game constants and media
+     * @param random the random generator used to place pipes, avocados and carrots
+     * @param koyas the number of koyas of the population, 0 for the single koya
+     */
+    public GameWorld(Defines DEF, Random random, int koyas) {
+        this.DEF = DEF;
+        this.random = random;
+        this.shiftTime = DEF.SCENE_SHIFT_TIME;
+        timers = new TimingWheel(DEF.TIMER_SLOTS, DEF.TIMER_RESOLUTION, DEF.TIMER_CAPACITY);
+        scrollTimers = new TimingWheel(DEF.TIMER_SLOTS,
+                Math.round(DEF.SCROLL_RESOLUTION * SCROLL_UNITS), DEF.TIMER_CAPACITY);
+
+        koyaFrames = new ImageCache.Entry[DEF.KOYA_IMG_LEN];
+        for (int i = 0; i < DEF.KOYA_IMG_LEN; i++) {
+            koyaFrames[i] = acquireImage("koya" + i, DEF.KOYA_WIDTH, DEF.KOYA_HEIGHT);
+        }
+        koyaSnooze = acquireImage("koya", DEF.KOYA_WIDTH + 50, DEF.KOYA_HEIGHT + 5);
+
+        floors = new ArrayList<>(DEF.FLOOR_COUNT);
+        for (int i = 0; i < DEF.FLOOR_COUNT; i++) {
+            floors.add(newSprite("floor", DEF.FLOOR_WIDTH, DEF.FLOOR_HEIGHT));
+        }
+
+        koya = new Sprite(0, 0, DEF.KOYA_WIDTH, DEF.KOYA_HEIGHT);
+
+        pipes = new ArrayList<>(DEF.PIPE_COUNT * 2);
+        for (int i = 0; i < DEF.PIPE_COUNT; i++) {
+            pipes.add(newSprite("pipe1", DEF.PIPE_WIDTH, DEF.PIPE_HEIGHT));
+            pipes.add(newSprite("pipe0", DEF.PIPE_WIDTH, DEF.PIPE_HEIGHT));
+        }
+
+        avocados = new ArrayList<>(DEF.AVOCADO_COUNT);
+        avocados.add(newSprite("avocado", DEF.AVOCADO_WIDTH, DEF.AVOCADO_HEIGHT));
+        avocados.add(newSprite("yellowavocado", DEF.AVOCADO_WIDTH, DEF.AVOCADO_HEIGHT));
+
+        // the same carrot is listed twice, as in the original scene
+        Sprite carrot = newSprite("carrot", DEF.CARROT_WIDTH, DEF.CARROT_HEIGHT);
+        carrots = new ArrayList<>(2);
+        carrots.add(carrot);
+        carrots.add(carrot);
+
+        population = koyas > 0 ? new Population(DEF, koyas) : null;
+        koyaImages = new Image[DEF.KOYA_IMG_LEN];
+        for (int i = 0; i < DEF.KOYA_IMG_LEN; i++) {
+            koyaImages[i] = koyaFrames[i] == null ? null : koyaFrames[i].getImage();
+        }
+
+        SCORE_COUNTER = 0;
+        LIVES_COUNTER = 3;
+        setFixedPoint(DEF.FIXED_POINT);
+        reset();
+    }
+
+    /**
+     * Set the listener that receives the events of the world
+     * @param listener the listener
+     */
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Set the difficulty level, which decides how often carrots appear
+     * @param difficulty "Easy", "Medium" or "Difficult"
+     */
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    /**
+     * Set how fast the game runs compared to real time. The koya follows the
+     * elapsed time given to {@link #step(long, long)}, the scene scrolls by a
+     * fixed amount on each step, which is scaled here
+     * @param scale the time scale, 1 for normal speed
+     */
+    public void setTimeScale(double scale) {
+        shiftTime = DEF.SCENE_SHIFT_TIME * scale;
+        if (fixedPoint) {
+            shiftTime = FixedPoint.snap(shiftTime);
+        }
+    }
+
+    /**
+     * Turn the fixed-point physics on or off. With fixed-point physics every game
+     * object moves and collides with the integer arithmetic of {@link FixedPoint},
+     * so that the same clicks give the same bits on every JVM and CPU, for replays
+     * and checksums. The koyas of a population keep the double arithmetic
+     * @param fixedPoint if the world uses fixed-point physics
+     */
+    public void setFixedPoint(boolean fixedPoint) {
+        this.fixedPoint = fixedPoint;
+        koya.setFixedPoint(fixedPoint);
+        for (int i = 0; i < floors.size(); i++) {
+            floors.get(i).setFixedPoint(fixedPoint);
+        }
+        for (int i = 0; i < pipes.size(); i++) {
+            pipes.get(i).setFixedPoint(fixedPoint);
+        }
+        for (int i = 0; i < avocados.size(); i++) {
+            avocados.get(i).setFixedPoint(fixedPoint);
+        }
+        carrots.get(0).setFixedPoint(fixedPoint);
+        if (fixedPoint) {
+            shiftTime = FixedPoint.snap(shiftTime);
+            scrolled = FixedPoint.snap(scrolled);
+        }
+    }
+
+    /**
+     * Check if the world uses fixed-point physics
+     * @return if the world uses fixed-point physics
+     */
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    /**
+     * Put every game object back to its initial position and velocity and go back
+     * to the {@link GameState#READY} state. After a game over the score and lives are reset too.
+     * The scheduled events are cancelled, and the crossings and respawns of the new
+     * positions are scheduled. This reuses the existing objects and does not allocate
+     */
+    public void reset() {
+
+        // every koya of a population starts a new game
+        if (population != null) {
+            population.reset();
+        }
+
+        // reset counters after the game is over
+        if (state == GameState.GAME_OVER) {
+            SCORE_COUNTER = 0;
+            LIVES_COUNTER = 3;
+            reportScore();
+            listener.livesChanged(LIVES_COUNTER);
+        }
+
+        // wait for the first click
+        if (state != GameState.READY) {
+            enter(GameState.READY, 0);
+        }
+        HIT_CARROT = false;
+        GET_AVOCADO = false;
+        counter = 0;
+        snoozeTime = 0;
+        impactTime = SweptCollision.NO_HIT;
+
+        // cancel the scheduled events
+        timers.reset(timers.getCurrent());
+        scrollTimers.reset(0);
+        scrolled = 0;
+        snoozeTimer = TimingWheel.NONE;
+        avocadoTimer = TimingWheel.NONE;
+
+        // reset floor
+        for (int i = 0; i < DEF.FLOOR_COUNT; i++) {
+            Sprite floor = floors.get(i);
+            floor.setPositionXY(i * DEF.FLOOR_WIDTH,
+                    DEF.SCENE_HEIGHT - DEF.FLOOR_HEIGHT);
+            floor.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
+        }
+
+        // reset koya
+        setImage(koya, koyaFrames[0]);
+        koya.setPositionXY(DEF.KOYA_POS_X, DEF.KOYA_POS_Y);
+        koya.setVelocity(0, 0);
+
+        // reset pipes
+        int posX = 0;
+        int posY = 0;
+        for (int i = 0; i < DEF.PIPE_COUNT; i++) {
+
+            posX = DEF.SCENE_WIDTH + i * DEF.PIPE_GAP;
+            posY = nextPipeHeight();
+
+            Sprite topPipe = pipes.get(i * 2);
+            topPipe.setPositionXY(posX, posY);
+            topPipe.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
+
+            Sprite bottomPipe = pipes.get(i * 2 + 1);
+            bottomPipe.setPositionXY(posX, posY + 300 + DEF.PIPE_HEIGHT);
+            bottomPipe.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
+        }
+
+        // reset avocados
+        Sprite avocado = avocados.get(0);
+        avocado.setPositionXY(posX - 300,
+                pipes.get(1).getPositionY() - DEF.AVOCADO_HEIGHT);
+        avocado.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
+
+        Sprite golden = avocados.get(1);
+        golden.setPositionXY(posX,
+                pipes.get(3).getPositionY() - DEF.AVOCADO_HEIGHT);
+        golden.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
+
+        // reset carrot
+        Sprite carrot = carrots.get(0);
+        carrot.setPositionXY(posX, posY - 100);
+        carrot.setVelocity(DEF.SCENE_SHIFT_INCR, 0.2);
+        floorOffset = floors.get(0).getPositionX();
+
+        // schedule the events of the new positions
+        scheduleScroll(pipes.get(0).getPositionX() - (DEF.SCENE_WIDTH - 50), GET_READY_DONE, 0);
+        for (int i = 0; i < DEF.FLOOR_COUNT; i++) {
+            scheduleFloor(i);
+        }
+        for (int i = 0; i < DEF.PIPE_COUNT; i++) {
+            schedulePipe(i);
+        }
+        scheduleAvocado();
+        scheduleCarrot();
+    }
+
+    /**
+     * Start a new game from any state: the score and the lives are reset along with
+     * the game objects, as after a game over
+     */
+    public void newGame() {
+        SCORE_COUNTER = 0;
+        LIVES_COUNTER = 3;
+        reportScore();
+        listener.livesChanged(LIVES_COUNTER);
+        reset();
+    }
+
+    /**
+     * Start the game on the first click, and make the koya fly on the next ones
+     * @param now the time of the click in nanoseconds
+     */
+    public void click(long now) {
+        if (state == GameState.READY) {
+            enter(GameState.FLYING, now);
+        } else if (population == null) {
+            clickTime = now;
+        } else {
+            for (int i = 0; i < population.size(); i++) {
+                population.click(i, now);
+            }
+        }
+    }
+
+    /**
+     * Make one koya of the population fly, starting the game on the first click
+     * @param koya the index of the koya
+     * @param now the time of the click in nanoseconds
+     */
+    public void click(int koya, long now) {
+        if (state == GameState.READY) {
+            enter(GameState.FLYING, now);
+        } else {
+            population.click(koya, now);
+        }
+    }
+
+    /**
+     * Run the game rules for one frame. The events due in game time fire first, then
+     * the rules of the current state run, nothing moves before the first click,
+     * after a lost life or after the game is over
+     * @param elapsedTime the time since the last frame in nanoseconds
+     * @param now the current time in nanoseconds
+     */
+    public void step(long elapsedTime, long now) {
+        timers.advance(now, eventHandler);
+
+        if (population != null) {
+            if (state == GameState.FLYING) {
+                tickPopulation(elapsedTime, now);
+            }
+            return;
+        }
+        switch (state) {
+        case FLYING:
+            tickFlying(elapsedTime, now);
+            break;
+        case SNOOZING:
+            tickSnoozing(elapsedTime, now);
+            break;
+        case KNOCKBACK:
+            tickKnockback(elapsedTime, now);
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Run one frame of the {@link GameState#FLYING} state: the koya flies for a while
+     * after a click and drops otherwise
+     * @param elapsedTime the time since the last frame in nanoseconds
+     * @param now the current time in nanoseconds
+     */
+    private void tickFlying(long elapsedTime, long now) {
+
+        // step1-2: update floor, pipes, avocados and carrots
+        scrollScene(now);
+
+        // step3-4: update koya and check collision, unless it just got a golden avocado
+        if (state == GameState.SNOOZING) {
+            moveSnoozingKoya(elapsedTime);
+        } else {
+            if (now - clickTime <= DEF.KOYA_DROP_TIME) {
+                // koya flies upward with animation
+                int imageIndex = Math.floorDiv(counter++, DEF.KOYA_IMG_PERIOD);
+                imageIndex = Math.floorMod(imageIndex, DEF.KOYA_IMG_LEN);
+                setImage(koya, koyaFrames[imageIndex]);
+                koya.setVelocity(0, DEF.KOYA_FLY_VEL);
+            } else {
+                // koya drops after a period of time without button click
+                koya.setVelocity(0, DEF.KOYA_DROP_VEL);
+            }
+            moveKoya(elapsedTime);
+            checkCollision(now);
+        }
+
+        // step5: fire the crossings and respawns of this step and update score
+        fireScrollEvents();
+        updateScore();
+    }
+
+    /**
+     * Run one frame of the population mode: the scene scrolls, every koya moves and
+     * is tested against the obstacles in one pass, and the game is over when no koya
+     * is left in it. The score is the best koya's
+     * @param elapsedTime the time since the last frame in nanoseconds
+     * @param now the current time in nanoseconds
+     */
+    private void tickPopulation(long elapsedTime, long now) {
+        scrollScene(now);
+        population.move(elapsedTime, now);
+        population.collide(floors, pipes, carrots, avocados, shiftTime, now);
+        fireScrollEvents();
+
+        SCORE_COUNTER = population.getScore(population.getBest());
+        reportScore();
+        if (population.getAlive() == 0) {
+            enter(GameState.GAME_OVER, now);
+        }
+    }
+
+    /**
+     * Run one frame of the {@link GameState#SNOOZING} state: the koya is on
+     * autopilot and does not collide until the snooze ends, which is a scheduled event
+     * @param elapsedTime the time since the last frame in nanoseconds
+     * @param now the current time in nanoseconds
+     */
+    private void tickSnoozing(long elapsedTime, long now) {
+        scrollScene(now);
+        moveSnoozingKoya(elapsedTime);
+        fireScrollEvents();
+        updateScore();
+    }
+
+    /**
+     * Run one frame of the {@link GameState#KNOCKBACK} state: the koya bounces out
+     * of the stopped scene, then loses a life or the game
+     * @param elapsedTime the time since the last frame in nanoseconds
+     * @param now the current time in nanoseconds
+     */
+    private void tickKnockback(long elapsedTime, long now) {
+        scrollScene(now);
+
+        koya.setVelocity(-500, 500);
+        moveKoya(elapsedTime);
+
+        // a carrot on the way out still ends the game
+        impactTime = SweptCollision.NO_HIT;
+        HIT_CARROT |= hits(carrots.get(0));
+
+        if (koya.getPositionX() < -DEF.KOYA_WIDTH) {
+            if (HIT_CARROT) {
+                LIVES_COUNTER = 0;
+            } else {
+                LIVES_COUNTER--;
+            }
+            listener.livesChanged(LIVES_COUNTER);
+            enter(LIVES_COUNTER == 0 ? GameState.GAME_OVER : GameState.LIFE_LOST, now);
+        }
+    }
+
+    /**
+     * Move to another state and run the actions of entering it
+     * @param next the new state
+     * @param now the current time in nanoseconds
+     */
+    private void enter(GameState next, long now) {
+        GameState previous = state;
+        transitions[previous.ordinal() * STATES + next.ordinal()]++;
+        state = next;
+        listener.stateChanged(previous, next);
+
+        switch (next) {
+        case FLYING:
+            if (previous == GameState.READY) {
+                // the click that starts the game does not make the koya fly, and
+                // the clicks of the last life do not count
+                clickTime = now - DEF.KOYA_DROP_TIME - 1;
+                // the background shifts on the first step, then periodically
+                timers.schedule(now, BACKGROUND_SHIFT, 0);
+                if (population != null) {
+                    population.start();
+                }
+            }
+            break;
+        case SNOOZING:
+            // a golden avocado during the snooze starts it over
+            snoozeTime = now;
+            timers.cancel(snoozeTimer);
+            snoozeTimer = timers.schedule(now + DEF.SEC_TO_NANOSEC, SNOOZE_SECOND,
+                    DEF.SNOOZE_TIME - 1);
+            listener.snoozeChanged(DEF.SNOOZE_TIME);
+            listener.playSound("snooze");
+            showEffect(ParticleSystem.Effect.SNOOZE, koya);
+            break;
+        case KNOCKBACK:
+            listener.playSound("hit");
+            showEffect(HIT_CARROT ? ParticleSystem.Effect.CARROT_HIT
+                    : ParticleSystem.Effect.PIPE_HIT, koya);
+            stopScrolling();
+            break;
+        case LIFE_LOST:
+            if (GameEvents.LIFE_LOST.isEnabled()) {
+                GameEvents.LifeLost event = new GameEvents.LifeLost();
+                event.lives = LIVES_COUNTER;
+                event.score = SCORE_COUNTER;
+                event.carrot = HIT_CARROT;
+                event.commit();
+            }
+            listener.lifeLost();
+            break;
+        case GAME_OVER:
+            listener.playSound("die");
+            for (int i = 0; i < floors.size(); i++) {
+                floors.get(i).setVelocity(0, 0);
+            }
+            for (int i = 0; i < pipes.size(); i++) {
+                pipes.get(i).setVelocity(0, 0);
+            }
+            listener.gameOver();
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Render the pipes, avocados, carrot and koya, or the best koyas of the population.
+     * The floors are drawn on their own layer
+     * @param renderer the renderer of the current frame
+     */
+    public void render(Renderer renderer) {
+        for (int i = 0; i < pipes.size(); i++) {
+            pipes.get(i).render(renderer);
+        }
+        avocados.get(0).render(renderer);
+        avocados.get(1).render(renderer);
+        carrots.get(0).render(renderer);
+        if (population == null) {
+            koya.render(renderer);
+        } else {
+            population.render(renderer, koyaImages, koyaSnooze == null ? null : koyaSnooze.getImage());
+        }
+    }
+
+    /**
+     * Update the floor throughout the game
+     */
+    private void moveFloor() {
+
+        double offsetX = Double.MAX_VALUE;
+        for (int i = 0; i < DEF.FLOOR_COUNT; i++) {
+            offsetX = Math.min(offsetX, floors.get(i).getPositionX());
+            floors.get(i).update(shiftTime);
+        }
+        floorOffset = offsetX;
+    }
+
+    /**
+     * Put a floor that left the scene behind the other one
+     * @param i the index of the floor
+     */
+    private void respawnFloor(int i) {
+        double nextX = floors.get((i + 1) % DEF.FLOOR_COUNT)
+                .getPositionX() + DEF.FLOOR_WIDTH;
+        double nextY = DEF.SCENE_HEIGHT - DEF.FLOOR_HEIGHT;
+        floors.get(i).setPositionXY(nextX, nextY);
+        scheduleFloor(i);
+    }
+
+    /**
+     * Update the pipes throughout the game
+     */
+    private void movePipe() {
+        for (int i = 0; i < pipes.size(); i++) {
+            pipes.get(i).update(shiftTime);
+        }
+    }
+
+    /**
+     * Put a pair of pipes that left the scene behind the other pair, at a new height
+     * @param i the index of the pair
+     */
+    private void respawnPipe(int i) {
+        double nextX = pipes.get((i + 1) % DEF.PIPE_COUNT * 2)
+                .getPositionX() + 300;
+        double nextY = nextPipeHeight();
+        pipes.get(i * 2).setPositionXY(nextX, nextY);
+        pipes.get(i * 2 + 1).setPositionXY(nextX, nextY + 500);
+        schedulePipe(i);
+    }
+
+    /**
+     * Move the scene by one frame, the floor, the pipes, the avocados and the carrots
+     * @param now the current time in nanoseconds
+     */
+    private void scrollScene(long now) {
+        // nothing scrolls once stopped
+        if (fixedPoint) {
+            scrolled = FixedPoint.toDouble(FixedPoint.of(scrolled)
+                    - FixedPoint.mul(FixedPoint.of(pipes.get(0).getVelocityX()), FixedPoint.of(shiftTime)));
+        } else {
+            scrolled -= pipes.get(0).getVelocityX() * shiftTime;
+        }
+        moveFloor();
+        movePipe();
+        moveAvocado(now);
+        moveCarrot();
+    }
+
+    /**
+     * Keep the koya on autopilot
+     * @param elapsedTime the time since the last frame in nanoseconds
+     */
+    private void moveSnoozingKoya(long elapsedTime) {
+        setImage(koya, koyaSnooze); // change the picture of koya
+        koya.setVelocity(0, -10);
+        moveKoya(elapsedTime);
+    }
+
+    /**
+     * Count down one second of the snooze, and go back to flying when it is over
+     * @param secondsLeft the seconds of snooze left
+     * @param now the current time in nanoseconds
+     */
+    private void snoozeSecond(int secondsLeft, long now) {
+        // a long frame may skip past the last seconds, the snooze still ends with it
+        if (now >= snoozeTime + DEF.SNOOZE_TIME * DEF.SEC_TO_NANOSEC) {
+            secondsLeft = 0;
+        }
+        listener.snoozeChanged(secondsLeft);
+        if (secondsLeft > 0) {
+            // from the start of the snooze, so that the seconds do not drift
+            long deadline = snoozeTime + (DEF.SNOOZE_TIME - secondsLeft + 1) * DEF.SEC_TO_NANOSEC;
+            snoozeTimer = timers.schedule(deadline, SNOOZE_SECOND, secondsLeft - 1);
+        } else {
+            snoozeTimer = TimingWheel.NONE;
+            enter(GameState.FLYING, now);
+        }
+    }
+
+    /**
+     * Move the koya by its velocity, remembering where it started for swept collision
+     * @param elapsedTime the time since the last frame in nanoseconds
+     */
+    private void moveKoya(long elapsedTime) {
+        koyaFromX = koya.getPositionX();
+        koyaFromY = koya.getPositionY();
+        if (fixedPoint) {
+            koya.updateFixed(FixedPoint.ofNanos(elapsedTime));
+        } else {
+            koya.update(elapsedTime * DEF.NANOSEC_TO_SEC);
+        }
+    }
+
+    /**
+     * Update the avocados throughout the game
+     * @param now the current time in nanoseconds
+     */
+    private void moveAvocado(long now) {
+        Sprite avocado = avocados.get(0);
+        Sprite golden = avocados.get(1);
+
+        avocado.update(shiftTime);
+        golden.update(shiftTime);
+
+        // update the variables if koya gets the avocados, not while knocked back;
+        // the koyas of a population get theirs in their own pass
+        if (state == GameState.KNOCKBACK || population != null) {
+            return;
+        }
+        GET_AVOCADO = GET_AVOCADO || koya.intersectsSprite(avocado);
+
+        if (koya.intersectsSprite(golden)) {
+            golden.setPositionXY(pipes.get(2).getPositionX(), 1000);
+            scheduleAvocado();
+            enter(GameState.SNOOZING, now);
+        }
+    }
+
+    /**
+     * Put a green or a golden avocado on a pipe once both have left the scene
+     */
+    private void respawnAvocado() {
+        // randomly assign avocados on bottom pipes
+        int pipeIndex = (int) (random.nextDouble() * 2) + 2;
+        double nextX = pipes.get(pipeIndex).getPositionX();
+        double nextY = pipes.get(pipeIndex).getPositionY()
+                - DEF.AVOCADO_HEIGHT;
+
+        // randomly choose green or golden avocados to put on pipes
+        int avocadoIndex = (int) Math.round(random.nextDouble());
+        avocados.get(avocadoIndex).setPositionXY(nextX, nextY);
+        if (population != null) {
+            population.avocadoRespawned(avocadoIndex);
+        }
+        scheduleAvocado();
+    }
+
+    /**
+     * Update the carrots throughout the game
+     */
+    private void moveCarrot() {
+        carrots.get(0).update(shiftTime);
+    }
+
+    /**
+     * Put the carrot back on an upper pipe, or out of the way, once it has left
+     * the scene
+     */
+    private void respawnCarrot() {
+
+        Sprite carrot = carrots.get(0);
+
+        // randomly assigns carrots to drop down from upper pipes
+        double random = this.random.nextDouble();
+        double nextX = 0;
+        double nextY = 0;
+
+        // determine the probability of the carrots based on
+        // the difficulty level
+        if (difficulty.equals("Easy")) {
+            if (random > 0.7) {
+                nextX = pipes.get(2).getPositionX();
+                nextY = pipes.get(2).getPositionY() - 100;
+                carrot.setPositionXY(nextX, nextY);
+            } else if (random <= 0.7) {
+                nextX = pipes.get(2).getPositionX();
+                nextY = 1000;
+                carrot.setPositionXY(nextX, nextY);
+            }
+        } else if (difficulty.equals("Medium")) {
+            if (random > 0.3) {
+                nextX = pipes.get(2).getPositionX();
+                nextY = pipes.get(2).getPositionY();
+                carrot.setPositionXY(nextX, nextY);
+            } else if (random <= 0.3) {
+                nextX = pipes.get(2).getPositionX();
+                nextY = 1000;
+                carrot.setPositionXY(nextX, nextY);
+            }
+        } else if (difficulty.equals("Difficult")) {
+            if (random > 0.1) {
+                nextX = pipes.get(2).getPositionX();
+                nextY = 0;
+                carrot.setPositionXY(nextX, nextY);
+            } else if (random <= 0.1) {
+                nextX = pipes.get(2).getPositionX();
+                nextY = 1000;
+                carrot.setPositionXY(nextX, nextY);
+            }
+        }
+        scheduleCarrot();
+    }
+
+    /**
+     * Stop every scrolling object, used when the koya hits a pipe or a carrot
+     */
+    private void stopScrolling() {
+        for (int i = 0; i < pipes.size(); i++) {
+            pipes.get(i).setVelocity(0, 0);
+        }
+        for (int i = 0; i < floors.size(); i++) {
+            floors.get(i).setVelocity(0, 0);
+        }
+        for (int i = 0; i < carrots.size(); i++) {
+            carrots.get(i).setVelocity(0, 0);
+        }
+        for (int i = 0; i < avocados.size(); i++) {
+            avocados.get(i).setVelocity(0, 0);
+        }
+    }
+
+    /**
+     * Checks if the Koya collides with the floors, the carrots or the pipes. The
+     * floors end the game, the carrots and pipes knock the koya back
+     * @param now the current time in nanoseconds
+     */
+    private void checkCollision(long now) {
+        impactTime = SweptCollision.NO_HIT;
+
+        boolean hitFloor = false;
+        for (int i = 0; i < floors.size(); i++) {
+            hitFloor |= hits(floors.get(i));
+        }
+        boolean hitCarrot = hits(carrots.get(0));
+        boolean hitPipe = false;
+        for (int i = 0; i < pipes.size(); i++) {
+            hitPipe |= hits(pipes.get(i));
+        }
+
+        // stop the koya where it first hit an obstacle, instead of letting a
+        // long frame carry it through
+        if (impactTime != SweptCollision.NO_HIT) {
+            koya.setPositionXY(impactX, impactY);
+        }
+
+        // end the game when koya hit floors, bounce back from pipes and carrots
+        if (hitFloor) {
+            if (hitCarrot || hitPipe) {
+                stopScrolling();
+            }
+            enter(GameState.GAME_OVER, now);
+        } else if (hitCarrot || hitPipe) {
+            HIT_CARROT = hitCarrot;
+            enter(GameState.KNOCKBACK, now);
+        }
+
+        if ((hitFloor || hitCarrot || hitPipe) && GameEvents.COLLISION.isEnabled()) {
+            GameEvents.Collision event = new GameEvents.Collision();
+            event.floor = hitFloor;
+            event.pipe = hitPipe;
+            event.carrot = hitCarrot;
+            event.impactTime = impactTime;
+            event.x = koya.getPositionX();
+            event.y = koya.getPositionY();
+            event.outcome = state.name();
+            event.commit();
+        }
+    }
+
+    /**
+     * Check if the koya hit an obstacle anywhere along its motion during the frame,
+     * and remember the earliest impact
+     * @param obstacle a pipe, a floor or a carrot
+     * @return if the koya hit the obstacle
+     */
+    private boolean hits(Sprite obstacle) {
+        double t = SweptCollision.sweep(koya, koyaFromX, koyaFromY, obstacle,
+                shiftTime);
+        if (t == SweptCollision.NO_HIT) {
+            return false;
+        }
+        if (impactTime == SweptCollision.NO_HIT || t < impactTime) {
+            impactTime = t;
+            impactX = along(koyaFromX, obstacle.getVelocityX(), koya.getPositionX(), t);
+            impactY = along(koyaFromY, obstacle.getVelocityY(), koya.getPositionY(), t);
+        }
+        return true;
+    }
+
+    /**
+     * Find a coordinate of the koya part way through its motion, as seen from an
+     * obstacle that scrolled during the frame
+     * @param from the coordinate at the start of the frame
+     * @param velocity the velocity of the obstacle along the same axis
+     * @param to the coordinate at the end of the frame
+     * @param t the fraction of the motion
+     * @return the coordinate
+     */
+    private double along(double from, double velocity, double to, double t) {
+        if (fixedPoint) {
+            long start = FixedPoint.of(from) + FixedPoint.mul(FixedPoint.of(velocity), FixedPoint.of(shiftTime));
+            return FixedPoint.toDouble(start + FixedPoint.mul(FixedPoint.of(to) - start, FixedPoint.of(t)));
+        }
+        double start = from + velocity * shiftTime;
+        return start + (to - start) * t;
+    }
+
+    /**
+     * Method to update the score after different events, such as when the Koya
+     * collects green avocados, or the carrot gets the avocados. The pipes passed
+     * are counted when their crossing event fires
+     */
+    private void updateScore() {
+        if (state == GameState.FLYING || state == GameState.SNOOZING) {
+            // update the score if the Koya gets a green avocado
+            if (GET_AVOCADO) {
+                SCORE_COUNTER += 5;
+                listener.playSound("point");
+                showEffect(ParticleSystem.Effect.AVOCADO, avocados.get(0));
+                avocados.get(0).setPositionXY(pipes.get(2).getPositionX(),
+                        1000);
+                scheduleAvocado();
+                GET_AVOCADO = false;
+
+            }
+        }
+        // update the score on the game scene
+        reportScore();
+    }
+
+    /**
+     * Fire the events of the distance scrolled so far: pipes passed and objects that
+     * left the scene
+     */
+    private void fireScrollEvents() {
+        scrollTimers.advance(Math.round(scrolled * SCROLL_UNITS), eventHandler);
+    }
+
+    /**
+     * Run a scheduled event
+     * @param type the type of the event
+     * @param target the index of the object the event is about
+     * @param now the time or the distance the event fired at
+     */
+    private void fire(int type, int target, long now) {
+        switch (type) {
+        case GET_READY_DONE:
+            listener.getReadyDone();
+            break;
+        case PIPE_PASSED:
+            if (population != null) {
+                population.pipePassed();
+            } else if (state == GameState.FLYING || state == GameState.SNOOZING) {
+                listener.playSound("point");
+                SCORE_COUNTER += 1;
+            }
+            break;
+        case PIPE_RESPAWN:
+            respawnPipe(target);
+            break;
+        case FLOOR_RESPAWN:
+            respawnFloor(target);
+            break;
+        case AVOCADO_RESPAWN:
+            avocadoTimer = TimingWheel.NONE;
+            respawnAvocado();
+            break;
+        case CARROT_RESPAWN:
+            respawnCarrot();
+            break;
+        case SNOOZE_SECOND:
+            snoozeSecond(target, now);
+            break;
+        case BACKGROUND_SHIFT:
+            listener.shiftBackground(now);
+            timers.schedule(now + DEF.BACKGROUND_SHIFT_TIME * DEF.SEC_TO_NANOSEC,
+                    BACKGROUND_SHIFT, 0);
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Schedule an event at a distance from where the scene is now
+     * @param distance the pixels left to scroll
+     * @param type the type of the event
+     * @param target the index of the object the event is about
+     * @return the id of the timer
+     */
+    private int scheduleScroll(double distance, int type, int target) {
+        return scrollTimers.schedule(Math.round((scrolled + distance) * SCROLL_UNITS),
+                type, target);
+    }
+
+    /**
+     * Schedule the respawn of a floor once it has left the scene
+     * @param i the index of the floor
+     */
+    private void scheduleFloor(int i) {
+        scheduleScroll(floors.get(i).getPositionX() + DEF.FLOOR_WIDTH, FLOOR_RESPAWN, i);
+    }
+
+    /**
+     * Schedule the crossing of a pair of pipes by the koya, and its respawn once
+     * it has left the scene
+     * @param i the index of the pair
+     */
+    private void schedulePipe(int i) {
+        double x = pipes.get(i * 2).getPositionX();
+        scheduleScroll(x + 10 - DEF.KOYA_POS_X, PIPE_PASSED, i);
+        scheduleScroll(x + DEF.PIPE_WIDTH, PIPE_RESPAWN, i);
+    }
+
+    /**
+     * Schedule the respawn of the avocados once both have left the scene, replacing
+     * the one scheduled before
+     */
+    private void scheduleAvocado() {
+        double x = Math.max(avocados.get(0).getPositionX(), avocados.get(1).getPositionX());
+        scrollTimers.cancel(avocadoTimer);
+        avocadoTimer = scheduleScroll(x + DEF.AVOCADO_WIDTH, AVOCADO_RESPAWN, 0);
+    }
+
+    /**
+     * Schedule the respawn of the carrot once it has left the scene
+     */
+    private void scheduleCarrot() {
+        scheduleScroll(carrots.get(0).getPositionX() + DEF.CARROT_WIDTH, CARROT_RESPAWN, 0);
+    }
+
+    /**
+     * Get the distance the scene scrolled since the last reset
+     * @return the distance in pixels
+     */
+    public double getScrolled() {
+        return scrolled;
+    }
+
+    /**
+     * Show an effect at the center of a sprite
+     * @param effect the effect
+     * @param sprite the sprite
+     */
+    private void showEffect(ParticleSystem.Effect effect, Sprite sprite) {
+        listener.effect(effect, sprite.getPositionX() + sprite.getWidth() / 2,
+                sprite.getPositionY() + sprite.getHeight() / 2);
+    }
+
+    /**
+     * Send the score to the listener when it has changed
+     */
+    private void reportScore() {
+        if (SCORE_COUNTER != reportedScore) {
+            reportedScore = SCORE_COUNTER;
+            listener.scoreChanged(SCORE_COUNTER);
+        }
+    }
+
+    /**
+     * Check if the game has started
+     * @return if the player has clicked to start
+     */
+    public boolean isStarted() {
+        return state != GameState.READY;
+    }
+
+    /**
+     * Check if the game is over
+     * @return if the game is over
+     */
+    public boolean isGameOver() {
+        return state == GameState.GAME_OVER;
+    }
+
+    /**
+     * Get the current state of the round
+     * @return the state
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Get how many times the world moved from one state to another
+     * @param from the state left
+     * @param to the state entered
+     * @return the number of transitions
+     */
+    public long getTransitionCount(GameState from, GameState to) {
+        return transitions[from.ordinal() * STATES + to.ordinal()];
+    }
+
+    /**
+     * Get the score
+     * @return the score
+     */
+    public int getScore() {
+        return SCORE_COUNTER;
+    }
+
+    /**
+     * Get the number of lives left
+     * @return the number of lives left
+     */
+    public int getLives() {
+        return LIVES_COUNTER;
+    }
+
+    /**
+     * Get the time left before the snooze ends
+     * @param now the current time in nanoseconds
+     * @return the time left in seconds, 0 when the koya is not snoozing
+     */
+    public double getSnoozeLeft(long now) {
+        if (state != GameState.SNOOZING) {
+            return 0;
+        }
+        return (snoozeTime + DEF.SNOOZE_TIME * DEF.SEC_TO_NANOSEC - now) * DEF.NANOSEC_TO_SEC;
+    }
+
+    /**
+     * Get the x coordinate of the leftmost floor when the floors were last moved
+     * @return the scroll offset of the floor
+     */
+    public double getFloorOffset() {
+        return floorOffset;
+    }
+
+    /**
+     * Pick a random height for a top pipe
+     * @return the y coordinate of the top pipe
+     */
+    public int nextPipeHeight() {
+        return random.nextInt(DEF.PIPE_MAX_HEIGHT - DEF.PIPE_MIN_HEIGHT + 1)
+                + DEF.PIPE_MIN_HEIGHT;
+    }
+
+    /**
+     * Get the random generator shared by the game objects
+     * @return the random generator
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * Get the koya
+     * @return the koya
+     */
+    public Sprite getKoya() {
+        return koya;
+    }
+
+    /**
+     * Make this world a copy of another one built with the same constants and the
+     * same number of koyas: every game object, counter, state and scheduled event,
+     * and the state of the random generator. The listener is not copied. This is
+     * how snapshots are saved and restored, it does not allocate
+     * @param other the world to copy
+     * @throws IllegalStateException if either world does not use a {@link RestorableRandom}
+     */
+    public void copyFrom(GameWorld other) {
+        if (!(random instanceof RestorableRandom) || !(other.random instanceof RestorableRandom)) {
+            throw new IllegalStateException("copied worlds need a RestorableRandom");
+        }
+        ((RestorableRandom) random).setState(((RestorableRandom) other.random).getState());
+
+        clickTime = other.clickTime;
+        snoozeTime = other.snoozeTime;
+        SCORE_COUNTER = other.SCORE_COUNTER;
+        LIVES_COUNTER = other.LIVES_COUNTER;
+        counter = other.counter;
+        reportedScore = other.reportedScore;
+        state = other.state;
+        System.arraycopy(other.transitions, 0, transitions, 0, transitions.length);
+        HIT_CARROT = other.HIT_CARROT;
+        GET_AVOCADO = other.GET_AVOCADO;
+        koyaFromX = other.koyaFromX;
+        koyaFromY = other.koyaFromY;
+        impactTime = other.impactTime;
+        impactX = other.impactX;
+        impactY = other.impactY;
+        timers.copyFrom(other.timers);
+        scrollTimers.copyFrom(other.scrollTimers);
+        scrolled = other.scrolled;
+        snoozeTimer = other.snoozeTimer;
+        avocadoTimer = other.avocadoTimer;
+        difficulty = other.difficulty;
+        fixedPoint = other.fixedPoint;
+        shiftTime = other.shiftTime;
+        floorOffset = other.floorOffset;
+
+        koya.copyFrom(other.koya);
+        for (int i = 0; i < floors.size(); i++) {
+            floors.get(i).copyFrom(other.floors.get(i));
+        }
+        for (int i = 0; i < pipes.size(); i++) {
+            pipes.get(i).copyFrom(other.pipes.get(i));
+        }
+        for (int i = 0; i < avocados.size(); i++) {
+            avocados.get(i).copyFrom(other.avocados.get(i));
+        }
+        carrots.get(0).copyFrom(other.carrots.get(0));
+        if (population != null) {
+            population.copyFrom(other.population);
+        }
+    }
+
+    /**
+     * Compute a hash of the state of the game, to check that two worlds that ran
+     * the same inputs are still the same
+     * @return the hash
+     */
+    public long checksum() {
+        long hash = state.ordinal();
+        hash = hash * 31 + SCORE_COUNTER;
+        hash = hash * 31 + LIVES_COUNTER;
+        hash = hash * 31 + Double.doubleToLongBits(scrolled);
+        hash = hash * 31 + Double.doubleToLongBits(koya.getPositionX());
+        hash = hash * 31 + Double.doubleToLongBits(koya.getPositionY());
+        for (int i = 0; i < pipes.size(); i++) {
+            hash = hash * 31 + Double.doubleToLongBits(pipes.get(i).getPositionY());
+        }
+        for (int i = 0; i < avocados.size(); i++) {
+            hash = hash * 31 + Double.doubleToLongBits(avocados.get(i).getPositionX());
+            hash = hash * 31 + Double.doubleToLongBits(avocados.get(i).getPositionY());
+        }
+        hash = hash * 31 + Double.doubleToLongBits(carrots.get(0).getPositionY());
+        if (random instanceof RestorableRandom) {
+            hash = hash * 31 + ((RestorableRandom) random).getState();
+        }
+        if (population != null) {
+            hash = hash * 31 + population.checksum();
+        }
+        return hash;
+    }
+
+    /**
+     * Get the koyas of the population mode
+     * @return the population, or null when the world has the single koya
+     */
+    public Population getPopulation() {
+        return population;
+    }
+
+    /**
+     * Get the floors
+     * @return the floors
+     */
+    public ArrayList<Sprite> getFloors() {
+        return floors;
+    }
+
+    /**
+     * Get the pipes, listed as top and bottom pipe of each pair
+     * @return the pipes
+     */
+    public ArrayList<Sprite> getPipes() {
+        return pipes;
+    }
+
+    /**
+     * Get the green and the golden avocado
+     * @return the avocados
+     */
+    public ArrayList<Sprite> getAvocados() {
+        return avocados;
+    }
+
+    /**
+     * Get the carrots
+     * @return the carrots
+     */
+    public ArrayList<Sprite> getCarrots() {
+        return carrots;
+    }
+
+    /**
+     * Give the images of the world back to the image cache. The world must not be
+     * used afterwards
+     */
+    public void dispose() {
+        for (int i = 0; i < images.size(); i++) {
+            DEF.IMAGES.release(images.get(i));
+        }
+        images.clear();
+    }
+
+    /**
+     * Create a sprite of the given size, using the named image when it is loaded
+     * @param name the image name
+     * @param width the width of the sprite
+     * @param height the height of the sprite
+     * @return the new sprite
+     */
+    private Sprite newSprite(String name, int width, int height) {
+        Sprite sprite = new Sprite(0, 0, width, height);
+        setImage(sprite, acquireImage(name, width, height));
+        return sprite;
+    }
+
+    /**
+     * Get an image from the image cache, and keep it until the world is disposed
+     * @param name the image name
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the cached image, or null when the images are not loaded, which is
+     * the case when running without a display
+     */
+    private ImageCache.Entry acquireImage(String name, int width, int height) {
+        if (DEF.IMAGES == null) {
+            return null;
+        }
+        ImageCache.Entry entry = DEF.IMAGES.acquire(name, width, height);
+        images.add(entry);
+        return entry;
+    }
+
+    /**
+     * Set an image and its collision mask on a sprite. The sprite keeps its size
+     * when the images are not loaded
+     * @param sprite the sprite
+     * @param image the cached image, or null
+     */
+    void setImage(Sprite sprite, ImageCache.Entry image) {
+        if (image != null) {
+            sprite.setImage(image.getImage());
+            sprite.setMask(image.getMask());
+        }
+    }
+}
@@ -0,0 +1,426 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class GameWorldTest {
+
+    // bytes a headless tick may allocate on average
+    private static final long TICK_ALLOCATION_BUDGET = 0;
+    private static final long FRAME_TIME = 16666667; // nanoseconds per frame at 60 fps
+
+    private Defines DEF;
+    private GameWorld world;
+    private RecordingListener events;
+
+    /**
+     * A listener that records the events of the world
+     */
+    private static class RecordingListener implements GameListener {
+
+        final Map<String, Integer> sounds = new HashMap<>();
+        final List<Integer> lives = new ArrayList<>();
+        final List<Integer> snooze = new ArrayList<>();
+        final List<String> states = new ArrayList<>();
+        int livesLost;
+        int gameOvers;
+
+        @Override
+        public void playSound(String name) {
+            sounds.merge(name, 1, Integer::sum);
+        }
+
+        @Override
+        public void livesChanged(int lives) {
+            this.lives.add(lives);
+        }
+
+        @Override
+        public void snoozeChanged(int secondsLeft) {
+            snooze.add(secondsLeft);
+        }
+
+        @Override
+        public void stateChanged(GameState from, GameState to) {
+            states.add(from + " -> " + to);
+        }
+
+        @Override
+        public void lifeLost() {
+            livesLost++;
+        }
+
+        @Override
+        public void gameOver() {
+            gameOvers++;
+        }
+
+        int played(String name) {
+            return sounds.getOrDefault(name, 0);
+        }
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        DEF = new Defines(false);
+        world = new GameWorld(DEF, new Random(42));
+        events = new RecordingListener();
+        world.setListener(events);
+    }
+
+    /**
+     * Test that reset puts the game objects back to their initial positions
+     */
+    @Test
+    void testReset() {
+        Sprite koya = world.getKoya();
+        Sprite pipe = world.getPipes().get(0);
+        koya.setPositionXY(-100, 500);
+        koya.setVelocity(-500, 500);
+        pipe.setVelocity(0, 0);
+
+        world.reset();
+
+        assertEquals(DEF.KOYA_POS_X, koya.getPositionX(), 0);
+        assertEquals(DEF.KOYA_POS_Y, koya.getPositionY(), 0);
+        assertEquals(0, koya.getVelocityX(), 0);
+        assertEquals(0, koya.getVelocityY(), 0);
+        assertEquals(DEF.SCENE_WIDTH, pipe.getPositionX(), 0);
+        assertEquals(DEF.SCENE_SHIFT_INCR, pipe.getVelocityX(), 0);
+    }
+
+    /**
+     * Test that reset reuses the existing game objects
+     */
+    @Test
+    void testResetReusesObjects() {
+        Sprite koya = world.getKoya();
+        Sprite floor = world.getFloors().get(0);
+        Sprite carrot = world.getCarrots().get(0);
+
+        world.reset();
+
+        assertSame(koya, world.getKoya());
+        assertSame(floor, world.getFloors().get(0));
+        assertSame(carrot, world.getCarrots().get(0));
+        assertEquals(DEF.FLOOR_COUNT, world.getFloors().size());
+        assertEquals(DEF.PIPE_COUNT * 2, world.getPipes().size());
+    }
+
+    /**
+     * Test that repeated resets do not allocate
+     */
+    @Test
+    void testResetDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // warm up so that class loading and the first calls are not counted
+        for (int i = 0; i < 1000; i++) {
+            world.reset();
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10000; i++) {
+            world.reset();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // a single new sprite would already take more than this per reset
+        assertTrue(allocated < 1024, allocated + " bytes allocated by 10000 resets");
+    }
+
+    /**
+     * Test that a click starts the game and the floors scroll on every step
+     */
+    @Test
+    void testStep() {
+        Sprite floor = world.getFloors().get(0);
+        world.step(FRAME_TIME, FRAME_TIME);
+        assertFalse(world.isStarted());
+        assertEquals(0, floor.getPositionX(), 0);
+
+        world.click(FRAME_TIME);
+        world.step(FRAME_TIME, 2 * FRAME_TIME);
+        assertTrue(world.isStarted());
+        assertEquals(DEF.SCENE_SHIFT_INCR * DEF.SCENE_SHIFT_TIME,
+                floor.getPositionX(), 1e-9);
+    }
+
+    /**
+     * Test that the game is over when the koya drops on the floor, and that
+     * reset starts a new game
+     */
+    @Test
+    void testGameOver() {
+        long now = 0;
+        world.click(now);
+        for (int i = 0; i < 1000 && !world.isGameOver(); i++) {
+            now += FRAME_TIME;
+            world.step(FRAME_TIME, now);
+        }
+        assertTrue(world.isGameOver());
+        assertEquals(DEF.SCENE_HEIGHT - DEF.FLOOR_HEIGHT - DEF.KOYA_HEIGHT,
+                world.getKoya().getPositionY(), 1e-9);
+
+        world.reset();
+        assertFalse(world.isGameOver());
+        assertEquals(3, world.getLives());
+        assertEquals(0, world.getScore());
+    }
+
+    /**
+     * Test that the world moves through its states and counts the transitions
+     */
+    @Test
+    void testStateTransitions() {
+        assertEquals(GameState.READY, world.getState());
+        world.step(FRAME_TIME, FRAME_TIME);
+        assertEquals(GameState.READY, world.getState());
+
+        long now = FRAME_TIME;
+        world.click(now);
+        assertEquals(GameState.FLYING, world.getState());
+        while (!world.isGameOver()) {
+            now += FRAME_TIME;
+            world.step(FRAME_TIME, now);
+        }
+        world.reset();
+
+        assertEquals(GameState.READY, world.getState());
+        assertEquals(1, world.getTransitionCount(GameState.READY, GameState.FLYING));
+        assertEquals(1, world.getTransitionCount(GameState.FLYING, GameState.GAME_OVER));
+        assertEquals(1, world.getTransitionCount(GameState.GAME_OVER, GameState.READY));
+        assertEquals(0, world.getTransitionCount(GameState.FLYING, GameState.KNOCKBACK));
+    }
+
+    /**
+     * Test that a pipe knocks the koya back, which then loses one life, once,
+     * and stays in the {@link GameState#LIFE_LOST} state until the next round
+     */
+    @Test
+    void testKnockbackLosesOneLife() {
+        long now = FRAME_TIME;
+        world.click(now);
+        clearWay();
+        Sprite koya = world.getKoya();
+        world.getPipes().get(0).setPositionXY(koya.getPositionX(), koya.getPositionY());
+
+        now += FRAME_TIME;
+        world.step(FRAME_TIME, now);
+        assertEquals(GameState.KNOCKBACK, world.getState());
+        for (int i = 0; i < 600 && world.getState() == GameState.KNOCKBACK; i++) {
+            now += FRAME_TIME;
+            world.step(FRAME_TIME, now);
+        }
+        assertEquals(GameState.LIFE_LOST, world.getState());
+
+        // the lost life is not taken again while the round waits to be reset
+        for (int i = 0; i < 100; i++) {
+            now += FRAME_TIME;
+            world.step(FRAME_TIME, now);
+        }
+        assertEquals(GameState.LIFE_LOST, world.getState());
+        assertEquals(List.of("READY -> FLYING", "FLYING -> KNOCKBACK", "KNOCKBACK -> LIFE_LOST"),
+                events.states);
+        assertEquals(List.of(2), events.lives);
+        assertEquals(2, world.getLives());
+        assertEquals(1, events.played("hit"));
+        assertEquals(0, events.played("die"));
+        assertEquals(1, events.livesLost);
+        assertEquals(0, events.gameOvers);
+    }
+
+    /**
+     * Test that a carrot the koya touches on its way out of a knockback ends the
+     * game once, however many frames they overlap, without taking a life as well
+     */
+    @Test
+    void testCarrotDuringKnockback() {
+        long now = FRAME_TIME;
+        world.click(now);
+        clearWay();
+        Sprite koya = world.getKoya();
+        world.getPipes().get(0).setPositionXY(koya.getPositionX(), koya.getPositionY());
+        now += FRAME_TIME;
+        world.step(FRAME_TIME, now);
+        assertEquals(GameState.KNOCKBACK, world.getState());
+
+        world.getCarrots().get(0).setPositionXY(koya.getPositionX() - DEF.CARROT_WIDTH / 2.0,
+                koya.getPositionY());
+        for (int i = 0; i < 600 && world.getState() == GameState.KNOCKBACK; i++) {
+            now += FRAME_TIME;
+            world.step(FRAME_TIME, now);
+        }
+        for (int i = 0; i < 100; i++) {
+            now += FRAME_TIME;
+            world.step(FRAME_TIME, now);
+        }
+        assertEquals(GameState.GAME_OVER, world.getState());
+        assertEquals(List.of(0), events.lives);
+        assertEquals(1, events.played("hit"));
+        assertEquals(1, events.played("die"));
+        assertEquals(0, events.livesLost);
+        assertEquals(1, events.gameOvers);
+    }
+
+    /**
+     * Test that a golden avocado puts the koya to sleep for six seconds, counted
+     * down once a second, and that the snooze sound plays once
+     */
+    @Test
+    void testSnooze() {
+        long now = FRAME_TIME;
+        world.click(now);
+        clearWay();
+        takeGoldenAvocado();
+
+        now += FRAME_TIME;
+        world.step(FRAME_TIME, now);
+        assertEquals(GameState.SNOOZING, world.getState());
+        long snoozeEnd = now + DEF.SNOOZE_TIME * DEF.SEC_TO_NANOSEC;
+        while (now + FRAME_TIME < snoozeEnd) {
+            now += FRAME_TIME;
+            world.step(FRAME_TIME, now);
+            assertEquals(GameState.SNOOZING, world.getState());
+        }
+        for (int i = 0; i < 2 * DEF.TIMER_SLOTS && world.getState() == GameState.SNOOZING; i++) {
+            now += FRAME_TIME;
+            world.step(FRAME_TIME, now);
+        }
+        assertEquals(GameState.FLYING, world.getState());
+        assertTrue(now - snoozeEnd <= 2 * FRAME_TIME);
+        assertEquals(List.of(6, 5, 4, 3, 2, 1, 0), events.snooze);
+        assertEquals(1, events.played("snooze"));
+        assertEquals(1, events.snooze.stream().filter(s -> s == 0).count());
+        assertTrue(events.states.contains("FLYING -> SNOOZING"));
+        assertTrue(events.states.contains("SNOOZING -> FLYING"));
+    }
+
+    /**
+     * Test that the snooze ends when one long frame skips past its last second
+     */
+    @Test
+    void testSnoozeEndsAfterLongFrame() {
+        long now = FRAME_TIME;
+        world.click(now);
+        clearWay();
+        takeGoldenAvocado();
+        now += FRAME_TIME;
+        world.step(FRAME_TIME, now);
+        assertEquals(GameState.SNOOZING, world.getState());
+
+        long stall = (DEF.SNOOZE_TIME + 2) * DEF.SEC_TO_NANOSEC;
+        now += stall;
+        world.step(stall, now);
+        assertNotEquals(GameState.SNOOZING, world.getState());
+        assertTrue(events.states.contains("SNOOZING -> FLYING"));
+        assertEquals(List.of(6, 0), events.snooze);
+        assertEquals(1, events.played("snooze"));
+    }
+
+    /**
+     * Move the obstacles and avocados out of the way of the koya
+     */
+    private void clearWay() {
+        for (Sprite pipe : world.getPipes()) {
+            pipe.setPositionXY(pipe.getPositionX(), -2000);
+        }
+        for (Sprite avocado : world.getAvocados()) {
+            avocado.setPositionXY(avocado.getPositionX(), -2000);
+        }
+        world.getCarrots().get(0).setPositionXY(-2000, -2000);
+    }
+
+    /**
+     * Put the golden avocado on the koya
+     */
+    private void takeGoldenAvocado() {
+        Sprite koya = world.getKoya();
+        world.getAvocados().get(1).setPositionXY(koya.getPositionX(), koya.getPositionY());
+    }
+
+    /**
+     * Test that a pipe passed counts even when the scroll step does not land on
+     * the koya exactly, here with the game running 1.37 times faster
+     */
+    @Test
+    void testPipePassedAtAnySpeed() {
+        world.setTimeScale(1.37);
+        Sprite koya = world.getKoya();
+        Sprite pipe = world.getPipes().get(0);
+        double passedAt = pipe.getPositionX() + 10 - DEF.KOYA_POS_X;
+
+        long now = 0;
+        world.click(now);
+        for (int i = 0; i < 180; i++) {
+            // keep the koya in the gap below the first top pipe
+            koya.setPositionXY(DEF.KOYA_POS_X, pipe.getPositionY() + DEF.PIPE_HEIGHT + 5);
+            now += FRAME_TIME;
+            world.step(FRAME_TIME, now);
+            assertEquals(GameState.FLYING, world.getState());
+            assertEquals(world.getScrolled() >= passedAt ? 1 : 0, world.getScore());
+        }
+        assertTrue(world.getScrolled() >= passedAt);
+    }
+
+    /**
+     * Test that the headless tick stays within its allocation budget, across
+     * flying, collisions, lost lives and new games
+     */
+    @Test
+    void testTickAllocationBudget() {
+        world.setListener(new GameListener() {
+            @Override
+            public void lifeLost() {
+                world.reset();
+            }
+
+            @Override
+            public void gameOver() {
+                world.reset();
+            }
+        });
+        AllocationTracker allocations = new AllocationTracker();
+        assertTrue(allocations.isSupported());
+
+        GameClock clock = GameClock.virtual(FRAME_TIME);
+        for (int round = 0; round < 2; round++) {
+            // the first round warms up, the second round is measured
+            allocations.reset();
+            for (int i = 0; i < 20000; i++) {
+                allocations.begin();
+                long now = clock.tick();
+                if (i % 20 == 0) {
+                    world.click(now);
+                }
+                world.step(clock.getElapsed(), now);
+                allocations.end();
+            }
+        }
+        assertTrue(allocations.getAverageBytes() <= TICK_ALLOCATION_BUDGET,
+                allocations.getAverageBytes() + " bytes allocated per tick on average, "
+                + allocations.getMaxBytes() + " bytes at most");
+    }
+
+}
@@ -0,0 +1,91 @@
+package angryflappybird;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The Histogram class counts durations in fixed-width buckets with lock-free
+ * counters. One thread can record while another reads the percentiles
+ * @author Robin Tran, Jennifer Pham
+ */
+public class Histogram {
+
+    private final long bucketNanos;
+    private final AtomicLongArray counts; // the last bucket holds everything longer
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+
+    /**
+     * Construct an empty histogram
+     * @param bucketNanos the width of a bucket in nanoseconds
+     * @param buckets the number of buckets
+     */
+    public Histogram(long bucketNanos, int buckets) {
+        this.bucketNanos = bucketNanos;
+        this.counts = new AtomicLongArray(buckets);
+    }
+
+    /**
+     * Count a duration
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = (int) Math.min(counts.length() - 1, Math.max(0, nanos) / bucketNanos);
+        counts.incrementAndGet(bucket);
+        total.incrementAndGet();
+        sum.addAndGet(nanos);
+    }
+
+    /**
+     * Get the number of durations counted
+     * @return the number of durations
+     */
+    public long getCount() {
+        return total.get();
+    }
+
+    /**
+     * Get the mean duration
+     * @return the mean in milliseconds, 0 when nothing was counted
+     */
+    public double getMean() {
+        long count = total.get();
+        return count == 0 ? 0 : sum.get() / 1e6 / count;
+    }
+
+    /**
+     * Compute a percentile of the durations
+     * @param fraction the percentile, from 0 to 1
+     * @return the upper end of the bucket holding the percentile, in milliseconds,
+     * 0 when nothing was counted
+     */
+    public double percentile(double fraction) {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return (i + 1) * bucketNanos / 1e6;
+            }
+        }
+        return counts.length() * bucketNanos / 1e6;
+    }
+
+    /**
+     * Forget every duration
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+    }
+}
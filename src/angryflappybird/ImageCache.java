@@ -0,0 +1,298 @@
+package angryflappybird;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javafx.scene.image.Image;
+
+/**
+ * The ImageCache class keeps the decoded images of the game, keyed by name and size,
+ * so that an image is decoded once for each size it is shown at. Images are loaded
+ * when first acquired, and their collision mask is built when it is first asked
+ * for, as only the sprites collide: the backgrounds, the floor and the scaled
+ * copies drawn on a larger window never read theirs. Every user of an image
+ * holds a reference to its entry; entries nobody refers to stay cached until the
+ * pixels of all cached images exceed the budget, then the least recently used ones
+ * are evicted. Entries still referred to are never evicted, so the budget can be
+ * exceeded when the images in use do not fit. The same image can be rasterised
+ * again at a scale of its size, for a display larger than the game scene, and the
+ * scaled copies are cached like the other sizes. The cache is used on the JavaFX
+ * application thread
+ * @author Robin Tran, Jennifer Pham
+ */
+public class ImageCache {
+
+    /**
+     * Loads an image at the given size
+     */
+    public interface Loader {
+        /**
+         * Load an image
+         * @param name the image name
+         * @param width the width to scale the image to
+         * @param height the height to scale the image to
+         * @return the image
+         */
+        Image load(String name, int width, int height);
+    }
+
+    /**
+     * A cached image of a given size, with its collision mask
+     */
+    public static class Entry {
+        private final Key key;
+        private final Image image;
+        private final int alphaThreshold;
+        private CollisionMask mask; // built on the first call of getMask()
+        private boolean masked;
+        private int references;
+
+        private Entry(Key key, Image image, int alphaThreshold) {
+            this.key = key;
+            this.image = image;
+            this.alphaThreshold = alphaThreshold;
+        }
+
+        /**
+         * Get the image
+         * @return the image
+         */
+        public Image getImage() {
+            return image;
+        }
+
+        /**
+         * Get the collision mask of the image, building it on the first call
+         * @return the mask, or null if the pixels of the image cannot be read
+         */
+        public CollisionMask getMask() {
+            if (!masked) {
+                mask = image == null ? null : CollisionMask.fromImage(image, alphaThreshold);
+                masked = true;
+            }
+            return mask;
+        }
+
+        /**
+         * Get the number of users of the entry
+         * @return the number of references
+         */
+        public int getReferences() {
+            return references;
+        }
+
+        /**
+         * Get the number of pixels of the image
+         * @return the number of pixels
+         */
+        public long getPixels() {
+            return (long) key.width * key.height;
+        }
+    }
+
+    /**
+     * The name and size an image is cached under
+     */
+    private static final class Key {
+        final String name;
+        final int width;
+        final int height;
+
+        Key(String name, int width, int height) {
+            this.name = name;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return name.equals(k.name) && width == k.width && height == k.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return (name.hashCode() * 31 + width) * 31 + height;
+        }
+    }
+
+    private final Loader loader;
+    private final long budget;
+    private final int alphaThreshold;
+
+    // entries from the least to the most recently used
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final IdentityHashMap<Image, Entry> byImage = new IdentityHashMap<>(); // entries by decoded image
+    private long pixels;
+
+    // statistics
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Construct an empty cache
+     * @param loader loads the images that are not cached
+     * @param budget the number of pixels above which unused images are evicted
+     * @param alphaThreshold the alpha value from which a pixel of an image can collide
+     */
+    public ImageCache(Loader loader, long budget, int alphaThreshold) {
+        this.loader = loader;
+        this.budget = budget;
+        this.alphaThreshold = alphaThreshold;
+    }
+
+    /**
+     * Get an image at the given size, loading it if it is not cached, and add a
+     * reference to it. Give the entry back with {@link #release(Entry)} when it is
+     * no longer used
+     * @param name the image name
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the entry of the image
+     */
+    public Entry acquire(String name, int width, int height) {
+        Key key = new Key(name, width, height);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+            entry = new Entry(key, loader.load(name, width, height), alphaThreshold);
+            entries.put(key, entry);
+            if (entry.image != null) {
+                byImage.put(entry.image, entry);
+            }
+            pixels += entry.getPixels();
+        }
+        entry.references++;
+        evict();
+        return entry;
+    }
+
+    /**
+     * Get the image of an entry at a scale of its size, decoded again from the
+     * resource at that size rather than scaled every time it is drawn, and add a
+     * reference to it
+     * @param entry an entry of the cache
+     * @param scale the scale, 1 for the size of the entry
+     * @return the entry of the image at the scaled size
+     */
+    public Entry acquireScaled(Entry entry, double scale) {
+        return acquire(entry.key.name, scaledSize(entry.key.width, scale),
+                scaledSize(entry.key.height, scale));
+    }
+
+    /**
+     * Find the entry of an image decoded by the cache
+     * @param image the image
+     * @return the entry, or null if the image was not decoded by the cache or was evicted
+     */
+    public Entry find(Image image) {
+        return byImage.get(image);
+    }
+
+    /**
+     * Scale a size, to at least one pixel
+     * @param size the size
+     * @param scale the scale
+     * @return the scaled size
+     */
+    private static int scaledSize(int size, double scale) {
+        return Math.max(1, (int) Math.round(size * scale));
+    }
+
+    /**
+     * Remove a reference to an entry. The image stays cached and is evicted when
+     * it is no longer used and the cache is over its budget
+     * @param entry the entry returned by {@link #acquire(String, int, int)}
+     */
+    public void release(Entry entry) {
+        if (entry.references == 0) {
+            throw new IllegalStateException("image " + entry.key.name + " released too many times");
+        }
+        entry.references--;
+        evict();
+    }
+
+    /**
+     * Check if an image is cached at the given size, without loading it or
+     * changing its place in the eviction order
+     * @param name the image name
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return if the image is cached
+     */
+    public boolean contains(String name, int width, int height) {
+        return entries.containsKey(new Key(name, width, height));
+    }
+
+    /**
+     * Evict the least recently used entries nobody refers to until the cache is
+     * within its budget
+     */
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (pixels > budget && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.references == 0) {
+                it.remove();
+                byImage.remove(entry.image);
+                pixels -= entry.getPixels();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Get the number of cached images
+     * @return the number of images
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of pixels of the cached images
+     * @return the number of pixels
+     */
+    public long getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Get the pixel budget
+     * @return the number of pixels above which unused images are evicted
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Get the number of times an image was found in the cache
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of times an image had to be loaded
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of images evicted
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+}
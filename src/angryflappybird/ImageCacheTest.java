@@ -0,0 +1,114 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class ImageCacheTest {
+
+    private int loads;
+    private ImageCache cache;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        // the bookkeeping does not need decoded images
+        loads = 0;
+        cache = new ImageCache((name, width, height) -> {
+            loads++;
+            return null;
+        }, 1000, 128);
+    }
+
+    /**
+     * Test that an image is loaded once for each size
+     */
+    @Test
+    void testAcquire() {
+        ImageCache.Entry a = cache.acquire("pipe0", 10, 10);
+        ImageCache.Entry b = cache.acquire("pipe0", 10, 10);
+        ImageCache.Entry c = cache.acquire("pipe0", 20, 10);
+
+        assertSame(a, b);
+        assertNotSame(a, c);
+        assertEquals(2, a.getReferences());
+        assertEquals(2, loads);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(300, cache.getPixels());
+    }
+
+    /**
+     * Test that the least recently used image nobody refers to is evicted when
+     * the cache is over its budget
+     */
+    @Test
+    void testEviction() {
+        cache.release(cache.acquire("a", 20, 20));
+        cache.release(cache.acquire("b", 20, 20));
+        cache.acquire("a", 20, 20); // b is now the least recently used
+        cache.acquire("c", 10, 10);
+        assertEquals(900, cache.getPixels());
+        assertEquals(0, cache.getEvictions());
+
+        cache.acquire("d", 20, 10);
+        assertFalse(cache.contains("b", 20, 20));
+        assertTrue(cache.contains("a", 20, 20));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(700, cache.getPixels());
+    }
+
+    /**
+     * Test that images in use are not evicted, even over the budget, and are
+     * evicted once released
+     */
+    @Test
+    void testReferencedImagesStay() {
+        ImageCache.Entry a = cache.acquire("a", 30, 30);
+        ImageCache.Entry b = cache.acquire("b", 20, 20);
+        assertEquals(1300, cache.getPixels());
+        assertEquals(2, cache.size());
+
+        cache.release(a);
+        assertFalse(cache.contains("a", 30, 30));
+        assertEquals(400, cache.getPixels());
+
+        cache.release(b);
+        assertTrue(cache.contains("b", 20, 20));
+        assertThrows(IllegalStateException.class, () -> cache.release(b));
+    }
+
+    /**
+     * Test that an image is decoded again for each scale, and that the scaled
+     * copies are shared and released like the other sizes
+     */
+    @Test
+    void testAcquireScaled() {
+        ImageCache.Entry pipe = cache.acquire("pipe0", 10, 15);
+        ImageCache.Entry doubled = cache.acquireScaled(pipe, 2);
+        assertTrue(cache.contains("pipe0", 20, 30));
+        assertSame(doubled, cache.acquireScaled(pipe, 2));
+        assertSame(doubled, cache.acquire("pipe0", 20, 30));
+        assertEquals(3, doubled.getReferences());
+        assertEquals(2, loads);
+
+        // sizes are rounded, to at least one pixel
+        cache.acquireScaled(pipe, 1.25);
+        assertTrue(cache.contains("pipe0", 13, 19));
+        cache.acquireScaled(pipe, 0.01);
+        assertTrue(cache.contains("pipe0", 1, 1));
+
+        // the cache does not know images it did not decode
+        assertNull(cache.find(null));
+    }
+}
@@ -0,0 +1,89 @@
+package angryflappybird;
+
+/**
+ * The InputQueue class keeps the player's press events, mouse and keyboard, with the
+ * time they happened, until the game loop applies them on the tick they belong to.
+ * Events are stored in a preallocated array, so queueing an event does not allocate.
+ * Events are queued and applied on the JavaFX application thread
+ * @author Robin Tran, Jennifer Pham
+ */
+public class InputQueue {
+
+    private final long[] times;
+    private int head; // index of the oldest event
+    private int size;
+    private long dropped;
+
+    /**
+     * Construct an empty queue
+     * @param capacity the largest number of events waiting to be applied
+     */
+    public InputQueue(int capacity) {
+        times = new long[capacity];
+    }
+
+    /**
+     * Queue a press event. The event is dropped when the queue is full
+     * @param time the time of the event in nanoseconds
+     * @return if the event was queued
+     */
+    public boolean offer(long time) {
+        if (size == times.length) {
+            dropped++;
+            return false;
+        }
+        int tail = (head + size) % times.length;
+        times[tail] = time;
+        size++;
+        return true;
+    }
+
+    /**
+     * Check if an event happened at or before the given time
+     * @param time the time of the tick in nanoseconds
+     * @return if the oldest event is due on this tick
+     */
+    public boolean hasEventBefore(long time) {
+        return size > 0 && times[head] <= time;
+    }
+
+    /**
+     * Get the time of the oldest event
+     * @return the time in nanoseconds
+     */
+    public long peekTime() {
+        return times[head];
+    }
+
+    /**
+     * Remove the oldest event
+     */
+    public void remove() {
+        head = (head + 1) % times.length;
+        size--;
+    }
+
+    /**
+     * Remove every event
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Get the number of events waiting
+     * @return the number of events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of events dropped because the queue was full
+     * @return the number of dropped events
+     */
+    public long getDropped() {
+        return dropped;
+    }
+}
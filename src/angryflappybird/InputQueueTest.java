@@ -0,0 +1,136 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class InputQueueTest {
+
+    private static final int CAPACITY = 4;
+
+    private InputQueue input;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        input = new InputQueue(CAPACITY);
+    }
+
+    /**
+     * Test that the events come out in the order they were queued
+     */
+    @Test
+    void testOrder() {
+        assertTrue(input.offer(10));
+        assertTrue(input.offer(20));
+        assertTrue(input.offer(30));
+        assertEquals(3, input.size());
+        for (long time = 10; time <= 30; time += 10) {
+            assertEquals(time, input.peekTime());
+            input.remove();
+        }
+        assertEquals(0, input.size());
+    }
+
+    /**
+     * Test that the queue keeps its order when the events wrap around the end of
+     * its array
+     */
+    @Test
+    void testWraparound() {
+        long next = 0;
+        long expected = 0;
+        for (int round = 0; round < 10; round++) {
+            while (input.size() < CAPACITY - 1) {
+                assertTrue(input.offer(next++));
+            }
+            input.remove();
+            input.remove();
+            expected += 2;
+            assertEquals(expected, input.peekTime());
+        }
+        assertEquals(0, input.getDropped());
+    }
+
+    /**
+     * Test that the events that come when the queue is full are dropped and
+     * counted, and the queued ones are kept
+     */
+    @Test
+    void testOverflow() {
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(input.offer(i));
+        }
+        assertFalse(input.offer(CAPACITY));
+        assertFalse(input.offer(CAPACITY + 1));
+        assertEquals(2, input.getDropped());
+        assertEquals(CAPACITY, input.size());
+        assertEquals(0, input.peekTime());
+
+        input.remove();
+        assertTrue(input.offer(CAPACITY + 2));
+        for (int i = 1; i < CAPACITY; i++) {
+            input.remove();
+        }
+        assertEquals(CAPACITY + 2, input.peekTime());
+
+        input.clear();
+        assertEquals(0, input.size());
+        assertEquals(2, input.getDropped());
+    }
+
+    /**
+     * Test that only the events at or before the time of a tick are due on it
+     */
+    @Test
+    void testHasEventBefore() {
+        assertFalse(input.hasEventBefore(Long.MAX_VALUE));
+        input.offer(100);
+        input.offer(200);
+        assertFalse(input.hasEventBefore(99));
+        assertTrue(input.hasEventBefore(100));
+
+        int applied = 0;
+        while (input.hasEventBefore(150)) {
+            input.remove();
+            applied++;
+        }
+        assertEquals(1, applied);
+        assertTrue(input.hasEventBefore(200));
+        input.remove();
+        assertFalse(input.hasEventBefore(Long.MAX_VALUE));
+    }
+
+    /**
+     * Test that the latencies of the applied events reach the input latency
+     * histogram of the metrics
+     */
+    @Test
+    void testLatency() {
+        GameLoopMetrics metrics = new GameLoopMetrics();
+        for (int i = 0; i < 100; i++) {
+            input.offer(i * 1000000L);
+            long rendered = i * 1000000L + (i < 90 ? 4500000 : 20500000);
+            while (input.hasEventBefore(rendered)) {
+                metrics.recordInputLatency(rendered - input.peekTime());
+                input.remove();
+            }
+        }
+        assertEquals(100, metrics.getInputEvents());
+        assertEquals(100, metrics.getInputLatency().getCount());
+        assertEquals(5, metrics.getInputLatencyP50(), 1e-9);
+        assertEquals(21, metrics.getInputLatencyP95(), 1e-9);
+        assertEquals(21, metrics.getInputLatencyP99(), 1e-9);
+        assertEquals(0.9 * 4.5 + 0.1 * 20.5, metrics.getInputLatency().getMean(), 1e-9);
+    }
+}
@@ -0,0 +1,139 @@
+package angryflappybird;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * The LatencyShim class wraps a {@link NetTransport} to make the network worse on
+ * purpose, so that rollback can be tried on loopback or in a test. Each packet sent
+ * is dropped with a given probability, or held back for the latency plus a random
+ * jitter, which can make packets overtake each other. Held packets are copied to a
+ * preallocated pool; a packet that does not fit is dropped
+ * @author Robin Tran, Jennifer Pham
+ */
+public class LatencyShim implements NetTransport {
+
+    private final NetTransport transport;
+    private final long latency; // nanoseconds
+    private final long jitter; // nanoseconds
+    private final double loss;
+    private final Random random;
+    private final LongSupplier clock;
+
+    // held packets, in use when their length is not -1
+    private final byte[][] packets;
+    private final int[] lengths;
+    private final long[] releaseTimes;
+    private int held;
+    private long dropped;
+
+    /**
+     * Wrap a transport, timing the packets with {@link System#nanoTime()}
+     * @param transport the transport the packets go through
+     * @param latency the time every packet is held back in nanoseconds
+     * @param jitter the largest random time added to the latency in nanoseconds
+     * @param loss the probability that a packet is lost, between 0 and 1
+     * @param seed the seed of the losses and the jitter
+     */
+    public LatencyShim(NetTransport transport, long latency, long jitter, double loss, long seed) {
+        this(transport, latency, jitter, loss, seed, System::nanoTime, 256, 512);
+    }
+
+    /**
+     * Wrap a transport
+     * @param transport the transport the packets go through
+     * @param latency the time every packet is held back
+     * @param jitter the largest random time added to the latency
+     * @param loss the probability that a packet is lost, between 0 and 1
+     * @param seed the seed of the losses and the jitter
+     * @param clock the current time, in the unit of the latency
+     * @param capacity the largest number of packets held back at the same time
+     * @param packetSize the size of the largest packet
+     */
+    public LatencyShim(NetTransport transport, long latency, long jitter, double loss, long seed,
+            LongSupplier clock, int capacity, int packetSize) {
+        this.transport = transport;
+        this.latency = latency;
+        this.jitter = jitter;
+        this.loss = loss;
+        this.random = new Random(seed);
+        this.clock = clock;
+        packets = new byte[capacity][packetSize];
+        lengths = new int[capacity];
+        releaseTimes = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            lengths[i] = -1;
+        }
+    }
+
+    @Override
+    public void send(byte[] data, int length) throws IOException {
+        long now = clock.getAsLong();
+        if (random.nextDouble() < loss || held == packets.length || length > packets[0].length) {
+            dropped++;
+        } else {
+            for (int i = 0; i < packets.length; i++) {
+                if (lengths[i] == -1) {
+                    System.arraycopy(data, 0, packets[i], 0, length);
+                    lengths[i] = length;
+                    releaseTimes[i] = now + latency
+                            + (jitter > 0 ? (long) (random.nextDouble() * jitter) : 0);
+                    held++;
+                    break;
+                }
+            }
+        }
+        release(now);
+    }
+
+    @Override
+    public int receive(byte[] data) throws IOException {
+        release(clock.getAsLong());
+        return transport.receive(data);
+    }
+
+    @Override
+    public void close() throws IOException {
+        transport.close();
+    }
+
+    /**
+     * Send the held packets whose time has come, the earliest first
+     * @param now the current time
+     * @throws IOException if a packet cannot be sent
+     */
+    private void release(long now) throws IOException {
+        while (held > 0) {
+            int earliest = -1;
+            for (int i = 0; i < packets.length; i++) {
+                if (lengths[i] != -1 && releaseTimes[i] <= now
+                        && (earliest == -1 || releaseTimes[i] < releaseTimes[earliest])) {
+                    earliest = i;
+                }
+            }
+            if (earliest == -1) {
+                return;
+            }
+            transport.send(packets[earliest], lengths[earliest]);
+            lengths[earliest] = -1;
+            held--;
+        }
+    }
+
+    /**
+     * Get the number of packets held back
+     * @return the number of packets
+     */
+    public int getHeld() {
+        return held;
+    }
+
+    /**
+     * Get the number of packets dropped, on purpose or because the pool was full
+     * @return the number of packets
+     */
+    public long getDropped() {
+        return dropped;
+    }
+}
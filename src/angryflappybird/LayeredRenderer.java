@@ -0,0 +1,310 @@
+package angryflappybird;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.scene.transform.Scale;
+
+/**
+ * The LayeredRenderer class draws the game scene in immediate mode on three stacked
+ * canvases, the sprites being painted again on every frame. The
+ * background layer shows cached day and night images and crossfades between them
+ * through pre-blended frames, the floor layer draws a pre-tiled floor strip at the
+ * current scroll offset, and the sprite layer holds everything that moves. The
+ * background and floor layers are repainted only when their content changes.
+ * At another scale the canvases have the size of the output and draw through a scale
+ * transform, with the images decoded at that scale
+ * @author Robin Tran, Jennifer Pham
+ */
+public class LayeredRenderer implements Renderer {
+
+    private final Defines DEF;
+
+    // layers, from back to front
+    private final Canvas backgroundLayer;
+    private final Canvas floorLayer;
+    private final Canvas spriteLayer;
+    private final GraphicsContext backgroundGc;
+    private final GraphicsContext floorGc;
+    private final GraphicsContext spriteGc;
+
+    // background frames, from day (first) to night (last), the first and last
+    // frames are the cached day and night images
+    private ImageCache.Entry day;
+    private ImageCache.Entry night;
+    private Image[] backgroundFrames;
+    private int backgroundFrame = -1; // the frame on the background layer
+    private int fadeFrom;
+    private int fadeTo;
+    private long fadeStartTime;
+
+    // floor tiles laid side by side
+    private Image floorStrip;
+    private double floorOffset = Double.NaN; // the offset on the floor layer
+
+    // the sprite images at the output scale
+    private final ScaledImages sprites;
+
+    /**
+     * Construct the layers and prepare the cached background frames and floor strip
+     * @param DEF the game constants and media
+     */
+    public LayeredRenderer(Defines DEF) {
+        this.DEF = DEF;
+
+        backgroundLayer = new Canvas(DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+        floorLayer = new Canvas(DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+        spriteLayer = new Canvas(DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+        backgroundGc = backgroundLayer.getGraphicsContext2D();
+        floorGc = floorLayer.getGraphicsContext2D();
+        spriteGc = spriteLayer.getGraphicsContext2D();
+
+        sprites = new ScaledImages(DEF.IMAGES);
+        prepareImages(1);
+
+        fadeFrom = 0;
+        fadeTo = 0;
+        renderBackground(0);
+    }
+
+    /**
+     * Decode the background and the floor at a scale, and prepare the background
+     * frames and the floor strip from them
+     * @param scale the scale
+     */
+    private void prepareImages(double scale) {
+        int width = (int) Math.round(DEF.SCENE_WIDTH * scale);
+        int height = (int) Math.round(DEF.SCENE_HEIGHT * scale);
+        day = DEF.IMAGES.acquire("background", width, height);
+        night = DEF.IMAGES.acquire("background-night", width, height);
+        backgroundFrames = blendFrames(day.getImage(), night.getImage(),
+                DEF.BACKGROUND_FADE_FRAMES);
+
+        // the strip is a copy, the floor image is not kept
+        ImageCache.Entry floor = DEF.IMAGES.acquire("floor", (int) Math.round(DEF.FLOOR_WIDTH * scale),
+                (int) Math.round(DEF.FLOOR_HEIGHT * scale));
+        floorStrip = tile(floor.getImage(), DEF.FLOOR_COUNT);
+        DEF.IMAGES.release(floor);
+    }
+
+    /**
+     * Size the canvases for the scale and draw on them through the scale, the
+     * canvases themselves are shown at the inverse scale so that one pixel of a
+     * canvas is one pixel of the output
+     */
+    @Override
+    public void setScale(double scale) {
+        if (scale == sprites.getScale()) {
+            return;
+        }
+        DEF.IMAGES.release(day);
+        DEF.IMAGES.release(night);
+        prepareImages(scale);
+        sprites.setScale(scale);
+
+        for (Canvas layer : new Canvas[] {backgroundLayer, floorLayer, spriteLayer}) {
+            layer.setWidth(Math.ceil(DEF.SCENE_WIDTH * scale));
+            layer.setHeight(Math.ceil(DEF.SCENE_HEIGHT * scale));
+            layer.getTransforms().setAll(new Scale(1 / scale, 1 / scale, 0, 0));
+            layer.getGraphicsContext2D().setTransform(scale, 0, 0, scale, 0, 0);
+        }
+
+        // paint the layers again at the new size
+        paintBackground(backgroundFrame);
+        double offsetX = floorOffset;
+        floorOffset = Double.NaN;
+        if (!Double.isNaN(offsetX)) {
+            renderFloor(offsetX);
+        }
+        clearSprites();
+    }
+
+    @Override
+    public void dispose() {
+        DEF.IMAGES.release(day);
+        DEF.IMAGES.release(night);
+        sprites.release();
+    }
+
+    @Override
+    public Node[] getLayers() {
+        return new Node[] {backgroundLayer, floorLayer, spriteLayer};
+    }
+
+    @Override
+    public void beginSprites() {
+        clearSprites();
+    }
+
+    @Override
+    public void drawSprite(Image image, double x, double y, double width, double height,
+            double alpha) {
+        image = sprites.get(image);
+        if (alpha != 1) {
+            spriteGc.setGlobalAlpha(alpha);
+            spriteGc.drawImage(image, x, y, width, height);
+            spriteGc.setGlobalAlpha(1);
+        } else {
+            spriteGc.drawImage(image, x, y, width, height);
+        }
+    }
+
+    @Override
+    public void endSprites() {
+    }
+
+    /**
+     * Clear the sprite layer
+     */
+    @Override
+    public void clearSprites() {
+        spriteGc.clearRect(0, 0, DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+    }
+
+    /**
+     * The effects are drawn on the sprite layer
+     */
+    @Override
+    public GraphicsContext getEffectsContext() {
+        return spriteGc;
+    }
+
+    @Override
+    public boolean isNight() {
+        return fadeTo != 0;
+    }
+
+    @Override
+    public void toggleBackground(long now) {
+        fadeFrom = backgroundFrame;
+        fadeTo = isNight() ? 0 : backgroundFrames.length - 1;
+        fadeStartTime = now;
+    }
+
+    @Override
+    public void setNight(boolean night) {
+        fadeTo = night ? backgroundFrames.length - 1 : 0;
+        fadeFrom = fadeTo;
+        renderBackground(0);
+    }
+
+    /**
+     * Paint the background frame for the current time of the fade. Nothing is
+     * painted when the frame has not changed
+     * @param now the current time in nanoseconds
+     */
+    @Override
+    public void renderBackground(long now) {
+        int frame = fadeTo;
+        if (fadeFrom != fadeTo) {
+            double progress = (now - fadeStartTime) * DEF.NANOSEC_TO_SEC
+                    / DEF.BACKGROUND_FADE_TIME;
+            if (progress < 1) {
+                frame = fadeFrom + (int) Math.round((fadeTo - fadeFrom) * progress);
+            } else {
+                fadeFrom = fadeTo;
+            }
+        }
+        if (frame != backgroundFrame) {
+            paintBackground(frame);
+        }
+    }
+
+    /**
+     * Paint a background frame
+     * @param frame the index of the frame
+     */
+    private void paintBackground(int frame) {
+        backgroundGc.drawImage(backgroundFrames[frame], 0, 0,
+                DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+        backgroundFrame = frame;
+    }
+
+    /**
+     * Paint the floor strip at the given scroll offset. Nothing is painted when
+     * the floor has not moved
+     * @param offsetX x coordinate of the leftmost floor tile
+     */
+    @Override
+    public void renderFloor(double offsetX) {
+        if (offsetX == floorOffset) {
+            return;
+        }
+        floorGc.clearRect(0, 0, DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+        floorGc.drawImage(floorStrip, offsetX, DEF.SCENE_HEIGHT - DEF.FLOOR_HEIGHT,
+                DEF.FLOOR_WIDTH * DEF.FLOOR_COUNT, DEF.FLOOR_HEIGHT);
+        floorOffset = offsetX;
+    }
+
+    /**
+     * Blend two images of the same size into a sequence of frames
+     * @param from the first frame
+     * @param to the last frame
+     * @param count the number of frames, at least 2
+     * @return the frames
+     */
+    private static Image[] blendFrames(Image from, Image to, int count) {
+        int w = (int) from.getWidth();
+        int h = (int) from.getHeight();
+        int[] fromPixels = new int[w * h];
+        int[] toPixels = new int[w * h];
+        int[] blended = new int[w * h];
+        from.getPixelReader().getPixels(0, 0, w, h,
+                PixelFormat.getIntArgbInstance(), fromPixels, 0, w);
+        to.getPixelReader().getPixels(0, 0, w, h,
+                PixelFormat.getIntArgbInstance(), toPixels, 0, w);
+
+        Image[] frames = new Image[count];
+        frames[0] = from;
+        frames[count - 1] = to;
+        for (int k = 1; k < count - 1; k++) {
+            int t = 256 * k / (count - 1);
+            for (int i = 0; i < blended.length; i++) {
+                blended[i] = blend(fromPixels[i], toPixels[i], t);
+            }
+            WritableImage frame = new WritableImage(w, h);
+            frame.getPixelWriter().setPixels(0, 0, w, h,
+                    PixelFormat.getIntArgbInstance(), blended, 0, w);
+            frames[k] = frame;
+        }
+        return frames;
+    }
+
+    /**
+     * Blend two ARGB pixels channel by channel
+     * @param a the first pixel
+     * @param b the second pixel
+     * @param t the weight of the second pixel, from 0 to 256
+     * @return the blended pixel
+     */
+    private static int blend(int a, int b, int t) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int ca = (a >>> shift) & 0xFF;
+            int cb = (b >>> shift) & 0xFF;
+            result |= ((ca * (256 - t) + cb * t) >> 8) << shift;
+        }
+        return result;
+    }
+
+    /**
+     * Lay copies of an image side by side
+     * @param image the image
+     * @param count the number of copies
+     * @return the tiled image
+     */
+    static Image tile(Image image, int count) {
+        int w = (int) image.getWidth();
+        int h = (int) image.getHeight();
+        PixelReader reader = image.getPixelReader();
+        WritableImage strip = new WritableImage(w * count, h);
+        for (int i = 0; i < count; i++) {
+            strip.getPixelWriter().setPixels(i * w, 0, w, h, reader, 0, 0);
+        }
+        return strip;
+    }
+}
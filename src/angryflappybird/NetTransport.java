@@ -0,0 +1,35 @@
+package angryflappybird;
+
+import java.io.IOException;
+
+/**
+ * The NetTransport interface carries the packets of a {@link RollbackSession} to
+ * the other player. Packets may be lost, duplicated or arrive out of order, the
+ * session does not rely on the transport for any of that. Neither sending nor
+ * receiving blocks
+ * @author Robin Tran, Jennifer Pham
+ */
+public interface NetTransport {
+
+    /**
+     * Send a packet to the other player
+     * @param data the bytes of the packet
+     * @param length the number of bytes to send
+     * @throws IOException if the packet cannot be sent
+     */
+    void send(byte[] data, int length) throws IOException;
+
+    /**
+     * Receive the next packet from the other player, if one is waiting
+     * @param data receives the bytes of the packet
+     * @return the number of bytes received, or -1 when no packet is waiting
+     * @throws IOException if the packet cannot be received
+     */
+    int receive(byte[] data) throws IOException;
+
+    /**
+     * Release the transport
+     * @throws IOException if the transport cannot be released
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,214 @@
+package angryflappybird;
+
+import java.util.Random;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * The ParticleSystem class draws the hit and pickup effects directly on the sprite
+ * canvas. Particles live in preallocated arrays, one array per attribute, and a
+ * particle that dies is replaced by the last live one, so updating and drawing cost
+ * time only for the live particles and emitting does not allocate. A full-scene
+ * flash replaces the fade of the whole game scene at game over
+ * @author Robin Tran, Jennifer Pham
+ */
+public class ParticleSystem {
+
+    private static final double GRAVITY = 400; // pixels per second squared
+
+    /**
+     * The effects the game shows, with the look of their particles
+     */
+    public enum Effect {
+        /** The koya hits a pipe */
+        PIPE_HIT(Color.rgb(90, 160, 60), 24, 160, 0.5, 6),
+        /** The koya hits a carrot */
+        CARROT_HIT(Color.rgb(255, 140, 30), 32, 200, 0.6, 6),
+        /** The koya gets a green avocado */
+        AVOCADO(Color.rgb(120, 200, 80), 16, 90, 0.4, 5),
+        /** The koya gets a golden avocado and snoozes */
+        SNOOZE(Color.rgb(255, 215, 0), 40, 120, 0.8, 4);
+
+        final Color color;
+        final int count;
+        final double speed; // pixels per second
+        final double life; // seconds
+        final double size; // pixels
+
+        Effect(Color color, int count, double speed, double life, double size) {
+            this.color = color;
+            this.count = count;
+            this.speed = speed;
+            this.life = life;
+            this.size = size;
+        }
+    }
+
+    private static final Effect[] EFFECTS = Effect.values();
+
+    private final Random random = new Random();
+
+    // live particles are at indexes 0 to count - 1
+    private final double[] x;
+    private final double[] y;
+    private final double[] vx;
+    private final double[] vy;
+    private final double[] age;
+    private final byte[] effect;
+    private int count;
+    private long dropped;
+
+    // full-scene flash
+    private double flashDuration;
+    private double flashTime;
+
+    /**
+     * Construct an empty particle system
+     * @param capacity the largest number of live particles
+     */
+    public ParticleSystem(int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        age = new double[capacity];
+        effect = new byte[capacity];
+    }
+
+    /**
+     * Burst the particles of an effect from a point. Particles that do not fit
+     * are dropped
+     * @param e the effect
+     * @param centerX x coordinate of the point
+     * @param centerY y coordinate of the point
+     */
+    public void emit(Effect e, double centerX, double centerY) {
+        for (int i = 0; i < e.count; i++) {
+            if (count == x.length) {
+                dropped += e.count - i;
+                return;
+            }
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double speed = e.speed * (0.5 + random.nextDouble() * 0.5);
+            x[count] = centerX;
+            y[count] = centerY;
+            vx[count] = Math.cos(angle) * speed;
+            vy[count] = Math.sin(angle) * speed;
+            age[count] = 0;
+            effect[count] = (byte) e.ordinal();
+            count++;
+        }
+    }
+
+    /**
+     * Flash the whole scene white and back
+     * @param duration the duration of the flash in seconds
+     */
+    public void flash(double duration) {
+        flashDuration = duration;
+        flashTime = 0;
+    }
+
+    /**
+     * Move the particles and remove the ones that are too old
+     * @param time the time since the last update in seconds
+     */
+    public void update(double time) {
+        for (int i = 0; i < count; i++) {
+            age[i] += time;
+            if (age[i] >= EFFECTS[effect[i]].life) {
+                // replace the dead particle with the last one and look at it again
+                count--;
+                x[i] = x[count];
+                y[i] = y[count];
+                vx[i] = vx[count];
+                vy[i] = vy[count];
+                age[i] = age[count];
+                effect[i] = effect[count];
+                i--;
+                continue;
+            }
+            vy[i] += GRAVITY * time;
+            x[i] += vx[i] * time;
+            y[i] += vy[i] * time;
+        }
+        if (flashTime < flashDuration) {
+            flashTime += time;
+        }
+    }
+
+    /**
+     * Draw the particles, fading out with age, and the flash
+     * @param gc the graphics context to draw on
+     * @param width the width of the scene
+     * @param height the height of the scene
+     */
+    public void render(GraphicsContext gc, double width, double height) {
+        for (int i = 0; i < count; i++) {
+            Effect e = EFFECTS[effect[i]];
+            gc.setGlobalAlpha(1 - age[i] / e.life);
+            gc.setFill(e.color);
+            gc.fillOval(x[i] - e.size / 2, y[i] - e.size / 2, e.size, e.size);
+        }
+        if (flashTime < flashDuration) {
+            // from clear to white at half the duration and back
+            double progress = flashTime / flashDuration;
+            gc.setGlobalAlpha(1 - Math.abs(2 * progress - 1));
+            gc.setFill(Color.WHITE);
+            gc.fillRect(0, 0, width, height);
+        }
+        gc.setGlobalAlpha(1);
+    }
+
+    /**
+     * Remove every particle and stop the flash
+     */
+    public void clear() {
+        count = 0;
+        flashDuration = 0;
+        flashTime = 0;
+    }
+
+    /**
+     * Check if anything is left to draw
+     * @return if there are live particles or the flash is on
+     */
+    public boolean isActive() {
+        return count > 0 || flashTime < flashDuration;
+    }
+
+    /**
+     * Get the number of live particles
+     * @return the number of particles
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get the number of particles dropped because the arrays were full
+     * @return the number of dropped particles
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Get the x coordinate of a live particle
+     * @param i the index of the particle
+     * @return the x coordinate
+     */
+    public double getX(int i) {
+        return x[i];
+    }
+
+    /**
+     * Get the y coordinate of a live particle
+     * @param i the index of the particle
+     * @return the y coordinate
+     */
+    public double getY(int i) {
+        return y[i];
+    }
+}
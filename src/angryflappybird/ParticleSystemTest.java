@@ -0,0 +1,88 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class ParticleSystemTest {
+
+    private ParticleSystem particles;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        particles = new ParticleSystem(64);
+    }
+
+    /**
+     * Test that particles that do not fit are dropped
+     */
+    @Test
+    void testEmitCapacity() {
+        particles.emit(ParticleSystem.Effect.PIPE_HIT, 10, 20); // 24 particles
+        assertEquals(24, particles.size());
+        assertEquals(10, particles.getX(0));
+        assertEquals(20, particles.getY(0));
+
+        particles.emit(ParticleSystem.Effect.CARROT_HIT, 10, 20); // 32 particles
+        assertEquals(56, particles.size());
+        assertEquals(0, particles.getDropped());
+
+        particles.emit(ParticleSystem.Effect.PIPE_HIT, 10, 20);
+        assertEquals(64, particles.size());
+        assertEquals(16, particles.getDropped());
+        assertTrue(particles.isActive());
+    }
+
+    /**
+     * Test that particles move and are removed once older than their effect
+     */
+    @Test
+    void testUpdate() {
+        particles.emit(ParticleSystem.Effect.AVOCADO, 0, 0); // lives 0.4 seconds
+        particles.emit(ParticleSystem.Effect.SNOOZE, 0, 0); // lives 0.8 seconds
+        assertEquals(56, particles.size());
+
+        particles.update(0.1);
+        assertEquals(56, particles.size());
+        boolean moved = false;
+        for (int i = 0; i < particles.size(); i++) {
+            moved |= particles.getX(i) != 0 || particles.getY(i) != 0;
+        }
+        assertTrue(moved);
+
+        particles.update(0.35);
+        assertEquals(40, particles.size());
+
+        particles.update(0.4);
+        assertEquals(0, particles.size());
+        assertFalse(particles.isActive());
+    }
+
+    /**
+     * Test that the flash keeps the system active for its duration
+     */
+    @Test
+    void testFlash() {
+        particles.flash(0.2);
+        assertTrue(particles.isActive());
+        particles.update(0.1);
+        assertTrue(particles.isActive());
+        particles.update(0.1);
+        assertFalse(particles.isActive());
+
+        particles.flash(0.2);
+        particles.clear();
+        assertFalse(particles.isActive());
+    }
+}
@@ -0,0 +1,501 @@
+package angryflappybird;
+
+import java.util.ArrayList;
+
+import javafx.scene.image.Image;
+
+/**
+ * The Population class holds many koyas that fly through the same pipes, avocados
+ * and carrots of one {@link GameWorld}, so that a whole generation of agents is
+ * evaluated for the cost of one scene. Each koya plays its own game: it has its own
+ * lives, score and snooze, and the obstacles it hits or the avocados it gets do not
+ * change the scene for the others. The koyas are kept in primitive arrays, one per
+ * attribute, and moving them or testing them against an obstacle is one tight loop
+ * over the population. Every koya is in one of the {@link GameState}s READY, FLYING,
+ * SNOOZING, KNOCKBACK or GAME_OVER; a koya that loses a life without losing the game
+ * comes back at its starting position. The koyas collide with their boundaries,
+ * without the pixel masks of the single koya
+ * @author Robin Tran, Jennifer Pham
+ */
+public class Population {
+
+    private static final int LIVES = 3;
+    private static final double DRAWN_ALPHA = 0.35; // opacity of the koyas drawn behind the best one
+
+    // obstacles hit during a frame
+    private static final byte HIT_FLOOR = 1;
+    private static final byte HIT_PIPE = 2;
+    private static final byte HIT_CARROT = 4;
+
+    // sets of koya states, as bits of the state ordinals
+    private static final int COLLIDING = 1 << GameState.FLYING.ordinal();
+    private static final int KNOCKED = 1 << GameState.KNOCKBACK.ordinal();
+    private static final int COLLECTING = COLLIDING | 1 << GameState.SNOOZING.ordinal();
+
+    private static final GameState[] STATES = GameState.values();
+
+    private final Defines DEF;
+    private final int size;
+    private final double width;
+    private final double height;
+
+    // motion, with the position at the start of the frame for swept collision
+    private final double[] x;
+    private final double[] y;
+    private final double[] vx;
+    private final double[] vy;
+    private final double[] fromX;
+    private final double[] fromY;
+    private double minX, maxX; // the horizontal extent of the koyas' motion during the frame
+
+    // game of each koya
+    private final byte[] state; // ordinals of GameState
+    private final int[] lives;
+    private final int[] score;
+    private final long[] clickTime;
+    private final long[] snoozeEnd;
+    private final byte[] hits; // obstacles hit during the frame
+    private final boolean[] hitCarrot; // in knockback, whether a carrot was hit, which ends the game
+    private final int[] greenTaken; // the generation of the last green avocado taken
+    private final int[] goldenTaken; // the generation of the last golden avocado taken
+    private int greenGeneration, goldenGeneration; // counts the avocados put on the pipes
+    private int alive;
+    private int frame; // animation frame counter shared by the koyas
+
+    private final int[] drawn; // the koyas drawn, best first
+
+    /**
+     * Construct a population of koyas, all at the starting position
+     * @param DEF the game constants
+     * @param size the number of koyas
+     */
+    public Population(Defines DEF, int size) {
+        this.DEF = DEF;
+        this.size = size;
+        width = DEF.KOYA_WIDTH;
+        height = DEF.KOYA_HEIGHT;
+        x = new double[size];
+        y = new double[size];
+        vx = new double[size];
+        vy = new double[size];
+        fromX = new double[size];
+        fromY = new double[size];
+        state = new byte[size];
+        lives = new int[size];
+        score = new int[size];
+        clickTime = new long[size];
+        snoozeEnd = new long[size];
+        hits = new byte[size];
+        hitCarrot = new boolean[size];
+        greenTaken = new int[size];
+        goldenTaken = new int[size];
+        drawn = new int[Math.min(size, DEF.POPULATION_DRAWN)];
+        reset();
+    }
+
+    /**
+     * Put every koya back at the starting position with all its lives and no score
+     */
+    public void reset() {
+        for (int i = 0; i < size; i++) {
+            x[i] = DEF.KOYA_POS_X;
+            y[i] = DEF.KOYA_POS_Y;
+            vx[i] = 0;
+            vy[i] = 0;
+            state[i] = (byte) GameState.READY.ordinal();
+            lives[i] = LIVES;
+            score[i] = 0;
+            clickTime[i] = 0;
+            hitCarrot[i] = false;
+            greenTaken[i] = 0;
+            goldenTaken[i] = 0;
+        }
+        greenGeneration = 1;
+        goldenGeneration = 1;
+        alive = size;
+    }
+
+    /**
+     * Start every koya, which drops until it is clicked
+     */
+    public void start() {
+        for (int i = 0; i < size; i++) {
+            if (state[i] == GameState.READY.ordinal()) {
+                state[i] = (byte) GameState.FLYING.ordinal();
+            }
+        }
+    }
+
+    /**
+     * Make a koya fly for a while
+     * @param i the index of the koya
+     * @param now the time of the click in nanoseconds
+     */
+    public void click(int i, long now) {
+        clickTime[i] = now;
+    }
+
+    /**
+     * Set the velocity of every koya for the frame and move it. A snooze that is
+     * over ends here, as part of the same pass
+     * @param elapsedTime the time since the last frame in nanoseconds
+     * @param now the current time in nanoseconds
+     */
+    public void move(long elapsedTime, long now) {
+        frame++;
+        minX = Double.MAX_VALUE;
+        maxX = -Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            int s = state[i];
+            if (s == GameState.SNOOZING.ordinal() && now >= snoozeEnd[i]) {
+                s = GameState.FLYING.ordinal();
+                state[i] = (byte) s;
+            }
+            if (s == GameState.FLYING.ordinal()) {
+                vx[i] = 0;
+                vy[i] = now - clickTime[i] <= DEF.KOYA_DROP_TIME ? DEF.KOYA_FLY_VEL
+                        : DEF.KOYA_DROP_VEL;
+            } else if (s == GameState.SNOOZING.ordinal()) {
+                vx[i] = 0;
+                vy[i] = -10;
+            } else if (s == GameState.KNOCKBACK.ordinal()) {
+                vx[i] = -500;
+                vy[i] = 500;
+            } else {
+                vx[i] = 0;
+                vy[i] = 0;
+            }
+            fromX[i] = x[i];
+            fromY[i] = y[i];
+        }
+        double time = elapsedTime * DEF.NANOSEC_TO_SEC;
+        BatchKinematics.integrate(x, vx, size, time);
+        BatchKinematics.integrate(y, vy, size, time);
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, Math.min(fromX[i], x[i]));
+            maxX = Math.max(maxX, Math.max(fromX[i], x[i]));
+        }
+    }
+
+    /**
+     * Test every koya against the obstacles and the avocados after a move, and run
+     * the rules of each koya's game: the floor ends it, pipes and carrots knock the
+     * koya back, and a koya knocked out of the scene loses a life or the game
+     * @param floors the floors
+     * @param pipes the pipes
+     * @param carrots the carrots
+     * @param avocados the green and the golden avocado
+     * @param time the time the obstacles moved by their velocity during the frame
+     * @param now the current time in nanoseconds
+     */
+    public void collide(ArrayList<Sprite> floors, ArrayList<Sprite> pipes,
+            ArrayList<Sprite> carrots, ArrayList<Sprite> avocados, double time, long now) {
+        for (int i = 0; i < size; i++) {
+            hits[i] = 0;
+        }
+        for (int j = 0; j < floors.size(); j++) {
+            sweep(floors.get(j), HIT_FLOOR, COLLIDING, time);
+        }
+        for (int j = 0; j < pipes.size(); j++) {
+            sweep(pipes.get(j), HIT_PIPE, COLLIDING, time);
+        }
+        sweep(carrots.get(0), HIT_CARROT, COLLIDING | KNOCKED, time);
+
+        Sprite green = avocados.get(0);
+        Sprite golden = avocados.get(1);
+        for (int i = 0; i < size; i++) {
+            int s = state[i];
+            if (s == GameState.FLYING.ordinal() && hits[i] != 0) {
+                if ((hits[i] & HIT_FLOOR) != 0) {
+                    die(i);
+                } else {
+                    hitCarrot[i] = (hits[i] & HIT_CARROT) != 0;
+                    state[i] = (byte) GameState.KNOCKBACK.ordinal();
+                }
+            } else if (s == GameState.KNOCKBACK.ordinal()) {
+                hitCarrot[i] |= (hits[i] & HIT_CARROT) != 0;
+                if (x[i] < -width) {
+                    loseLife(i, now);
+                }
+            }
+
+            // every koya gets its own avocados
+            if ((COLLECTING >> state[i] & 1) != 0) {
+                if (greenTaken[i] != greenGeneration && overlaps(i, green)) {
+                    greenTaken[i] = greenGeneration;
+                    score[i] += 5;
+                }
+                if (goldenTaken[i] != goldenGeneration && overlaps(i, golden)) {
+                    goldenTaken[i] = goldenGeneration;
+                    state[i] = (byte) GameState.SNOOZING.ordinal();
+                    snoozeEnd[i] = now + DEF.SNOOZE_TIME * DEF.SEC_TO_NANOSEC;
+                }
+            }
+        }
+    }
+
+    /**
+     * Test the koyas in the given states against one obstacle. The obstacle's path
+     * is first tested against the extent of every koya's motion, so an obstacle away
+     * from the koyas costs nothing per koya
+     * @param obstacle the obstacle
+     * @param hit the bit recorded for the koyas that hit it
+     * @param states the states tested, as bits of their ordinals
+     * @param time the time the obstacle moved by its velocity during the frame
+     */
+    private void sweep(Sprite obstacle, byte hit, int states, double time) {
+        double shiftX = obstacle.getVelocityX() * time;
+        double shiftY = obstacle.getVelocityY() * time;
+        double left = Math.min(obstacle.getPositionX(), obstacle.getPositionX() - shiftX);
+        double right = Math.max(obstacle.getPositionX(), obstacle.getPositionX() - shiftX)
+                + obstacle.getWidth();
+        if (right <= minX || left >= maxX + width) {
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            if ((states >> state[i] & 1) == 0) {
+                continue;
+            }
+            // follow the motion as seen from the obstacle, as SweptCollision.sweep does
+            double startX = fromX[i] + shiftX;
+            double startY = fromY[i] + shiftY;
+            if (SweptCollision.timeOfImpact(startX, startY, width, height,
+                    x[i] - startX, y[i] - startY, obstacle) != SweptCollision.NO_HIT) {
+                hits[i] |= hit;
+            }
+        }
+    }
+
+    /**
+     * Check if a koya overlaps a sprite where it is now
+     * @param i the index of the koya
+     * @param s the sprite
+     * @return if the boundaries intersect
+     */
+    private boolean overlaps(int i, Sprite s) {
+        return s.getPositionX() + s.getWidth() > x[i] && s.getPositionY() + s.getHeight() > y[i]
+                && s.getPositionX() < x[i] + width && s.getPositionY() < y[i] + height;
+    }
+
+    /**
+     * Take a life from a koya knocked out of the scene, and bring it back if it has
+     * lives left
+     * @param i the index of the koya
+     * @param now the current time in nanoseconds
+     */
+    private void loseLife(int i, long now) {
+        lives[i] = hitCarrot[i] ? 0 : lives[i] - 1;
+        hitCarrot[i] = false;
+        if (lives[i] == 0) {
+            die(i);
+            return;
+        }
+        x[i] = DEF.KOYA_POS_X;
+        y[i] = DEF.KOYA_POS_Y;
+        clickTime[i] = now;
+        state[i] = (byte) GameState.FLYING.ordinal();
+    }
+
+    /**
+     * End the game of a koya
+     * @param i the index of the koya
+     */
+    private void die(int i) {
+        state[i] = (byte) GameState.GAME_OVER.ordinal();
+        alive--;
+    }
+
+    /**
+     * Give a point to every koya in the game when the pipes pass the koyas. They
+     * all fly at the same horizontal position, so they pass the pipes together
+     */
+    public void pipePassed() {
+        for (int i = 0; i < size; i++) {
+            if ((COLLECTING >> state[i] & 1) != 0) {
+                score[i]++;
+            }
+        }
+    }
+
+    /**
+     * Make an avocado put back on a pipe available again to every koya
+     * @param index 0 for the green avocado, 1 for the golden one
+     */
+    public void avocadoRespawned(int index) {
+        if (index == 0) {
+            greenGeneration++;
+        } else {
+            goldenGeneration++;
+        }
+    }
+
+    /**
+     * Draw the best koyas still in the game, the best one on top and the others
+     * faded behind it. The same images are drawn for every koya
+     * @param renderer the renderer of the current frame
+     * @param frames the images of the flying koya animation
+     * @param snoozing the image of a snoozing koya
+     */
+    public void render(Renderer renderer, Image[] frames, Image snoozing) {
+        int count = selectBest();
+        Image flying = frames[Math.floorMod(frame / DEF.KOYA_IMG_PERIOD, frames.length)];
+        for (int k = count - 1; k >= 0; k--) {
+            int i = drawn[k];
+            Image image = state[i] == GameState.SNOOZING.ordinal() ? snoozing : flying;
+            if (image == null) {
+                continue;
+            }
+            renderer.drawSprite(image, x[i], y[i], image.getWidth(), image.getHeight(),
+                    k == 0 ? 1 : DRAWN_ALPHA);
+        }
+    }
+
+    /**
+     * Put the indexes of the best koyas still in the game in the drawn list, best
+     * first, without allocating
+     * @return the number of koyas selected
+     */
+    private int selectBest() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (state[i] == GameState.GAME_OVER.ordinal()) {
+                continue;
+            }
+            if (count == drawn.length && score[i] <= score[drawn[count - 1]]) {
+                continue;
+            }
+            // insert into the sorted list, dropping the last one when it is full
+            int k = count < drawn.length ? count++ : count - 1;
+            while (k > 0 && score[drawn[k - 1]] < score[i]) {
+                drawn[k] = drawn[k - 1];
+                k--;
+            }
+            drawn[k] = i;
+        }
+        return count;
+    }
+
+    /**
+     * Make this population a copy of another one of the same size
+     * @param other the population to copy
+     */
+    public void copyFrom(Population other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("the populations have different sizes");
+        }
+        System.arraycopy(other.x, 0, x, 0, size);
+        System.arraycopy(other.y, 0, y, 0, size);
+        System.arraycopy(other.vx, 0, vx, 0, size);
+        System.arraycopy(other.vy, 0, vy, 0, size);
+        System.arraycopy(other.fromX, 0, fromX, 0, size);
+        System.arraycopy(other.fromY, 0, fromY, 0, size);
+        System.arraycopy(other.state, 0, state, 0, size);
+        System.arraycopy(other.lives, 0, lives, 0, size);
+        System.arraycopy(other.score, 0, score, 0, size);
+        System.arraycopy(other.clickTime, 0, clickTime, 0, size);
+        System.arraycopy(other.snoozeEnd, 0, snoozeEnd, 0, size);
+        System.arraycopy(other.hitCarrot, 0, hitCarrot, 0, size);
+        System.arraycopy(other.greenTaken, 0, greenTaken, 0, size);
+        System.arraycopy(other.goldenTaken, 0, goldenTaken, 0, size);
+        minX = other.minX;
+        maxX = other.maxX;
+        greenGeneration = other.greenGeneration;
+        goldenGeneration = other.goldenGeneration;
+        alive = other.alive;
+        frame = other.frame;
+    }
+
+    /**
+     * Compute a hash of the games of the koyas, to check that two copies of the
+     * population are the same
+     * @return the hash
+     */
+    public long checksum() {
+        long hash = alive;
+        for (int i = 0; i < size; i++) {
+            hash = hash * 31 + Double.doubleToLongBits(x[i]);
+            hash = hash * 31 + Double.doubleToLongBits(y[i]);
+            hash = hash * 31 + state[i];
+            hash = hash * 31 + lives[i];
+            hash = hash * 31 + score[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Get the koya with the best score, among those still in the game when there are
+     * @return the index of the koya
+     */
+    public int getBest() {
+        int best = 0;
+        for (int i = 1; i < size; i++) {
+            boolean in = state[i] != GameState.GAME_OVER.ordinal();
+            boolean bestIn = state[best] != GameState.GAME_OVER.ordinal();
+            if (in && !bestIn || in == bestIn && score[i] > score[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the number of koyas
+     * @return the number of koyas
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of koyas whose game is not over
+     * @return the number of koyas in the game
+     */
+    public int getAlive() {
+        return alive;
+    }
+
+    /**
+     * Get the state of a koya's game
+     * @param i the index of the koya
+     * @return the state
+     */
+    public GameState getState(int i) {
+        return STATES[state[i]];
+    }
+
+    /**
+     * Get the lives left to a koya
+     * @param i the index of the koya
+     * @return the number of lives
+     */
+    public int getLives(int i) {
+        return lives[i];
+    }
+
+    /**
+     * Get the score of a koya
+     * @param i the index of the koya
+     * @return the score
+     */
+    public int getScore(int i) {
+        return score[i];
+    }
+
+    /**
+     * Get the x coordinate of a koya
+     * @param i the index of the koya
+     * @return the x coordinate
+     */
+    public double getPositionX(int i) {
+        return x[i];
+    }
+
+    /**
+     * Get the y coordinate of a koya
+     * @param i the index of the koya
+     * @return the y coordinate
+     */
+    public double getPositionY(int i) {
+        return y[i];
+    }
+}
@@ -0,0 +1,97 @@
+package angryflappybird;
+
+import java.util.Random;
+
+/**
+ * Compares evaluating a population of koyas in one shared world with running one
+ * world per koya, for 100 and 500 koyas. Every koya follows the same simple policy:
+ * it flies whenever it is lower than its own threshold. Run it as a Java application,
+ * the results are printed in nanoseconds per koya and step
+ * @author Robin Tran, Jennifer Pham
+ */
+public class PopulationBenchmark {
+
+    private static final int[] SIZES = {100, 500};
+    private static final long KOYA_STEPS_PER_SIZE = 5000000; // koya steps timed for each size
+    private static final long FRAME_TIME = 16666667; // nanoseconds per frame at 60 fps
+
+    public static void main(String[] args) {
+        Defines DEF = new Defines(false);
+        System.out.printf("%10s %16s %16s%n", "koyas", "worlds ns/op", "shared ns/op");
+        for (int size : SIZES) {
+            int steps = (int) Math.max(1, KOYA_STEPS_PER_SIZE / size);
+
+            GameWorld[] worlds = new GameWorld[size];
+            for (int i = 0; i < size; i++) {
+                GameWorld world = new GameWorld(DEF, new Random(size));
+                world.setListener(new GameListener() {
+                    @Override
+                    public void lifeLost() {
+                        world.reset();
+                    }
+
+                    @Override
+                    public void gameOver() {
+                        world.reset();
+                    }
+                });
+                worlds[i] = world;
+            }
+            GameWorld shared = new GameWorld(DEF, new Random(size), size);
+            shared.setListener(new GameListener() {
+                @Override
+                public void gameOver() {
+                    shared.reset();
+                }
+            });
+
+            // warm up both, then time them
+            runWorlds(worlds, steps);
+            runShared(shared, steps);
+            double worldsNs = runWorlds(worlds, steps) / ((double) steps * size);
+            double sharedNs = runShared(shared, steps) / ((double) steps * size);
+            System.out.printf("%10d %16.1f %16.1f%n", size, worldsNs, sharedNs);
+        }
+    }
+
+    /**
+     * Get the height under which a koya flies, different for every koya
+     * @param i the index of the koya
+     * @return the y coordinate
+     */
+    private static double threshold(int i) {
+        return 150 + i % 200;
+    }
+
+    private static long runWorlds(GameWorld[] worlds, int steps) {
+        long start = System.nanoTime();
+        long now = 0;
+        for (int s = 0; s < steps; s++) {
+            now += FRAME_TIME;
+            for (int i = 0; i < worlds.length; i++) {
+                GameWorld world = worlds[i];
+                if (!world.isStarted() || world.getKoya().getPositionY() > threshold(i)) {
+                    world.click(now);
+                }
+                world.step(FRAME_TIME, now);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runShared(GameWorld shared, int steps) {
+        Population population = shared.getPopulation();
+        long start = System.nanoTime();
+        long now = 0;
+        for (int s = 0; s < steps; s++) {
+            now += FRAME_TIME;
+            for (int i = 0; i < population.size(); i++) {
+                if (population.getPositionY(i) > threshold(i)) {
+                    shared.click(i, now);
+                }
+            }
+            shared.step(FRAME_TIME, now);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class PopulationTest {
+
+    private static final long FRAME_TIME = 16666667; // nanoseconds per frame at 60 fps
+
+    private Defines DEF;
+    private GameWorld world;
+    private Population population;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        DEF = new Defines(false);
+        world = new GameWorld(DEF, new Random(42), 3);
+        population = world.getPopulation();
+    }
+
+    /**
+     * Test that a koya of the population flies exactly like the single koya given
+     * the same clicks, while the koyas that are not clicked drop to the floor
+     */
+    @Test
+    void testKoyaMatchesSingleGame() {
+        GameWorld single = new GameWorld(DEF, new Random(42));
+        long now = FRAME_TIME;
+        single.click(now);
+        world.click(now);
+        assertEquals(GameState.FLYING, population.getState(1));
+
+        for (int i = 0; i < 200 && single.getState() == GameState.FLYING; i++) {
+            if (i % 18 == 0) {
+                single.click(now);
+                world.click(0, now);
+            }
+            now += FRAME_TIME;
+            single.step(FRAME_TIME, now);
+            world.step(FRAME_TIME, now);
+            if (single.getState() == GameState.FLYING) {
+                assertEquals(single.getKoya().getPositionY(), population.getPositionY(0));
+                assertEquals(single.getScore(), population.getScore(0));
+            }
+        }
+        assertEquals(GameState.GAME_OVER, population.getState(1));
+        assertEquals(GameState.GAME_OVER, population.getState(2));
+        assertEquals(0, population.getBest());
+        assertEquals(1, population.getAlive());
+        assertEquals(GameState.FLYING, world.getState());
+    }
+
+    /**
+     * Test that the game is over once every koya's game is over, and that reset
+     * starts every koya again
+     */
+    @Test
+    void testGameOverAndReset() {
+        long now = 0;
+        world.click(now);
+        for (int i = 0; i < 1000 && !world.isGameOver(); i++) {
+            now += FRAME_TIME;
+            world.step(FRAME_TIME, now);
+        }
+        assertTrue(world.isGameOver());
+        assertEquals(0, population.getAlive());
+
+        world.reset();
+        assertEquals(3, population.getAlive());
+        for (int i = 0; i < population.size(); i++) {
+            assertEquals(GameState.READY, population.getState(i));
+            assertEquals(3, population.getLives(i));
+            assertEquals(DEF.KOYA_POS_Y, population.getPositionY(i));
+        }
+    }
+
+    /**
+     * Test that a population tick does not allocate, across lost lives and new games
+     */
+    @Test
+    void testTickDoesNotAllocate() {
+        world = new GameWorld(DEF, new Random(7), 200);
+        population = world.getPopulation();
+        world.setListener(new GameListener() {
+            @Override
+            public void gameOver() {
+                world.reset();
+            }
+        });
+        AllocationTracker allocations = new AllocationTracker();
+        GameClock clock = GameClock.virtual(FRAME_TIME);
+        for (int round = 0; round < 2; round++) {
+            allocations.reset();
+            for (int i = 0; i < 5000; i++) {
+                allocations.begin();
+                long now = clock.tick();
+                world.click(i % 200, now);
+                if (i % 20 == 0) {
+                    world.click(now);
+                }
+                world.step(clock.getElapsed(), now);
+                allocations.end();
+            }
+        }
+        assertEquals(0, allocations.getAverageBytes(), 0);
+    }
+}
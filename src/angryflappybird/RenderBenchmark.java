@@ -0,0 +1,314 @@
+package angryflappybird;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.transform.Scale;
+import javafx.stage.Stage;
+
+/**
+ * The RenderBenchmark class measures how expensive our frames are to draw. It replays
+ * scripted scenes, the normal game and stress scenes with hundreds of pipes, avocados
+ * and carrots, through each {@link Renderer} and forces every frame to be rasterised
+ * with a snapshot, so the renderer that is the fastest on a deployment target can be
+ * picked with the angryflappybird.renderer property. Start it with
+ * {@link RenderBenchmarkLauncher}, which runs it headless on the Monocle platform with
+ * the software Prism pipeline by default, so it needs no display and no GPU. Options:
+ * --frames=N (measured frames per run), --stress=N,N,... (extra sprites per category),
+ * --scale=S (the window scale, the single canvas scales every image when drawn, the
+ * others draw images decoded at that scale)
+ * @author Robin Tran, Jennifer Pham
+ */
+public class RenderBenchmark extends Application {
+
+    private static final long FRAME_TIME = 16666667; // nanoseconds per simulated frame
+    private static final int WARMUP_FRAMES = 120;
+
+    /**
+     * The ways of drawing a frame that are compared
+     */
+    enum Strategy {
+        SINGLE, // clear and repaint background, floor and sprites on one canvas
+        LAYERED, // repaint only the layers of LayeredRenderer that changed
+        RETAINED // move the recycled nodes of RetainedRenderer
+    }
+
+    private Defines DEF;
+
+    @Override
+    public void start(Stage primaryStage) throws Exception {
+        Map<String, String> options = getParameters().getNamed();
+        int frames = Integer.parseInt(options.getOrDefault("frames", "600"));
+        String[] stress = options.getOrDefault("stress", "100,300").split(",");
+        double scale = Double.parseDouble(options.getOrDefault("scale", "1"));
+
+        // the sounds are not needed and there may be no sound device
+        DEF = new Defines(true, false);
+
+        System.out.printf("prism.order=%s glass.platform=%s scale=%s%n",
+                System.getProperty("prism.order"), System.getProperty("glass.platform"), scale);
+        System.out.printf("%-12s %-8s %8s %12s %12s %10s%n", "scene", "strategy",
+                "frames", "draw ms", "raster ms", "fps");
+        for (Strategy strategy : Strategy.values()) {
+            run("game", 0, strategy, frames, scale);
+        }
+        for (String count : stress) {
+            for (Strategy strategy : Strategy.values()) {
+                run("stress-" + count.trim(), Integer.parseInt(count.trim()), strategy, frames, scale);
+            }
+        }
+        Platform.exit();
+    }
+
+    /**
+     * Replay a scene and print its draw time per frame and frames per second
+     * @param name the name of the scene
+     * @param extras the number of extra pipes, avocados and carrots each
+     * @param strategy how the frames are drawn
+     * @param frames the number of frames measured
+     * @param scale the scale of the window
+     */
+    private void run(String name, int extras, Strategy strategy, int frames, double scale) {
+        Random random = new Random(1);
+        GameWorld world = new GameWorld(DEF, random);
+        world.setListener(new GameListener() {
+            @Override
+            public void lifeLost() {
+                world.reset();
+            }
+
+            @Override
+            public void gameOver() {
+                world.reset();
+            }
+        });
+        ArrayList<ImageCache.Entry> images = new ArrayList<>();
+        ArrayList<Sprite> sprites = createExtras(extras, random, images);
+
+        // the nodes to draw on
+        Renderer renderer;
+        if (strategy == Strategy.SINGLE) {
+            renderer = new SingleCanvasRenderer(DEF);
+        } else if (strategy == Strategy.LAYERED) {
+            renderer = new LayeredRenderer(DEF);
+        } else {
+            renderer = new RetainedRenderer(DEF);
+        }
+        Group root = new Group(renderer.getLayers());
+        root.getTransforms().add(new Scale(scale, scale, 0, 0));
+        renderer.setScale(scale);
+        int width = (int) Math.ceil(DEF.SCENE_WIDTH * scale);
+        int height = (int) Math.ceil(DEF.SCENE_HEIGHT * scale);
+        new Scene(root, width, height);
+        WritableImage frame = new WritableImage(width, height);
+
+        // the frames are simulated as fast as they can be drawn
+        GameClock clock = GameClock.virtual(FRAME_TIME);
+        long drawTime = 0;
+        long rasterTime = 0;
+        for (int i = -WARMUP_FRAMES; i < frames; i++) {
+
+            // script: click every 20 frames and scroll the extra sprites
+            long now = clock.tick();
+            if (i % 20 == 0) {
+                world.click(now);
+            }
+            world.step(clock.getElapsed(), now);
+            scroll(sprites);
+
+            // draw the frame
+            long start = System.nanoTime();
+            if (now % 10000000000L < FRAME_TIME) {
+                renderer.toggleBackground(now);
+            }
+            renderer.renderBackground(now);
+            renderer.renderFloor(world.getFloorOffset());
+            renderer.beginSprites();
+            for (int j = 0; j < sprites.size(); j++) {
+                sprites.get(j).render(renderer);
+            }
+            world.render(renderer);
+            renderer.endSprites();
+            long drawn = System.nanoTime();
+
+            // rasterise the frame
+            root.snapshot(null, frame);
+            long rasterised = System.nanoTime();
+
+            if (i >= 0) {
+                drawTime += drawn - start;
+                rasterTime += rasterised - drawn;
+            }
+        }
+
+        // give the images back to the cache
+        for (ImageCache.Entry entry : images) {
+            DEF.IMAGES.release(entry);
+        }
+        renderer.dispose();
+        world.dispose();
+
+        double drawMs = drawTime / 1e6 / frames;
+        double rasterMs = rasterTime / 1e6 / frames;
+        System.out.printf("%-12s %-8s %8d %12.3f %12.3f %10.1f%n", name,
+                strategy.name().toLowerCase(), frames, drawMs, rasterMs,
+                1000 / (drawMs + rasterMs));
+    }
+
+    /**
+     * Create extra pipes, avocados and carrots at random places
+     * @param count the number of sprites of each kind
+     * @param random the random generator
+     * @param images receives the images acquired from the image cache
+     * @return the sprites
+     */
+    private ArrayList<Sprite> createExtras(int count, Random random,
+            ArrayList<ImageCache.Entry> images) {
+        ArrayList<Sprite> sprites = new ArrayList<>(count * 3);
+        List<String> names = List.of("pipe0", "pipe1", "avocado", "yellowavocado", "carrot");
+        List<Integer> widths = List.of(DEF.PIPE_WIDTH, DEF.PIPE_WIDTH, DEF.AVOCADO_WIDTH,
+                DEF.AVOCADO_WIDTH, DEF.CARROT_WIDTH);
+        List<Integer> heights = List.of(DEF.PIPE_HEIGHT, DEF.PIPE_HEIGHT, DEF.AVOCADO_HEIGHT,
+                DEF.AVOCADO_HEIGHT, DEF.CARROT_HEIGHT);
+        for (int i = 0; i < names.size(); i++) {
+            images.add(DEF.IMAGES.acquire(names.get(i), widths.get(i), heights.get(i)));
+        }
+        for (int i = 0; i < count * 3; i++) {
+            Image image = images.get(i % images.size()).getImage();
+            Sprite sprite = new Sprite(random.nextDouble() * DEF.SCENE_WIDTH,
+                    random.nextDouble() * DEF.SCENE_HEIGHT, image);
+            sprite.setVelocity(DEF.SCENE_SHIFT_INCR, 0);
+            sprites.add(sprite);
+        }
+        return sprites;
+    }
+
+    /**
+     * Scroll the extra sprites and bring them back on the right when they leave on the left
+     * @param sprites the sprites
+     */
+    private void scroll(ArrayList<Sprite> sprites) {
+        for (int i = 0; i < sprites.size(); i++) {
+            Sprite sprite = sprites.get(i);
+            sprite.update(DEF.SCENE_SHIFT_TIME);
+            if (sprite.getPositionX() < -sprite.getWidth()) {
+                sprite.setPositionXY(DEF.SCENE_WIDTH, sprite.getPositionY());
+            }
+        }
+    }
+
+    /**
+     * The renderer of the single strategy, which paints the whole frame on one
+     * canvas: the background, without fading, and the floor tiles on every frame,
+     * then the sprites
+     * @author Robin Tran, Jennifer Pham
+     */
+    private static class SingleCanvasRenderer implements Renderer {
+
+        private final Defines DEF;
+        private final Canvas canvas;
+        private final GraphicsContext gc;
+        private final ImageCache.Entry day;
+        private final ImageCache.Entry night;
+        private final ImageCache.Entry floor;
+        private boolean isNight;
+
+        SingleCanvasRenderer(Defines DEF) {
+            this.DEF = DEF;
+            canvas = new Canvas(DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+            gc = canvas.getGraphicsContext2D();
+            day = DEF.IMAGES.acquire("background", DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+            night = DEF.IMAGES.acquire("background-night", DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+            floor = DEF.IMAGES.acquire("floor", DEF.FLOOR_WIDTH, DEF.FLOOR_HEIGHT);
+        }
+
+        @Override
+        public Node[] getLayers() {
+            return new Node[] {canvas};
+        }
+
+        @Override
+        public boolean isNight() {
+            return isNight;
+        }
+
+        @Override
+        public void toggleBackground(long now) {
+            isNight = !isNight;
+        }
+
+        @Override
+        public void setNight(boolean night) {
+            isNight = night;
+        }
+
+        /**
+         * Size the canvas for the scale and draw through the scale, with the
+         * images at the size of the game scene
+         */
+        @Override
+        public void setScale(double scale) {
+            canvas.setWidth(Math.ceil(DEF.SCENE_WIDTH * scale));
+            canvas.setHeight(Math.ceil(DEF.SCENE_HEIGHT * scale));
+            canvas.getTransforms().setAll(new Scale(1 / scale, 1 / scale, 0, 0));
+            gc.setTransform(scale, 0, 0, scale, 0, 0);
+        }
+
+        @Override
+        public void renderBackground(long now) {
+            gc.clearRect(0, 0, DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+            gc.drawImage((isNight ? night : day).getImage(), 0, 0);
+        }
+
+        @Override
+        public void renderFloor(double offsetX) {
+            for (int i = 0; i < DEF.FLOOR_COUNT; i++) {
+                gc.drawImage(floor.getImage(), offsetX + i * DEF.FLOOR_WIDTH,
+                        DEF.SCENE_HEIGHT - DEF.FLOOR_HEIGHT);
+            }
+        }
+
+        @Override
+        public void beginSprites() {
+        }
+
+        @Override
+        public void drawSprite(Image image, double x, double y, double width, double height,
+                double alpha) {
+            gc.setGlobalAlpha(alpha);
+            gc.drawImage(image, x, y, width, height);
+            gc.setGlobalAlpha(1);
+        }
+
+        @Override
+        public void endSprites() {
+        }
+
+        @Override
+        public void clearSprites() {
+        }
+
+        @Override
+        public GraphicsContext getEffectsContext() {
+            return gc;
+        }
+
+        @Override
+        public void dispose() {
+            DEF.IMAGES.release(day);
+            DEF.IMAGES.release(night);
+            DEF.IMAGES.release(floor);
+        }
+    }
+}
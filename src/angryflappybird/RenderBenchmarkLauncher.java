@@ -0,0 +1,37 @@
+package angryflappybird;
+
+import javafx.application.Application;
+
+/**
+ * The RenderBenchmarkLauncher class starts {@link RenderBenchmark} headless. The
+ * JavaFX launcher starts the toolkit before the main method of an Application class
+ * runs, so the platform has to be chosen here, in a class that is not one: the
+ * Monocle headless platform and the software Prism pipeline, unless other ones are
+ * given on the command line. The options are those of {@link RenderBenchmark}
+ * @author Robin Tran, Jennifer Pham
+ */
+public class RenderBenchmarkLauncher {
+
+    /**
+     * Choose the headless platform and run the benchmark
+     * @param args the options of the benchmark
+     */
+    public static void main(String[] args) {
+        setDefault("glass.platform", "Monocle");
+        setDefault("monocle.platform", "Headless");
+        setDefault("prism.order", "sw");
+        setDefault("prism.text", "t2k");
+        Application.launch(RenderBenchmark.class, args);
+    }
+
+    /**
+     * Set a system property unless it was given on the command line
+     * @param key the property
+     * @param value the default value
+     */
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package angryflappybird;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+
+/**
+ * The Renderer interface is how the game scene is drawn: a background that fades
+ * between day and night, a scrolling floor, the sprites of the frame and the effects
+ * over them. {@link LayeredRenderer} paints canvases in immediate mode and
+ * {@link RetainedRenderer} moves recycled scene graph nodes; which one is faster
+ * depends on the graphics pipeline, so it is chosen at startup with the
+ * angryflappybird.renderer property and compared with {@link RenderBenchmark}.
+ * Everything is drawn in the coordinates of the game scene; a larger window shows
+ * the layers through one scale transform, and the renderer is told the scale so it
+ * can draw images decoded at the size they are shown at
+ * @author Robin Tran, Jennifer Pham
+ */
+public interface Renderer {
+
+    /**
+     * Get the nodes to add to the game scene, from back to front
+     * @return the layers
+     */
+    Node[] getLayers();
+
+    /**
+     * Check if the background shows, or is fading to, the night
+     * @return if the background is at night
+     */
+    boolean isNight();
+
+    /**
+     * Start fading the background from day to night or from night to day
+     * @param now the current time in nanoseconds
+     */
+    void toggleBackground(long now);
+
+    /**
+     * Show the day or the night background right away, without fading
+     * @param night whether to show the night background
+     */
+    void setNight(boolean night);
+
+    /**
+     * Show the background for the current time of the fade
+     * @param now the current time in nanoseconds
+     */
+    void renderBackground(long now);
+
+    /**
+     * Show the floor at the given scroll offset
+     * @param offsetX x coordinate of the leftmost floor tile
+     */
+    void renderFloor(double offsetX);
+
+    /**
+     * Start a new frame of sprites, the sprites of the last frame are replaced by the
+     * ones drawn until {@link #endSprites()}
+     */
+    void beginSprites();
+
+    /**
+     * Draw a sprite of the current frame, over the sprites drawn before it
+     * @param image the image of the sprite
+     * @param x x coordinate of the top left corner
+     * @param y y coordinate of the top left corner
+     * @param width the width the image is drawn at
+     * @param height the height the image is drawn at
+     * @param alpha the opacity, 1 for opaque
+     */
+    void drawSprite(Image image, double x, double y, double width, double height, double alpha);
+
+    /**
+     * Finish the frame of sprites
+     */
+    void endSprites();
+
+    /**
+     * Remove every sprite and effect from the scene
+     */
+    void clearSprites();
+
+    /**
+     * Get the graphics context the effects of the current frame are drawn on, over
+     * the sprites. It is cleared with the sprites
+     * @return the graphics context
+     */
+    GraphicsContext getEffectsContext();
+
+    /**
+     * Set the scale the layers are shown at. The images are decoded again at that
+     * scale, the background and the floor are shown again and the sprites are
+     * cleared, to be drawn with the next frame
+     * @param scale the scale, 1 for the size of the game scene
+     */
+    void setScale(double scale);
+
+    /**
+     * Give the images the renderer holds back to the image cache. The renderer must
+     * not be used afterwards
+     */
+    void dispose();
+}
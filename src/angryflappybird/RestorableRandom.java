@@ -0,0 +1,58 @@
+package angryflappybird;
+
+import java.util.Random;
+
+/**
+ * The RestorableRandom class is a {@link Random} whose state can be read and set,
+ * so that a snapshot of a {@link GameWorld} also captures what its random generator
+ * will draw next. It uses the same linear congruential generator as Random, so a
+ * RestorableRandom draws the same numbers as a Random built with the same seed.
+ * Only the numbers built from {@link #next(int)} are restored exactly;
+ * {@link Random#nextGaussian()} keeps a spare value that is not part of the state
+ * @author Robin Tran, Jennifer Pham
+ */
+public class RestorableRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    /**
+     * Construct a generator
+     * @param seed the seed, as given to {@link Random#Random(long)}
+     */
+    public RestorableRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Get the state of the generator
+     * @return the state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Set the state of the generator, as returned by {@link #getState()}
+     * @param state the state
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,259 @@
+package angryflappybird;
+
+import java.util.ArrayList;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.transform.Scale;
+
+/**
+ * The RetainedRenderer class draws the game scene in retained mode: nothing is
+ * painted by the game, every sprite is an {@link ImageView} and a frame only moves
+ * the views and changes their images. The views are created once and recycled from
+ * frame to frame, the ones not needed are hidden. The night background is a view
+ * over the day one whose opacity is the fade, and the floor is a pre-tiled strip
+ * that is moved to the scroll offset. The effects are still painted, on a canvas
+ * over the sprites that is only cleared after something was drawn on it. At another
+ * scale the views keep the sizes of the game scene and show images decoded at that
+ * scale, which the scale transform of the window brings back to their pixel size
+ * @author Robin Tran, Jennifer Pham
+ */
+public class RetainedRenderer implements Renderer {
+
+    private final Defines DEF;
+
+    // layers, from back to front
+    private final ImageView dayView;
+    private final ImageView nightView;
+    private final ImageView floorView;
+    private final Group spriteLayer;
+    private final Canvas effectsLayer;
+    private final GraphicsContext effectsGc;
+    private boolean effectsDrawn;
+
+    private ImageCache.Entry day;
+    private ImageCache.Entry night;
+    private final ScaledImages sprites; // the sprite images at the output scale
+
+    // the night fade, from 0 for the day to 1 for the night
+    private double fadeFrom;
+    private double fadeTo;
+    private long fadeStartTime;
+
+    // sprite views, the first used ones show the current frame and the first
+    // shown ones are visible
+    private final ArrayList<ImageView> views = new ArrayList<>();
+    private int used;
+    private int shown;
+
+    /**
+     * Construct the layers and the first sprite views
+     * @param DEF the game constants and media
+     */
+    public RetainedRenderer(Defines DEF) {
+        this.DEF = DEF;
+
+        dayView = new ImageView();
+        nightView = new ImageView();
+        nightView.setOpacity(0);
+        floorView = new ImageView();
+        floorView.setTranslateY(DEF.SCENE_HEIGHT - DEF.FLOOR_HEIGHT);
+        for (ImageView view : new ImageView[] {dayView, nightView}) {
+            view.setFitWidth(DEF.SCENE_WIDTH);
+            view.setFitHeight(DEF.SCENE_HEIGHT);
+        }
+        floorView.setFitWidth(DEF.FLOOR_WIDTH * DEF.FLOOR_COUNT);
+        floorView.setFitHeight(DEF.FLOOR_HEIGHT);
+        sprites = new ScaledImages(DEF.IMAGES);
+        prepareImages(1);
+
+        spriteLayer = new Group();
+        for (int i = 0; i < DEF.RETAINED_VIEWS; i++) {
+            addView();
+        }
+        effectsLayer = new Canvas(DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+        effectsGc = effectsLayer.getGraphicsContext2D();
+    }
+
+    /**
+     * Decode the background and the floor at a scale and show them
+     * @param scale the scale
+     */
+    private void prepareImages(double scale) {
+        int width = (int) Math.round(DEF.SCENE_WIDTH * scale);
+        int height = (int) Math.round(DEF.SCENE_HEIGHT * scale);
+        day = DEF.IMAGES.acquire("background", width, height);
+        night = DEF.IMAGES.acquire("background-night", width, height);
+        dayView.setImage(day.getImage());
+        nightView.setImage(night.getImage());
+
+        // the strip is a copy, the floor image is not kept
+        ImageCache.Entry floor = DEF.IMAGES.acquire("floor", (int) Math.round(DEF.FLOOR_WIDTH * scale),
+                (int) Math.round(DEF.FLOOR_HEIGHT * scale));
+        floorView.setImage(LayeredRenderer.tile(floor.getImage(), DEF.FLOOR_COUNT));
+        DEF.IMAGES.release(floor);
+    }
+
+    /**
+     * Show the background and the floor decoded at the scale, and size the effects
+     * canvas for it, the canvas being shown at the inverse scale
+     */
+    @Override
+    public void setScale(double scale) {
+        if (scale == sprites.getScale()) {
+            return;
+        }
+        DEF.IMAGES.release(day);
+        DEF.IMAGES.release(night);
+        prepareImages(scale);
+        sprites.setScale(scale);
+
+        effectsLayer.setWidth(Math.ceil(DEF.SCENE_WIDTH * scale));
+        effectsLayer.setHeight(Math.ceil(DEF.SCENE_HEIGHT * scale));
+        effectsLayer.getTransforms().setAll(new Scale(1 / scale, 1 / scale, 0, 0));
+        effectsGc.setTransform(scale, 0, 0, scale, 0, 0);
+        effectsDrawn = true;
+        clearSprites();
+    }
+
+    @Override
+    public Node[] getLayers() {
+        return new Node[] {dayView, nightView, floorView, spriteLayer, effectsLayer};
+    }
+
+    @Override
+    public boolean isNight() {
+        return fadeTo != 0;
+    }
+
+    @Override
+    public void toggleBackground(long now) {
+        fadeFrom = nightView.getOpacity();
+        fadeTo = isNight() ? 0 : 1;
+        fadeStartTime = now;
+    }
+
+    @Override
+    public void setNight(boolean night) {
+        fadeTo = night ? 1 : 0;
+        fadeFrom = fadeTo;
+        nightView.setOpacity(fadeTo);
+    }
+
+    /**
+     * Set the opacity of the night view for the current time of the fade
+     * @param now the current time in nanoseconds
+     */
+    @Override
+    public void renderBackground(long now) {
+        if (fadeFrom == fadeTo) {
+            return;
+        }
+        double progress = (now - fadeStartTime) * DEF.NANOSEC_TO_SEC / DEF.BACKGROUND_FADE_TIME;
+        if (progress < 1) {
+            nightView.setOpacity(fadeFrom + (fadeTo - fadeFrom) * progress);
+        } else {
+            nightView.setOpacity(fadeTo);
+            fadeFrom = fadeTo;
+        }
+    }
+
+    /**
+     * Move the floor strip to the given scroll offset
+     * @param offsetX x coordinate of the leftmost floor tile
+     */
+    @Override
+    public void renderFloor(double offsetX) {
+        floorView.setTranslateX(offsetX);
+    }
+
+    @Override
+    public void beginSprites() {
+        used = 0;
+        if (effectsDrawn) {
+            effectsGc.clearRect(0, 0, DEF.SCENE_WIDTH, DEF.SCENE_HEIGHT);
+            effectsDrawn = false;
+        }
+    }
+
+    /**
+     * Show the sprite with the next free view, a view is only created when a frame
+     * has more sprites than any frame before. Setting a property of a view to the
+     * value it has does not change the scene graph
+     */
+    @Override
+    public void drawSprite(Image image, double x, double y, double width, double height,
+            double alpha) {
+        if (used == views.size()) {
+            addView();
+        }
+        ImageView view = views.get(used++);
+        view.setImage(sprites.get(image));
+        view.setTranslateX(x);
+        view.setTranslateY(y);
+        view.setFitWidth(width);
+        view.setFitHeight(height);
+        view.setOpacity(alpha);
+        view.setVisible(true);
+    }
+
+    /**
+     * Hide the views that showed sprites in the last frame and not in this one
+     */
+    @Override
+    public void endSprites() {
+        for (int i = used; i < shown; i++) {
+            views.get(i).setVisible(false);
+        }
+        shown = used;
+    }
+
+    @Override
+    public void clearSprites() {
+        beginSprites();
+        endSprites();
+    }
+
+    @Override
+    public GraphicsContext getEffectsContext() {
+        effectsDrawn = true;
+        return effectsGc;
+    }
+
+    @Override
+    public void dispose() {
+        DEF.IMAGES.release(day);
+        DEF.IMAGES.release(night);
+        sprites.release();
+    }
+
+    /**
+     * Get the number of sprite views, visible or not
+     * @return the number of views
+     */
+    public int getViewCount() {
+        return views.size();
+    }
+
+    /**
+     * Get the number of sprite views visible
+     * @return the number of views
+     */
+    public int getVisibleCount() {
+        return shown;
+    }
+
+    /**
+     * Create a hidden sprite view on top of the others
+     */
+    private void addView() {
+        ImageView view = new ImageView();
+        view.setVisible(false);
+        views.add(view);
+        spriteLayer.getChildren().add(view);
+    }
+}
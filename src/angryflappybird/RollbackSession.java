@@ -0,0 +1,563 @@
+package angryflappybird;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The RollbackSession class runs a head-to-head game between two players on two
+ * machines, where each machine only sends the inputs of its player. Both machines
+ * run the same world, a population of two koyas, in fixed ticks with the same seed,
+ * so the same inputs give the same game. The input of the other player for a tick
+ * is not known yet when the tick runs, so it is predicted to be no flap; when the
+ * real input arrives and differs, the world goes back to the snapshot taken before
+ * that tick and the ticks since are run again with the right inputs.
+ * <p>
+ * Snapshots are copies of the world in a preallocated ring, one per tick, and a
+ * tick runs without allocating, so going back several ticks takes well under a
+ * millisecond. Every packet repeats the inputs the other player has not
+ * acknowledged, so a lost packet only delays them, and carries a checksum of a
+ * tick both players know all the inputs of, to detect a desync. A player that gets
+ * more than {@link Defines#NETPLAY_MAX_ROLLBACK} ticks ahead of the inputs of the
+ * other one waits for them
+ * @author Robin Tran, Jennifer Pham
+ */
+public class RollbackSession {
+
+    /** The number of players of a session */
+    public static final int PLAYERS = 2;
+
+    private static final short MAGIC = 0x4146; // "AF"
+    private static final int HISTORY = 128; // ticks of inputs kept, a power of two
+    private static final int MAX_INPUTS = 64; // inputs sent in one packet
+    private static final int CHECKSUM_INTERVAL = 16; // ticks between two checked states
+    /** The size of the largest packet */
+    public static final int PACKET_SIZE = 2 + 4 + 1 + MAX_INPUTS + 4 + 4 + 8;
+
+    private final GameWorld world;
+    private final GameWorld[] snapshots; // the world before tick t at t % length
+    private final int player;
+    private final NetTransport transport;
+    private final long tickTime;
+    private final int maxRollback;
+
+    // inputs and the state they gave, at tick & (HISTORY - 1)
+    private final boolean[] localInputs = new boolean[HISTORY];
+    private final boolean[] remoteInputs = new boolean[HISTORY];
+    private final boolean[] usedRemoteInputs = new boolean[HISTORY]; // confirmed or predicted
+    private final long[] checksums = new long[HISTORY]; // of the world before the tick
+
+    private int frame; // the next tick to run
+    private int confirmedRemote = -1; // the last tick the remote inputs are known up to
+    private int peerAck = -1; // the last tick the other player knows our inputs up to
+    private int rollbackFrom = Integer.MAX_VALUE; // the first tick run with a wrong prediction
+    private int peerChecksumFrame = -1;
+    private long peerChecksum;
+    private int lastVerified = -1;
+
+    private final byte[] sendData = new byte[PACKET_SIZE];
+    private final byte[] receiveData = new byte[PACKET_SIZE];
+    private final ByteBuffer out = ByteBuffer.wrap(sendData);
+    private final ByteBuffer in = ByteBuffer.wrap(receiveData);
+
+    private GameListener listener = new GameListener() { };
+    private boolean resimulating;
+
+    // statistics
+    private long rollbacks;
+    private long resimulatedFrames;
+    private long lastRollbackNanos;
+    private long maxRollbackNanos;
+    private long stalls;
+    private long desyncs;
+    private long verifiedChecksums;
+    private long packetsSent;
+    private long packetsReceived;
+    private long packetsRejected;
+
+    /**
+     * Construct a session. Both players use the same seed and the same constants
+     * @param DEF the game constants
+     * @param seed the seed of the world
+     * @param player the index of the local player, 0 or 1
+     * @param transport the packets to and from the other player
+     */
+    public RollbackSession(Defines DEF, long seed, int player, NetTransport transport) {
+        if (player < 0 || player >= PLAYERS) {
+            throw new IllegalArgumentException("player must be 0 or 1: " + player);
+        }
+        this.player = player;
+        this.transport = transport;
+        tickTime = DEF.NETPLAY_TICK;
+        maxRollback = DEF.NETPLAY_MAX_ROLLBACK;
+        world = new GameWorld(DEF, new RestorableRandom(seed), PLAYERS);
+        world.setListener(new Gate());
+        snapshots = new GameWorld[maxRollback + 2];
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = new GameWorld(DEF, new RestorableRandom(seed), PLAYERS);
+        }
+    }
+
+    /**
+     * Set the listener that receives the events of the world. The sounds, effects
+     * and background shifts of the ticks that are run again are not repeated
+     * @param listener the listener
+     */
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Run the next tick with the input of the local player, after taking in the
+     * packets of the other player and going back if a prediction was wrong. Nothing
+     * runs when the other player is too far behind
+     * @param flap if the local player flaps in this tick
+     * @return if the tick ran, false when waiting for the other player
+     * @throws IOException if the transport fails
+     */
+    public boolean advance(boolean flap) throws IOException {
+        receive();
+        rollback();
+        if (frame - confirmedRemote > maxRollback || frame - peerAck > HISTORY - MAX_INPUTS) {
+            stalls++;
+            send();
+            return false;
+        }
+        localInputs[frame & (HISTORY - 1)] = flap;
+        simulate(frame);
+        frame++;
+        send();
+        return true;
+    }
+
+    /**
+     * Take in the packets of the other player, go back if a prediction was wrong and
+     * send the inputs again, without running a new tick. This keeps the session
+     * alive when the local game does not move
+     * @throws IOException if the transport fails
+     */
+    public void poll() throws IOException {
+        receive();
+        rollback();
+        send();
+    }
+
+    /**
+     * Run one tick from the world as it is: save the snapshot, apply the inputs of
+     * both players, known or predicted, and step the world
+     * @param f the tick
+     */
+    private void simulate(int f) {
+        int index = f & (HISTORY - 1);
+        snapshots[f % snapshots.length].copyFrom(world);
+        if (f % CHECKSUM_INTERVAL == 0) {
+            checksums[index] = world.checksum();
+        }
+
+        boolean remote = f <= confirmedRemote && remoteInputs[index];
+        usedRemoteInputs[index] = remote;
+        boolean flap0 = player == 0 ? localInputs[index] : remote;
+        boolean flap1 = player == 1 ? localInputs[index] : remote;
+
+        long now = (f + 1L) * tickTime;
+        if (world.isGameOver() && (flap0 || flap1)) {
+            // a flap after the game over starts a new game on both machines
+            world.reset();
+        }
+        if (!world.isStarted()) {
+            world.click(now);
+        }
+        if (flap0) {
+            world.click(0, now);
+        }
+        if (flap1) {
+            world.click(1, now);
+        }
+        world.step(tickTime, now);
+    }
+
+    /**
+     * Go back to the first tick run with a wrong prediction and run the ticks since
+     * with the inputs known now
+     */
+    private void rollback() {
+        if (rollbackFrom >= frame) {
+            rollbackFrom = Integer.MAX_VALUE;
+            return;
+        }
+        long start = System.nanoTime();
+        world.copyFrom(snapshots[rollbackFrom % snapshots.length]);
+        resimulating = true;
+        for (int f = rollbackFrom; f < frame; f++) {
+            simulate(f);
+            resimulatedFrames++;
+        }
+        resimulating = false;
+        listener.scoreChanged(world.getScore());
+        rollbacks++;
+        lastRollbackNanos = System.nanoTime() - start;
+        maxRollbackNanos = Math.max(maxRollbackNanos, lastRollbackNanos);
+        rollbackFrom = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Take in every packet waiting: store the new remote inputs, note the first one
+     * that differs from its prediction, and check the state of the other player
+     * @throws IOException if the transport fails
+     */
+    private void receive() throws IOException {
+        int length;
+        while ((length = transport.receive(receiveData)) != -1) {
+            in.clear();
+            if (length < PACKET_SIZE - MAX_INPUTS || in.getShort() != MAGIC) {
+                packetsRejected++;
+                continue;
+            }
+            int first = in.getInt();
+            int count = in.get();
+            if (count < 0 || count > MAX_INPUTS || length < PACKET_SIZE - MAX_INPUTS + count) {
+                packetsRejected++;
+                continue;
+            }
+            packetsReceived++;
+
+            // inputs are taken in order, the ones after a gap are sent again
+            for (int i = 0; i < count; i++) {
+                boolean flap = in.get() != 0;
+                int f = first + i;
+                if (f == confirmedRemote + 1) {
+                    int index = f & (HISTORY - 1);
+                    remoteInputs[index] = flap;
+                    confirmedRemote = f;
+                    if (f < frame && usedRemoteInputs[index] != flap) {
+                        rollbackFrom = Math.min(rollbackFrom, f);
+                    }
+                }
+            }
+            peerAck = Math.max(peerAck, in.getInt());
+            int checksumFrame = in.getInt();
+            long checksum = in.getLong();
+            if (checksumFrame > peerChecksumFrame) {
+                peerChecksumFrame = checksumFrame;
+                peerChecksum = checksum;
+            }
+        }
+        verify();
+    }
+
+    /**
+     * Compare the last state the other player sent with ours, once we know all the
+     * inputs before it
+     */
+    private void verify() {
+        int f = peerChecksumFrame;
+        if (f <= lastVerified || f > confirmedRemote + 1 || f >= frame
+                || rollbackFrom < f || frame - f >= HISTORY) {
+            return;
+        }
+        if (checksums[f & (HISTORY - 1)] == peerChecksum) {
+            verifiedChecksums++;
+        } else {
+            desyncs++;
+        }
+        lastVerified = f;
+    }
+
+    /**
+     * Send the local inputs the other player has not acknowledged, our
+     * acknowledgement of its inputs and the checksum of the last state it can check
+     * @throws IOException if the transport fails
+     */
+    private void send() throws IOException {
+        int first = peerAck + 1;
+        int count = Math.min(frame - first, MAX_INPUTS);
+        out.clear();
+        out.putShort(MAGIC);
+        out.putInt(first);
+        out.put((byte) count);
+        for (int i = 0; i < count; i++) {
+            out.put((byte) (localInputs[(first + i) & (HISTORY - 1)] ? 1 : 0));
+        }
+        out.putInt(confirmedRemote);
+
+        // the last state both players know all the inputs before
+        int known = Math.min(confirmedRemote + 1, frame - 1);
+        int checksumFrame = known < 0 ? -1 : known - known % CHECKSUM_INTERVAL;
+        out.putInt(checksumFrame);
+        out.putLong(checksumFrame < 0 ? 0 : checksums[checksumFrame & (HISTORY - 1)]);
+        transport.send(sendData, out.position());
+        packetsSent++;
+    }
+
+    /**
+     * Receives the events of the world and passes them on to the listener, except
+     * for the ones that were already shown when a tick is run again
+     * @author Robin Tran, Jennifer Pham
+     */
+    private class Gate implements GameListener {
+
+        @Override
+        public void playSound(String name) {
+            if (!resimulating) {
+                listener.playSound(name);
+            }
+        }
+
+        @Override
+        public void effect(ParticleSystem.Effect effect, double x, double y) {
+            if (!resimulating) {
+                listener.effect(effect, x, y);
+            }
+        }
+
+        @Override
+        public void shiftBackground(long now) {
+            // the background shifts on time, the same whatever the inputs
+            if (!resimulating) {
+                listener.shiftBackground(now);
+            }
+        }
+
+        @Override
+        public void scoreChanged(int score) {
+            listener.scoreChanged(score);
+        }
+
+        @Override
+        public void livesChanged(int lives) {
+            listener.livesChanged(lives);
+        }
+
+        @Override
+        public void snoozeChanged(int secondsLeft) {
+            listener.snoozeChanged(secondsLeft);
+        }
+
+        @Override
+        public void stateChanged(GameState from, GameState to) {
+            listener.stateChanged(from, to);
+        }
+
+        @Override
+        public void getReadyDone() {
+            listener.getReadyDone();
+        }
+
+        @Override
+        public void lifeLost() {
+            listener.lifeLost();
+        }
+
+        @Override
+        public void gameOver() {
+            listener.gameOver();
+        }
+    }
+
+    /**
+     * Release the transport
+     * @throws IOException if the transport cannot be released
+     */
+    public void close() throws IOException {
+        transport.close();
+    }
+
+    /**
+     * Get the world both players play in
+     * @return the world
+     */
+    public GameWorld getWorld() {
+        return world;
+    }
+
+    /**
+     * Get the index of the local player
+     * @return 0 or 1
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Get the number of ticks run
+     * @return the next tick to run
+     */
+    public int getFrame() {
+        return frame;
+    }
+
+    /**
+     * Get the last tick the inputs of the other player are known up to
+     * @return the tick, -1 before any is known
+     */
+    public int getConfirmedFrame() {
+        return confirmedRemote;
+    }
+
+    /**
+     * Get the number of times the world went back to a snapshot
+     * @return the number of rollbacks
+     */
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    /**
+     * Get the number of ticks run again after a rollback
+     * @return the number of ticks
+     */
+    public long getResimulatedFrames() {
+        return resimulatedFrames;
+    }
+
+    /**
+     * Get the time the last rollback took, restoring and running the ticks again
+     * @return the time in nanoseconds
+     */
+    public long getLastRollbackNanos() {
+        return lastRollbackNanos;
+    }
+
+    /**
+     * Get the time the longest rollback took
+     * @return the time in nanoseconds
+     */
+    public long getMaxRollbackNanos() {
+        return maxRollbackNanos;
+    }
+
+    /**
+     * Get the number of times a tick waited for the other player
+     * @return the number of stalls
+     */
+    public long getStalls() {
+        return stalls;
+    }
+
+    /**
+     * Get the number of states that differed from the ones of the other player
+     * @return the number of desyncs
+     */
+    public long getDesyncs() {
+        return desyncs;
+    }
+
+    /**
+     * Get the number of states found equal to the ones of the other player
+     * @return the number of checksums verified
+     */
+    public long getVerifiedChecksums() {
+        return verifiedChecksums;
+    }
+
+    /**
+     * Get the number of packets sent
+     * @return the number of packets
+     */
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    /**
+     * Get the number of packets received
+     * @return the number of packets
+     */
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    /**
+     * Get the number of packets that were not packets of a session
+     * @return the number of packets
+     */
+    public long getPacketsRejected() {
+        return packetsRejected;
+    }
+
+    /**
+     * Play a scripted game against another process, to try the netcode on loopback.
+     * Both processes run the given number of ticks in real time, then wait for the
+     * last inputs and print the checksum of their world, which must be the same.
+     * Arguments: --player 0|1 --port localPort --peer host:port [--frames n]
+     * [--latency ms] [--jitter ms] [--loss probability] [--seed n]
+     * @param args the arguments
+     * @throws Exception if the transport fails
+     */
+    public static void main(String[] args) throws Exception {
+        int player = 0;
+        int port = 7000;
+        String peer = "127.0.0.1:7001";
+        int frames = 1200;
+        double latency = 0;
+        double jitter = 0;
+        double loss = 0;
+        long seed = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "--player": player = Integer.parseInt(args[i + 1]); break;
+            case "--port": port = Integer.parseInt(args[i + 1]); break;
+            case "--peer": peer = args[i + 1]; break;
+            case "--frames": frames = Integer.parseInt(args[i + 1]); break;
+            case "--latency": latency = Double.parseDouble(args[i + 1]); break;
+            case "--jitter": jitter = Double.parseDouble(args[i + 1]); break;
+            case "--loss": loss = Double.parseDouble(args[i + 1]); break;
+            case "--seed": seed = Long.parseLong(args[i + 1]); break;
+            default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        Defines DEF = new Defines(false);
+        UdpTransport udp = new UdpTransport(port, PACKET_SIZE);
+        int colon = peer.lastIndexOf(':');
+        udp.setPeer(new InetSocketAddress(peer.substring(0, colon),
+                Integer.parseInt(peer.substring(colon + 1))));
+        NetTransport transport = latency > 0 || jitter > 0 || loss > 0
+                ? new LatencyShim(udp, (long) (latency * 1e6), (long) (jitter * 1e6), loss, seed + player)
+                : udp;
+        RollbackSession session = new RollbackSession(DEF, seed, player, transport);
+
+        // run the ticks in real time, waiting for the other player when needed
+        long next = System.nanoTime();
+        while (session.getFrame() < frames) {
+            int f = session.getFrame();
+            session.advance(scriptedFlap(f, player));
+            next += session.tickTime;
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+
+        // wait for the last inputs, then keep answering for a while so that the
+        // other player gets ours
+        long deadline = System.nanoTime() + 5 * DEF.SEC_TO_NANOSEC;
+        while (session.getConfirmedFrame() < frames - 1 && System.nanoTime() < deadline) {
+            session.poll();
+            LockSupport.parkNanos(session.tickTime);
+        }
+        long linger = System.nanoTime() + DEF.SEC_TO_NANOSEC;
+        while (System.nanoTime() < linger) {
+            session.poll();
+            LockSupport.parkNanos(session.tickTime);
+        }
+
+        GameWorld world = session.getWorld();
+        System.out.printf("player %d: %d ticks, confirmed %d, score %d, checksum %016x%n",
+                player, session.getFrame(), session.getConfirmedFrame(), world.getScore(), world.checksum());
+        System.out.printf("rollbacks %d, ticks run again %d, longest rollback %.3f ms, stalls %d%n",
+                session.getRollbacks(), session.getResimulatedFrames(),
+                session.getMaxRollbackNanos() / 1e6, session.getStalls());
+        System.out.printf("checksums verified %d, desyncs %d, packets sent %d, received %d%n",
+                session.getVerifiedChecksums(), session.getDesyncs(),
+                session.getPacketsSent(), session.getPacketsReceived());
+        session.close();
+    }
+
+    /**
+     * The flaps of the scripted game of {@link #main(String[])}
+     * @param frame the tick
+     * @param player the player
+     * @return if the player flaps in the tick
+     */
+    static boolean scriptedFlap(int frame, int player) {
+        return (frame * 7 + player * 13) % 23 == 0;
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class RollbackSessionTest {
+
+    private static final long SEED = 7;
+    private static final int FRAMES = 1200;
+
+    private Defines DEF;
+
+    /**
+     * A transport that hands the packets directly to the other end
+     */
+    private static class MemoryTransport implements NetTransport {
+        private final ArrayDeque<byte[]> inbox = new ArrayDeque<>();
+        private MemoryTransport peer;
+
+        @Override
+        public void send(byte[] data, int length) {
+            peer.inbox.add(Arrays.copyOf(data, length));
+        }
+
+        @Override
+        public int receive(byte[] data) {
+            byte[] packet = inbox.poll();
+            if (packet == null) {
+                return -1;
+            }
+            System.arraycopy(packet, 0, data, 0, packet.length);
+            return packet.length;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        DEF = new Defines(false);
+    }
+
+    /**
+     * Test that a world restored from a snapshot runs exactly like the world the
+     * snapshot was taken from, random pipe heights included
+     */
+    @Test
+    void testSnapshotRestore() {
+        GameWorld world = new GameWorld(DEF, new RestorableRandom(SEED), 2);
+        GameWorld snapshot = new GameWorld(DEF, new RestorableRandom(0), 2);
+        long now = DEF.NETPLAY_TICK;
+        world.click(now);
+        for (int i = 0; i < 300; i++) {
+            now += DEF.NETPLAY_TICK;
+            world.step(DEF.NETPLAY_TICK, now);
+        }
+        snapshot.copyFrom(world);
+        assertEquals(world.checksum(), snapshot.checksum());
+
+        long savedNow = now;
+        for (int i = 0; i < 600; i++) {
+            now += DEF.NETPLAY_TICK;
+            if (i % 20 == 0) {
+                world.click(i % 40 == 0 ? 0 : 1, now);
+            }
+            world.step(DEF.NETPLAY_TICK, now);
+        }
+        long expected = world.checksum();
+
+        world.copyFrom(snapshot);
+        now = savedNow;
+        for (int i = 0; i < 600; i++) {
+            now += DEF.NETPLAY_TICK;
+            if (i % 20 == 0) {
+                world.click(i % 40 == 0 ? 0 : 1, now);
+            }
+            world.step(DEF.NETPLAY_TICK, now);
+        }
+        assertEquals(expected, world.checksum());
+    }
+
+    /**
+     * Test that two sessions talking through a network with latency, jitter and
+     * losses end in the same world as a game run with all the inputs known, after
+     * going back on their wrong predictions
+     * @throws IOException if the transport fails
+     */
+    @Test
+    void testConvergesUnderLatencyAndLoss() throws IOException {
+        long[] time = new long[1];
+        MemoryTransport left = new MemoryTransport();
+        MemoryTransport right = new MemoryTransport();
+        left.peer = right;
+        right.peer = left;
+        long latency = 50000000;
+        RollbackSession a = new RollbackSession(DEF, SEED, 0,
+                new LatencyShim(left, latency, 20000000, 0.2, 1, () -> time[0], 256, RollbackSession.PACKET_SIZE));
+        RollbackSession b = new RollbackSession(DEF, SEED, 1,
+                new LatencyShim(right, latency, 20000000, 0.2, 2, () -> time[0], 256, RollbackSession.PACKET_SIZE));
+
+        for (int i = 0; i < FRAMES * 3 && !settled(a, b); i++) {
+            step(a);
+            step(b);
+            time[0] += DEF.NETPLAY_TICK;
+        }
+
+        long expected = referenceChecksum();
+        assertEquals(expected, a.getWorld().checksum());
+        assertEquals(expected, b.getWorld().checksum());
+        assertTrue(a.getRollbacks() > 0);
+        assertTrue(a.getStalls() > 0);
+        assertTrue(a.getResimulatedFrames() <= a.getRollbacks() * (DEF.NETPLAY_MAX_ROLLBACK + 1));
+        assertEquals(0, a.getDesyncs() + b.getDesyncs());
+        assertTrue(a.getVerifiedChecksums() > 0 && b.getVerifiedChecksums() > 0);
+    }
+
+    /**
+     * Test two sessions over UDP on loopback
+     * @throws Exception if the transport fails
+     */
+    @Test
+    void testUdpLoopback() throws Exception {
+        UdpTransport left = new UdpTransport(0, RollbackSession.PACKET_SIZE);
+        UdpTransport right = new UdpTransport(0, RollbackSession.PACKET_SIZE);
+        left.setPeer(new InetSocketAddress("127.0.0.1", right.getLocalPort()));
+        right.setPeer(new InetSocketAddress("127.0.0.1", left.getLocalPort()));
+        RollbackSession a = new RollbackSession(DEF, SEED, 0, left);
+        RollbackSession b = new RollbackSession(DEF, SEED, 1, right);
+        try {
+            long deadline = System.nanoTime() + 20 * DEF.SEC_TO_NANOSEC;
+            while (!settled(a, b) && System.nanoTime() < deadline) {
+                step(a);
+                step(b);
+                Thread.sleep(0, 100000);
+            }
+            long expected = referenceChecksum();
+            assertEquals(expected, a.getWorld().checksum());
+            assertEquals(expected, b.getWorld().checksum());
+            assertEquals(0, a.getPacketsRejected() + b.getPacketsRejected());
+        } finally {
+            a.close();
+            b.close();
+        }
+    }
+
+    /**
+     * Run the next scripted tick of a session, or only exchange packets once it
+     * ran them all
+     * @param session the session
+     * @throws IOException if the transport fails
+     */
+    private void step(RollbackSession session) throws IOException {
+        if (session.getFrame() < FRAMES) {
+            session.advance(RollbackSession.scriptedFlap(session.getFrame(), session.getPlayer()));
+        } else {
+            session.poll();
+        }
+    }
+
+    /**
+     * Check if both sessions ran every tick and know all the inputs of the other
+     * @param a a session
+     * @param b the other session
+     * @return if both are done
+     */
+    private boolean settled(RollbackSession a, RollbackSession b) {
+        return a.getFrame() == FRAMES && b.getFrame() == FRAMES
+                && a.getConfirmedFrame() == FRAMES - 1 && b.getConfirmedFrame() == FRAMES - 1;
+    }
+
+    /**
+     * Run the scripted game in a single world with the inputs of both players known
+     * @return the checksum of the world at the end
+     */
+    private long referenceChecksum() {
+        GameWorld world = new GameWorld(DEF, new RestorableRandom(SEED), 2);
+        for (int f = 0; f < FRAMES; f++) {
+            boolean flap0 = RollbackSession.scriptedFlap(f, 0);
+            boolean flap1 = RollbackSession.scriptedFlap(f, 1);
+            long now = (f + 1L) * DEF.NETPLAY_TICK;
+            if (world.isGameOver() && (flap0 || flap1)) {
+                world.reset();
+            }
+            if (!world.isStarted()) {
+                world.click(now);
+            }
+            if (flap0) {
+                world.click(0, now);
+            }
+            if (flap1) {
+                world.click(1, now);
+            }
+            world.step(DEF.NETPLAY_TICK, now);
+        }
+        return world.checksum();
+    }
+}
@@ -0,0 +1,77 @@
+package angryflappybird;
+
+import java.util.IdentityHashMap;
+
+import javafx.scene.image.Image;
+
+/**
+ * The ScaledImages class gives a renderer the images of the sprites decoded at the
+ * output scale, so that a larger window does not scale every sprite on every draw.
+ * The copy of an image is acquired from the {@link ImageCache} the first time the
+ * image is drawn at a scale, then found by identity, which does not allocate. An
+ * image the cache did not decode is drawn as it is. Changing the scale gives the
+ * copies back to the cache
+ * @author Robin Tran, Jennifer Pham
+ */
+final class ScaledImages {
+
+    private final ImageCache cache;
+    private final IdentityHashMap<Image, ImageCache.Entry> copies = new IdentityHashMap<>(); // null for images drawn as they are
+    private double scale = 1;
+
+    /**
+     * Construct the copies at a scale of 1, the images themselves
+     * @param cache the cache that decoded the images
+     */
+    ScaledImages(ImageCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Set the output scale
+     * @param scale the scale, 1 for the size of the game scene
+     */
+    void setScale(double scale) {
+        release();
+        this.scale = scale;
+    }
+
+    /**
+     * Get the output scale
+     * @return the scale
+     */
+    double getScale() {
+        return scale;
+    }
+
+    /**
+     * Get the copy of an image at the output scale
+     * @param image the image at the size of the game scene
+     * @return the copy, or the image itself at a scale of 1 or when the cache did
+     * not decode it
+     */
+    Image get(Image image) {
+        if (scale == 1) {
+            return image;
+        }
+        ImageCache.Entry copy = copies.get(image);
+        if (copy == null && !copies.containsKey(image)) {
+            ImageCache.Entry entry = cache.find(image);
+            copy = entry == null ? null : cache.acquireScaled(entry, scale);
+            copies.put(image, copy);
+        }
+        return copy == null ? image : copy.getImage();
+    }
+
+    /**
+     * Give the copies back to the cache
+     */
+    void release() {
+        for (ImageCache.Entry copy : copies.values()) {
+            if (copy != null) {
+                cache.release(copy);
+            }
+        }
+        copies.clear();
+    }
+}
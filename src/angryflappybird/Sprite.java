@@ -19,6 +19,8 @@ public class Sprite {
     private double velocityY;
     private double width;
     private double height;
+    private CollisionMask mask;
+    private boolean fixedPoint; // positions and velocities on the grid of FixedPoint
     private String IMAGE_DIR = "../resources/images/";
 
     /**
@@ -45,6 +47,23 @@ public class Sprite {
         this.velocityY = 0;
     }
     
+    /**
+     * Construct a new Sprite object with the specified position and size but
+     * no image. Such a sprite takes part in the game but is not rendered
+     * 
+     * @param pX x coordinate of the sprite's position
+     * @param pY y coordinate of the sprite's position
+     * @param width the width of the sprite
+     * @param height the height of the sprite
+     */
+    public Sprite(double pX, double pY, double width, double height) {
+        setPositionXY(pX, pY);
+        this.width = width;
+        this.height = height;
+        this.velocityX = 0;
+        this.velocityY = 0;
+    }
+    
     /** 
      * Set the image for the sprite
      * @param image
@@ -55,12 +74,53 @@ public class Sprite {
         this.height = image.getHeight();
     }
     
+    /**
+     * Set the collision mask for the sprite. A sprite without a mask collides
+     * with its whole boundary
+     * @param mask the opaque pixels of the sprite's image
+     */
+    public void setMask(CollisionMask mask) {
+        this.mask = mask;
+    }
+    
+    /**
+     * Get the collision mask of the sprite
+     * @return the collision mask, or null if the sprite has none
+     */
+    public CollisionMask getMask() {
+        return mask;
+    }
+    
+    /**
+     * Turn the fixed-point physics on or off. With fixed-point physics, the position
+     * and the velocity are rounded to the grid of {@link FixedPoint} when set, and the
+     * sprite moves with integer arithmetic
+     * @param fixedPoint if the sprite uses fixed-point physics
+     */
+    public void setFixedPoint(boolean fixedPoint) {
+        this.fixedPoint = fixedPoint;
+        setPositionXY(positionX, positionY);
+        setVelocity(velocityX, velocityY);
+    }
+    
+    /**
+     * Check if the sprite uses fixed-point physics
+     * @return if the sprite uses fixed-point physics
+     */
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+    
     /**
      * Set the position for the spirte
      * @param positionX
      * @param positionY
      */
     public void setPositionXY(double positionX, double positionY) {
+        if (fixedPoint) {
+            positionX = FixedPoint.snap(positionX);
+            positionY = FixedPoint.snap(positionY);
+        }
         this.positionX = positionX;
         this.positionY = positionY;
     }
@@ -87,6 +147,10 @@ public class Sprite {
      * @param velocityY
      */
     public void setVelocity(double velocityX, double velocityY) {
+        if (fixedPoint) {
+            velocityX = FixedPoint.snap(velocityX);
+            velocityY = FixedPoint.snap(velocityY);
+        }
         this.velocityX = velocityX;
         this.velocityY = velocityY;
     }
@@ -97,8 +161,7 @@ public class Sprite {
      * @param y
      */
     public void addVelocity(double x, double y) {
-        this.velocityX += x;
-        this.velocityY += y;
+        setVelocity(velocityX + x, velocityY + y);
     }
     
     /**
@@ -125,13 +188,35 @@ public class Sprite {
         return width;
     }
     
+    /**
+     * Get the height of the sprite
+     * @return the height of the sprite
+     */
+    public double getHeight() {
+        return height;
+    }
+    
     /**
      * Render the image
      * @param gc
      */
     public void render(GraphicsContext gc) {
+        if (image == null) {
+            return;
+        }
         gc.drawImage(image, positionX, positionY, width, height);
     }
+
+    /**
+     * Render the image with a renderer
+     * @param renderer the renderer of the current frame
+     */
+    public void render(Renderer renderer) {
+        if (image == null) {
+            return;
+        }
+        renderer.drawSprite(image, positionX, positionY, width, height, 1);
+    }
     
     /**
      * Get the boundary of the sprite
@@ -147,7 +232,44 @@ public class Sprite {
      * @return if intersection happens
      */
     public boolean intersectsSprite(Sprite s) {
-        return s.getBoundary().intersects(this.getBoundary());
+        return intersectsSpriteAt(positionX, positionY, s);
+    }
+    
+    /**
+     * Check if the sprite would intersect another sprite at the given position
+     * @param x x coordinate to test the sprite at
+     * @param y y coordinate to test the sprite at
+     * @param s the other sprite
+     * @return if intersection happens
+     */
+    public boolean intersectsSpriteAt(double x, double y, Sprite s) {
+        // broad phase: the boundaries must intersect
+        if (!(s.positionX + s.width > x && s.positionY + s.height > y
+                && s.positionX < x + width && s.positionY < y + height)) {
+            return false;
+        }
+        if (mask == null || s.mask == null) {
+            return true;
+        }
+        // narrow phase: opaque pixels must overlap
+        return mask.overlaps(s.mask, (int) Math.round(s.positionX - x),
+                (int) Math.round(s.positionY - y));
+    }
+    
+    /**
+     * Make this sprite a copy of another one: image, mask, size, position and velocity
+     * @param other the sprite to copy
+     */
+    public void copyFrom(Sprite other) {
+        image = other.image;
+        mask = other.mask;
+        width = other.width;
+        height = other.height;
+        positionX = other.positionX;
+        positionY = other.positionY;
+        velocityX = other.velocityX;
+        velocityY = other.velocityY;
+        fixedPoint = other.fixedPoint;
     }
     
     /**
@@ -155,7 +277,23 @@ public class Sprite {
      * @param time the elapsed time since the last update in seconds
      */
     public void update(double time) {
+        if (fixedPoint) {
+            updateFixed(FixedPoint.of(time));
+            return;
+        }
         positionX += velocityX * time;
         positionY += velocityY * time;
     }
+
+    /**
+     * Updates the position of the sprite based on its velocity with integer
+     * arithmetic only, the fixed-point physics
+     * @param time the elapsed time since the last update in fixed-point seconds
+     */
+    public void updateFixed(long time) {
+        positionX = FixedPoint.toDouble(FixedPoint.of(positionX)
+                + FixedPoint.mul(FixedPoint.of(velocityX), time));
+        positionY = FixedPoint.toDouble(FixedPoint.of(positionY)
+                + FixedPoint.mul(FixedPoint.of(velocityY), time));
+    }
 }
@@ -0,0 +1,204 @@
+package angryflappybird;
+
+/**
+ * The SweptCollision class finds when a moving sprite first touches another sprite
+ * during a frame, instead of only testing where the sprite ends up. This keeps a
+ * fast koya, or a long frame, from carrying the koya through a thin obstacle. A
+ * sprite with fixed-point physics is swept with integer arithmetic, so the time
+ * of impact is the same on every JVM
+ * @author Robin Tran, Jennifer Pham
+ */
+public final class SweptCollision {
+
+    /** Returned when the sprites do not collide during the frame */
+    public static final double NO_HIT = -1;
+
+    private SweptCollision() {
+    }
+
+    /**
+     * Compute when a moving box starts to overlap a fixed box, using the slab method
+     * on the fixed box grown by the size of the moving box
+     * @param x x coordinate of the moving box at the start of the motion
+     * @param y y coordinate of the moving box at the start of the motion
+     * @param width the width of the moving box
+     * @param height the height of the moving box
+     * @param dx the motion in the horizontal direction
+     * @param dy the motion in the vertical direction
+     * @param target the fixed box
+     * @return the fraction of the motion, from 0 to 1, at which the boxes start to
+     * overlap, or {@link #NO_HIT}
+     */
+    public static double timeOfImpact(double x, double y, double width,
+            double height, double dx, double dy, Sprite target) {
+        double minX = target.getPositionX() - width;
+        double maxX = target.getPositionX() + target.getWidth();
+        double minY = target.getPositionY() - height;
+        double maxY = target.getPositionY() + target.getHeight();
+
+        double enter = Double.NEGATIVE_INFINITY;
+        double exit = Double.POSITIVE_INFINITY;
+
+        // horizontal slab
+        if (dx == 0) {
+            if (!(x > minX && x < maxX)) {
+                return NO_HIT;
+            }
+        } else {
+            double t1 = (minX - x) / dx;
+            double t2 = (maxX - x) / dx;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+
+        // vertical slab
+        if (dy == 0) {
+            if (!(y > minY && y < maxY)) {
+                return NO_HIT;
+            }
+        } else {
+            double t1 = (minY - y) / dy;
+            double t2 = (maxY - y) / dy;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+
+        if (enter >= exit || exit <= 0 || enter > 1) {
+            return NO_HIT;
+        }
+        return Math.max(enter, 0);
+    }
+
+    /**
+     * Compute when a sprite that moved during the frame first hit another sprite that
+     * may have scrolled during the same frame. When both sprites have a collision mask,
+     * the path is followed pixel by pixel from the moment the boundaries meet
+     * @param moving the sprite, at its position at the end of the frame
+     * @param fromX x coordinate of the sprite at the start of the frame
+     * @param fromY y coordinate of the sprite at the start of the frame
+     * @param target the other sprite, at its position at the end of the frame
+     * @param time the time the other sprite moved by its velocity during the frame
+     * @return the fraction of the motion, from 0 to 1, at which the sprites first
+     * collide, or {@link #NO_HIT}
+     */
+    public static double sweep(Sprite moving, double fromX, double fromY,
+            Sprite target, double time) {
+        if (moving.isFixedPoint()) {
+            return sweepFixed(moving, fromX, fromY, target, time);
+        }
+
+        // follow the motion as seen from the other sprite
+        double startX = fromX + target.getVelocityX() * time;
+        double startY = fromY + target.getVelocityY() * time;
+        double dx = moving.getPositionX() - startX;
+        double dy = moving.getPositionY() - startY;
+
+        double enter = timeOfImpact(startX, startY, moving.getWidth(),
+                moving.getHeight(), dx, dy, target);
+        if (enter == NO_HIT || moving.getMask() == null || target.getMask() == null) {
+            return enter;
+        }
+
+        // narrow phase: step at most one pixel at a time until the pixels overlap
+        double exit = Math.min(1, exitTime(startX, startY, moving, dx, dy, target));
+        int steps = (int) Math.ceil(Math.hypot(dx, dy) * (exit - enter)) + 1;
+        for (int i = 0; i <= steps; i++) {
+            double t = enter + (exit - enter) * i / steps;
+            if (moving.intersectsSpriteAt(startX + dx * t, startY + dy * t, target)) {
+                return t;
+            }
+        }
+        return NO_HIT;
+    }
+
+    /**
+     * The fixed-point version of {@link #sweep}: the slab method and the narrow
+     * phase run on {@link FixedPoint} values, and the narrow phase steps at most one
+     * pixel along each axis at a time
+     * @return the fraction of the motion at which the sprites first collide, on the
+     * fixed-point grid, or {@link #NO_HIT}
+     */
+    private static double sweepFixed(Sprite moving, double fromX, double fromY,
+            Sprite target, double time) {
+        long t = FixedPoint.of(time);
+        long startX = FixedPoint.of(fromX) + FixedPoint.mul(FixedPoint.of(target.getVelocityX()), t);
+        long startY = FixedPoint.of(fromY) + FixedPoint.mul(FixedPoint.of(target.getVelocityY()), t);
+        long dx = FixedPoint.of(moving.getPositionX()) - startX;
+        long dy = FixedPoint.of(moving.getPositionY()) - startY;
+
+        long targetX = FixedPoint.of(target.getPositionX());
+        long targetY = FixedPoint.of(target.getPositionY());
+        long minX = targetX - FixedPoint.of(moving.getWidth());
+        long maxX = targetX + FixedPoint.of(target.getWidth());
+        long minY = targetY - FixedPoint.of(moving.getHeight());
+        long maxY = targetY + FixedPoint.of(target.getHeight());
+
+        long enter = Long.MIN_VALUE;
+        long exit = Long.MAX_VALUE;
+
+        // horizontal slab
+        if (dx == 0) {
+            if (!(startX > minX && startX < maxX)) {
+                return NO_HIT;
+            }
+        } else {
+            long t1 = FixedPoint.div(minX - startX, dx);
+            long t2 = FixedPoint.div(maxX - startX, dx);
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+
+        // vertical slab
+        if (dy == 0) {
+            if (!(startY > minY && startY < maxY)) {
+                return NO_HIT;
+            }
+        } else {
+            long t1 = FixedPoint.div(minY - startY, dy);
+            long t2 = FixedPoint.div(maxY - startY, dy);
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+
+        if (enter >= exit || exit <= 0 || enter > FixedPoint.ONE) {
+            return NO_HIT;
+        }
+        enter = Math.max(enter, 0);
+        if (moving.getMask() == null || target.getMask() == null) {
+            return FixedPoint.toDouble(enter);
+        }
+
+        // narrow phase: step until the pixels overlap
+        exit = Math.min(FixedPoint.ONE, exit);
+        long distance = FixedPoint.mul(Math.max(Math.abs(dx), Math.abs(dy)), exit - enter);
+        int steps = (int) ((distance + FixedPoint.ONE - 1) >> FixedPoint.SHIFT) + 1;
+        for (int i = 0; i <= steps; i++) {
+            long at = enter + (exit - enter) * i / steps;
+            if (moving.intersectsSpriteAt(FixedPoint.toDouble(startX + FixedPoint.mul(dx, at)),
+                    FixedPoint.toDouble(startY + FixedPoint.mul(dy, at)), target)) {
+                return FixedPoint.toDouble(at);
+            }
+        }
+        return NO_HIT;
+    }
+
+    /**
+     * Compute when a moving box stops overlapping a fixed box
+     * @return the fraction of the motion at which the boxes separate
+     */
+    private static double exitTime(double x, double y, Sprite moving,
+            double dx, double dy, Sprite target) {
+        double exit = Double.POSITIVE_INFINITY;
+        if (dx != 0) {
+            double t1 = (target.getPositionX() - moving.getWidth() - x) / dx;
+            double t2 = (target.getPositionX() + target.getWidth() - x) / dx;
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        if (dy != 0) {
+            double t1 = (target.getPositionY() - moving.getHeight() - y) / dy;
+            double t2 = (target.getPositionY() + target.getHeight() - y) / dy;
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        return exit;
+    }
+}
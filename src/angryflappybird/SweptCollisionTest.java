@@ -0,0 +1,132 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class SweptCollisionTest {
+
+    private Sprite koya;
+    private Sprite wall;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        koya = new Sprite(0, 0, 80, 80);
+        wall = new Sprite(200, 0, 10, 100); // a thin obstacle
+    }
+
+    /**
+     * Test method timeOfImpact
+     */
+    @Test
+    void testTimeOfImpact() {
+        // the koya reaches the wall after moving 120 of its 240 pixels
+        assertEquals(0.5, SweptCollision.timeOfImpact(0, 0, 80, 80, 240, 0, wall), 1e-9);
+
+        // the koya stops short of the wall
+        assertEquals(SweptCollision.NO_HIT,
+                SweptCollision.timeOfImpact(0, 0, 80, 80, 100, 0, wall), 0);
+
+        // the koya passes above the wall
+        assertEquals(SweptCollision.NO_HIT,
+                SweptCollision.timeOfImpact(0, -100, 80, 80, 400, 0, wall), 0);
+
+        // the koya already overlaps the wall
+        assertEquals(0, SweptCollision.timeOfImpact(150, 0, 80, 80, 10, 0, wall), 0);
+    }
+
+    /**
+     * Test that a long frame does not carry the koya through a thin obstacle
+     */
+    @Test
+    void testSweepTunnelling() {
+        // the koya jumped from x = 0 to x = 400 in one frame, past the wall
+        koya.setPositionXY(400, 0);
+        assertFalse(koya.intersectsSprite(wall));
+        assertEquals(0.3, SweptCollision.sweep(koya, 0, 0, wall, 0), 1e-9);
+    }
+
+    /**
+     * Test that sweep follows the motion relative to a scrolling obstacle
+     */
+    @Test
+    void testSweepScrollingObstacle() {
+        // the wall scrolled left by 280 pixels during the frame, through the koya
+        wall.setPositionXY(20, 0);
+        wall.setVelocity(-56, 0);
+        koya.setPositionXY(100, 0);
+        assertEquals(SweptCollision.NO_HIT, SweptCollision.sweep(koya, 100, 0, wall, 0), 0);
+        assertEquals(120.0 / 280, SweptCollision.sweep(koya, 100, 0, wall, 5), 1e-9);
+    }
+
+    /**
+     * Test that sweep uses the collision masks when both sprites have one
+     */
+    @Test
+    void testSweepWithMasks() {
+        CollisionMask dot = new CollisionMask(80, 80);
+        dot.set(40, 40);
+        CollisionMask bar = new CollisionMask(10, 100);
+        for (int y = 0; y < 100; y++) {
+            bar.set(5, y);
+        }
+        koya.setMask(dot);
+        wall.setMask(bar);
+
+        // the boundaries meet at x = 120, the pixels at x = 165
+        koya.setPositionXY(400, 0);
+        assertEquals(165.0 / 400, SweptCollision.sweep(koya, 0, 0, wall, 0), 1.0 / 400);
+
+        // the boundaries cross but the pixels never meet
+        koya.setPositionXY(400, -60);
+        assertEquals(SweptCollision.NO_HIT, SweptCollision.sweep(koya, 0, -60, wall, 0), 0);
+    }
+
+    /**
+     * Test that the fixed-point sweep finds the same impacts as the double one, on
+     * the fixed-point grid
+     */
+    @Test
+    void testSweepFixedPoint() {
+        koya.setFixedPoint(true);
+        wall.setFixedPoint(true);
+
+        koya.setPositionXY(400, 0);
+        assertEquals(0.3, SweptCollision.sweep(koya, 0, 0, wall, 0), 1.0 / FixedPoint.ONE);
+
+        wall.setPositionXY(20, 0);
+        wall.setVelocity(-56, 0);
+        koya.setPositionXY(100, 0);
+        assertEquals(SweptCollision.NO_HIT, SweptCollision.sweep(koya, 100, 0, wall, 0), 0);
+        double t = SweptCollision.sweep(koya, 100, 0, wall, 5);
+        assertEquals(120.0 / 280, t, 1.0 / FixedPoint.ONE);
+        assertEquals(t, FixedPoint.snap(t));
+
+        CollisionMask dot = new CollisionMask(80, 80);
+        dot.set(40, 40);
+        CollisionMask bar = new CollisionMask(10, 100);
+        for (int y = 0; y < 100; y++) {
+            bar.set(5, y);
+        }
+        koya.setMask(dot);
+        wall.setMask(bar);
+        wall.setPositionXY(200, 0);
+        wall.setVelocity(0, 0);
+        koya.setPositionXY(400, 0);
+        assertEquals(165.0 / 400, SweptCollision.sweep(koya, 0, 0, wall, 0), 1.0 / 400);
+        koya.setPositionXY(400, -60);
+        assertEquals(SweptCollision.NO_HIT, SweptCollision.sweep(koya, 0, -60, wall, 0), 0);
+    }
+
+}
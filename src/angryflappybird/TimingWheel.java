@@ -0,0 +1,319 @@
+package angryflappybird;
+
+/**
+ * The TimingWheel class schedules game events at a known future time, so that the
+ * world does not have to check every frame whether they are due. It is a hashed
+ * timing wheel: a ring of slots, each covering a fixed span of time, where a timer
+ * is linked into the slot of its deadline. Advancing the wheel only looks at the
+ * slots the time has moved through, and a timer more than one turn of the wheel
+ * away simply stays in its slot until its turn comes. Timers are kept in
+ * preallocated arrays, so scheduling and firing do not allocate.
+ * The unit of time is up to the owner of the wheel, it only has to never go back
+ * @author Robin Tran, Jennifer Pham
+ */
+public class TimingWheel {
+
+    /** The id of no timer */
+    public static final int NONE = -1;
+
+    // states of a timer
+    private static final byte FREE = 0;
+    private static final byte SCHEDULED = 1;
+    private static final byte DUE = 2; // taken out of its slot, waiting for its handler
+    private static final byte CANCELLED = 3; // cancelled while due
+
+    /**
+     * Receives the timers that are due
+     */
+    public interface Handler {
+        /**
+         * Called when a timer is due
+         * @param type the type of the timer
+         * @param target what the timer is about, such as the index of a game object
+         * @param now the time the wheel was advanced to
+         */
+        void fire(int type, int target, long now);
+    }
+
+    private final long resolution; // time covered by one slot
+    private final int mask;
+    private final int[] heads; // first timer of each slot
+
+    // timers, linked in their slot, or in the free list through next
+    private final int[] next;
+    private final int[] previous;
+    private final int[] slots; // the slot each timer is linked in
+    private final long[] deadlines;
+    private final int[] types;
+    private final int[] targets;
+    private final byte[] states;
+    private int free;
+    private int size;
+
+    private final int[] due; // timers of the slot being fired
+    private long current; // the time of the last advance
+    private long fired;
+
+    /**
+     * Construct an empty wheel starting at time 0
+     * @param slots the number of slots, a power of two
+     * @param resolution the time covered by one slot
+     * @param capacity the largest number of timers scheduled at the same time
+     */
+    public TimingWheel(int slots, long resolution, int capacity) {
+        if (slots <= 0 || Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("slots must be a power of two: " + slots);
+        }
+        if (resolution <= 0) {
+            throw new IllegalArgumentException("resolution must be positive: " + resolution);
+        }
+        this.resolution = resolution;
+        mask = slots - 1;
+        heads = new int[slots];
+        next = new int[capacity];
+        previous = new int[capacity];
+        this.slots = new int[capacity];
+        deadlines = new long[capacity];
+        types = new int[capacity];
+        targets = new int[capacity];
+        states = new byte[capacity];
+        due = new int[capacity];
+        reset(0);
+    }
+
+    /**
+     * Schedule a timer. A deadline that has already passed fires on the next advance
+     * @param deadline the time the timer is due
+     * @param type the type of the timer, given back to the handler
+     * @param target what the timer is about, given back to the handler
+     * @return the id of the timer, valid until it fires or is cancelled
+     * @throws IllegalStateException if the wheel is full
+     */
+    public int schedule(long deadline, int type, int target) {
+        if (free == NONE) {
+            throw new IllegalStateException("no room for another timer: " + size + " scheduled");
+        }
+        int timer = free;
+        free = next[timer];
+        deadlines[timer] = deadline;
+        types[timer] = type;
+        targets[timer] = target;
+        states[timer] = SCHEDULED;
+        link(timer, slotOf(Math.max(deadline, current)));
+        size++;
+        return timer;
+    }
+
+    /**
+     * Cancel a timer
+     * @param timer the id of the timer
+     * @return if the timer was scheduled and will not fire
+     */
+    public boolean cancel(int timer) {
+        if (timer == NONE) {
+            return false;
+        }
+        if (states[timer] == SCHEDULED) {
+            unlink(timer);
+            release(timer);
+            return true;
+        }
+        if (states[timer] == DUE) {
+            // it is released once the handlers of its slot have run
+            states[timer] = CANCELLED;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move the wheel forward and fire the timers that are due, slot after slot.
+     * When the time jumps a whole turn or more, the due timers fire in the order
+     * of their slots rather than of their deadlines. Handlers may schedule and
+     * cancel timers, but not reset the wheel
+     * @param now the new time, not before the time of the last advance
+     * @param handler receives the timers that are due
+     * @return the number of timers fired
+     */
+    public int advance(long now, Handler handler) {
+        if (now < current) {
+            return 0;
+        }
+        long fromTick = Math.floorDiv(current, resolution);
+        long toTick = Math.floorDiv(now, resolution);
+        if (toTick - fromTick > mask) {
+            // visiting every slot once is enough when the time jumped a whole turn
+            fromTick = toTick - mask;
+        }
+        // timers scheduled by the handlers for the past go to the last slot visited
+        current = now;
+
+        int count = 0;
+        for (long tick = fromTick; tick <= toTick; tick++) {
+            int slot = (int) (tick & mask);
+
+            // take the due timers out of the slot before any handler runs
+            int dueCount = 0;
+            int timer = heads[slot];
+            while (timer != NONE) {
+                int following = next[timer];
+                if (deadlines[timer] <= now) {
+                    unlink(timer);
+                    states[timer] = DUE;
+                    due[dueCount++] = timer;
+                }
+                timer = following;
+            }
+
+            for (int i = 0; i < dueCount; i++) {
+                timer = due[i];
+                boolean cancelled = states[timer] == CANCELLED;
+                int type = types[timer];
+                int target = targets[timer];
+                release(timer);
+                if (!cancelled) {
+                    fired++;
+                    count++;
+                    handler.fire(type, target, now);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Cancel every timer and restart the wheel at a given time
+     * @param start the time of the wheel
+     */
+    public void reset(long start) {
+        for (int i = 0; i < heads.length; i++) {
+            heads[i] = NONE;
+        }
+        for (int i = 0; i < next.length; i++) {
+            next[i] = i + 1 < next.length ? i + 1 : NONE;
+            states[i] = FREE;
+        }
+        free = next.length > 0 ? 0 : NONE;
+        size = 0;
+        current = start;
+    }
+
+    /**
+     * Make this wheel a copy of another one with the same number of slots, resolution
+     * and capacity, with the same timers under the same ids
+     * @param other the wheel to copy
+     */
+    public void copyFrom(TimingWheel other) {
+        if (other.heads.length != heads.length || other.resolution != resolution
+                || other.next.length != next.length) {
+            throw new IllegalArgumentException("the wheels have different sizes");
+        }
+        System.arraycopy(other.heads, 0, heads, 0, heads.length);
+        System.arraycopy(other.next, 0, next, 0, next.length);
+        System.arraycopy(other.previous, 0, previous, 0, previous.length);
+        System.arraycopy(other.slots, 0, slots, 0, slots.length);
+        System.arraycopy(other.deadlines, 0, deadlines, 0, deadlines.length);
+        System.arraycopy(other.types, 0, types, 0, types.length);
+        System.arraycopy(other.targets, 0, targets, 0, targets.length);
+        System.arraycopy(other.states, 0, states, 0, states.length);
+        free = other.free;
+        size = other.size;
+        current = other.current;
+        fired = other.fired;
+    }
+
+    /**
+     * Check if a timer is waiting to fire
+     * @param timer the id of the timer
+     * @return if the timer is scheduled
+     */
+    public boolean isScheduled(int timer) {
+        return timer != NONE && states[timer] == SCHEDULED;
+    }
+
+    /**
+     * Get the deadline of a scheduled timer
+     * @param timer the id of the timer
+     * @return the time the timer is due
+     */
+    public long getDeadline(int timer) {
+        return deadlines[timer];
+    }
+
+    /**
+     * Get the number of timers scheduled
+     * @return the number of timers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the time of the last advance
+     * @return the time
+     */
+    public long getCurrent() {
+        return current;
+    }
+
+    /**
+     * Get the number of timers fired since the wheel was created
+     * @return the number of timers fired
+     */
+    public long getFired() {
+        return fired;
+    }
+
+    /**
+     * Find the slot of a time
+     * @param time the time
+     * @return the index of the slot
+     */
+    private int slotOf(long time) {
+        return (int) (Math.floorDiv(time, resolution) & mask);
+    }
+
+    /**
+     * Put a timer at the head of a slot
+     * @param timer the timer
+     * @param slot the slot
+     */
+    private void link(int timer, int slot) {
+        int head = heads[slot];
+        next[timer] = head;
+        previous[timer] = NONE;
+        slots[timer] = slot;
+        if (head != NONE) {
+            previous[head] = timer;
+        }
+        heads[slot] = timer;
+    }
+
+    /**
+     * Take a timer out of its slot
+     * @param timer the timer
+     */
+    private void unlink(int timer) {
+        int before = previous[timer];
+        int after = next[timer];
+        if (before == NONE) {
+            heads[slots[timer]] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+    }
+
+    /**
+     * Give a timer back to the free list
+     * @param timer the timer
+     */
+    private void release(int timer) {
+        states[timer] = FREE;
+        next[timer] = free;
+        free = timer;
+        size--;
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ *
+ */
+package angryflappybird;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Jennifer Pham, Robin Tran
+ *
+ */
+class TimingWheelTest {
+
+    private TimingWheel wheel;
+    private StringBuilder fired; // the targets fired, in order
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        wheel = new TimingWheel(8, 10, 4); // one turn is 80
+        fired = new StringBuilder();
+    }
+
+    /**
+     * Test that timers fire once, on the first advance at or after their deadline,
+     * including the ones more than a turn away
+     */
+    @Test
+    void testAdvance() {
+        wheel.schedule(25, 0, 1);
+        wheel.schedule(25 + 80, 0, 2); // same slot, one turn later
+        wheel.schedule(15, 0, 3);
+
+        assertEquals(0, wheel.advance(14, this::record));
+        assertEquals(2, wheel.advance(30, this::record));
+        assertEquals("31", fired.toString());
+
+        assertEquals(0, wheel.advance(104, this::record));
+        assertEquals(1, wheel.advance(105, this::record));
+        assertEquals("312", fired.toString());
+        assertEquals(0, wheel.size());
+        assertEquals(3, wheel.getFired());
+    }
+
+    /**
+     * Test that a jump of several turns fires every timer that is due
+     */
+    @Test
+    void testJump() {
+        wheel.schedule(5, 0, 1);
+        wheel.schedule(300, 0, 2);
+        wheel.schedule(1000, 0, 3);
+
+        assertEquals(2, wheel.advance(500, this::record));
+        assertEquals(2, fired.length()); // in the order of their slots
+        assertEquals(1, wheel.size());
+
+        // a deadline already passed fires on the next advance
+        fired.setLength(0);
+        wheel.schedule(100, 0, 4);
+        assertEquals(1, wheel.advance(500, this::record));
+        assertEquals("4", fired.toString());
+    }
+
+    /**
+     * Test cancelling timers, and timers scheduled and cancelled by handlers
+     */
+    @Test
+    void testCancelAndReschedule() {
+        int a = wheel.schedule(20, 0, 1);
+        int b = wheel.schedule(22, 0, 2);
+        assertTrue(wheel.cancel(a));
+        assertFalse(wheel.cancel(a));
+        assertTrue(wheel.isScheduled(b));
+
+        // each firing schedules the next one, like a periodic event
+        int[] count = new int[1];
+        wheel.advance(30, (type, target, now) -> {
+            count[0]++;
+            wheel.schedule(now + 50, 0, target);
+        });
+        assertEquals(1, count[0]);
+        assertEquals(1, wheel.size());
+        wheel.advance(80, (type, target, now) -> count[0]++);
+        assertEquals(2, count[0]);
+
+        // the wheel is full
+        for (int i = 0; i < 4; i++) {
+            wheel.schedule(100, 0, i);
+        }
+        assertThrows(IllegalStateException.class, () -> wheel.schedule(100, 0, 5));
+        wheel.reset(0);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Record a fired timer
+     * @param type the type of the timer
+     * @param target the target of the timer
+     * @param now the time of the advance
+     */
+    private void record(int type, int target, long now) {
+        fired.append(target);
+    }
+}
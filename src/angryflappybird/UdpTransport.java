@@ -0,0 +1,93 @@
+package angryflappybird;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * The UdpTransport class sends the packets of a {@link RollbackSession} as UDP
+ * datagrams. It uses a non-blocking channel bound to a local port and only accepts
+ * the datagrams that come from the other player. The buffers are allocated once
+ * @author Robin Tran, Jennifer Pham
+ */
+public class UdpTransport implements NetTransport {
+
+    private final DatagramChannel channel;
+    private final ByteBuffer sendBuffer;
+    private final ByteBuffer receiveBuffer;
+    private SocketAddress peer;
+
+    /**
+     * Bind a transport to a local port. The address of the other player is set
+     * with {@link #setPeer(SocketAddress)} before anything is sent
+     * @param port the local port, 0 for any free port
+     * @param packetSize the size of the largest packet
+     * @throws IOException if the port cannot be bound
+     */
+    public UdpTransport(int port, int packetSize) throws IOException {
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress(port));
+        sendBuffer = ByteBuffer.allocateDirect(packetSize);
+        receiveBuffer = ByteBuffer.allocateDirect(packetSize);
+    }
+
+    /**
+     * Set the address of the other player
+     * @param peer the address the packets are sent to and accepted from
+     */
+    public void setPeer(SocketAddress peer) {
+        this.peer = peer;
+    }
+
+    /**
+     * Get the local port the transport is bound to
+     * @return the port
+     * @throws IOException if the port cannot be read
+     */
+    public int getLocalPort() throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    @Override
+    public void send(byte[] data, int length) throws IOException {
+        sendBuffer.clear();
+        sendBuffer.put(data, 0, length);
+        sendBuffer.flip();
+        try {
+            channel.send(sendBuffer, peer);
+        } catch (PortUnreachableException e) {
+            // the other player is not listening yet, the packet is lost like any other
+        }
+    }
+
+    @Override
+    public int receive(byte[] data) throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress from;
+            try {
+                from = channel.receive(receiveBuffer);
+            } catch (PortUnreachableException e) {
+                continue;
+            }
+            if (from == null) {
+                return -1;
+            }
+            if (from.equals(peer)) {
+                receiveBuffer.flip();
+                int length = Math.min(receiveBuffer.remaining(), data.length);
+                receiveBuffer.get(data, 0, length);
+                return length;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}